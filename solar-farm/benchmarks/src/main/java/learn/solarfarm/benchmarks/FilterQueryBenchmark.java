@@ -0,0 +1,115 @@
+package learn.solarfarm.benchmarks;
+
+import learn.solarfarm.data.SectionRegistry;
+import learn.solarfarm.data.SolarPanelJdbcTemplateRepository;
+import learn.solarfarm.models.Material;
+import learn.solarfarm.models.SolarPanel;
+import learn.solarfarm.models.SolarPanelCursor;
+import learn.solarfarm.models.SolarPanelFilter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the filter API pushed down to the database (findByFilter and the indexes in
+ * database/production.sql) against what clients did before: read every panel and filter them in Java.
+ * `findByFilterDeepPage` fetches a page far into the results with a cursor, which should cost
+ * about the same as the first page.
+ *
+ * Unlike the other benchmarks, this one needs a local MySQL database filled by
+ * learn.solarfarm.loadtest.FarmGenerator. Credentials come from DB_USERNAME and DB_PASSWORD,
+ * and `-jvmArgsAppend -Djdbc.url=...` points it at another database.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FilterQueryBenchmark {
+    private static final String DEFAULT_URL = "jdbc:mysql://localhost:3306/solar_farm";
+    private static final int LIMIT = 1000;
+    private static final int DEEP_PAGE = 20;
+
+    @Param({"materialTrackingYears", "sectionYears", "yearsSortedByYear"})
+    String criteria;
+
+    SingleConnectionDataSource dataSource;
+    SolarPanelJdbcTemplateRepository repository;
+    SolarPanelFilter filter;
+    SolarPanelCursor deepCursor;
+
+    @Setup
+    public void setup() {
+        dataSource = new SingleConnectionDataSource(System.getProperty("jdbc.url", DEFAULT_URL),
+                System.getenv("DB_USERNAME"), System.getenv("DB_PASSWORD"), true);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        SectionRegistry sections = new SectionRegistry(jdbcTemplate);
+        repository = new SolarPanelJdbcTemplateRepository(jdbcTemplate, sections, Integer.MIN_VALUE);
+
+        filter = new SolarPanelFilter();
+        switch (criteria) {
+            case "materialTrackingYears" -> {
+                // "All CdTe panels installed before 2010 that aren't tracking."
+                filter.setMaterial(Material.CD_TE);
+                filter.setTracking(false);
+                filter.setYearInstalledMax(2009);
+            }
+            case "sectionYears" -> {
+                filter.setSection(SyntheticFarm.sectionName(41));
+                filter.setYearInstalledMin(2010);
+            }
+            case "yearsSortedByYear" -> {
+                filter.setYearInstalledMin(2015);
+                filter.setSort(SolarPanelFilter.Sort.YEAR_INSTALLED);
+            }
+            default -> throw new IllegalArgumentException(criteria);
+        }
+
+        // Page through to the start of page DEEP_PAGE (or the last page, for criteria with fewer matches).
+        List<SolarPanel> page = repository.findByFilter(filter, null, LIMIT);
+        for (int i = 1; i < DEEP_PAGE && page.size() == LIMIT; i++) {
+            deepCursor = SolarPanelCursor.of(page.get(page.size() - 1));
+            page = repository.findByFilter(filter, deepCursor, LIMIT);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.destroy();
+    }
+
+    @Benchmark
+    public List<SolarPanel> findByFilter() {
+        return repository.findByFilter(filter, null, LIMIT);
+    }
+
+    @Benchmark
+    public List<SolarPanel> findByFilterDeepPage() {
+        return repository.findByFilter(filter, deepCursor, LIMIT);
+    }
+
+    @Benchmark
+    public List<SolarPanel> streamAllAndFilter() {
+        ArrayList<SolarPanel> result = new ArrayList<>();
+        repository.streamAll(solarPanel -> {
+            if (filter.matches(solarPanel)) {
+                result.add(solarPanel);
+            }
+        });
+
+        Comparator<SolarPanel> order = filter.getSort() == SolarPanelFilter.Sort.YEAR_INSTALLED
+                ? Comparator.comparingInt(SolarPanel::getYearInstalled).thenComparingInt(SolarPanel::getId)
+                : Comparator.comparing(SolarPanel::getSection, String.CASE_INSENSITIVE_ORDER)
+                        .thenComparingInt(SolarPanel::getRow)
+                        .thenComparingInt(SolarPanel::getColumn)
+                        .thenComparingInt(SolarPanel::getId);
+        result.sort(order);
+        return result.subList(0, Math.min(LIMIT, result.size()));
+    }
+}
@@ -0,0 +1,99 @@
+package learn.solarfarm.benchmarks;
+
+import com.zaxxer.hikari.HikariDataSource;
+import learn.solarfarm.data.SectionRegistry;
+import learn.solarfarm.data.SolarPanelGroupCommitRepository;
+import learn.solarfarm.data.SolarPanelJdbcTemplateRepository;
+import learn.solarfarm.data.SolarPanelRepository;
+import learn.solarfarm.models.Material;
+import learn.solarfarm.models.SolarPanel;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures single-panel creates from many threads at once, each committed on its own ("direct")
+ * vs. gathered by SolarPanelGroupCommitRepository ("groupCommit").
+ * Throughput shows how many creates per second each gets through, SampleTime shows what
+ * a caller waits: group commit adds up to max-wait to every create, and in return each commit
+ * (one log flush in MySQL) covers a whole batch.
+ *
+ * Like FilterQueryBenchmark, it needs a local MySQL database created by database/production.sql.
+ * Credentials come from DB_USERNAME and DB_PASSWORD, and `-jvmArgsAppend -Djdbc.url=...` points it
+ * at another database. Panels go in "Group Commit 001", "Group Commit 002"... and are deleted afterwards.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@Threads(64)
+@State(Scope.Benchmark)
+public class GroupCommitBenchmark {
+    private static final String DEFAULT_URL = "jdbc:mysql://localhost:3306/solar_farm?rewriteBatchedStatements=true";
+    private static final String SECTION_PREFIX = "Group Commit ";
+
+    @Param({"direct", "groupCommit"})
+    String mode;
+
+    @Param({"2"})
+    int maxWaitMillis;
+
+    @Param({"100"})
+    int maxBatchSize;
+
+    // Every create gets the next cell, so no two threads collide on the natural key.
+    final AtomicInteger next = new AtomicInteger();
+
+    HikariDataSource dataSource;
+    JdbcTemplate jdbcTemplate;
+    SolarPanelRepository repository;
+
+    @Setup
+    public void setup() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(System.getProperty("jdbc.url", DEFAULT_URL));
+        dataSource.setUsername(System.getenv("DB_USERNAME"));
+        dataSource.setPassword(System.getenv("DB_PASSWORD"));
+        dataSource.setMaximumPoolSize(64);
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        SolarPanelJdbcTemplateRepository jdbcRepository = new SolarPanelJdbcTemplateRepository(
+                jdbcTemplate, new SectionRegistry(jdbcTemplate), Integer.MIN_VALUE);
+
+        repository = mode.equals("groupCommit")
+                ? new SolarPanelGroupCommitRepository(jdbcRepository, transactionManager,
+                        maxBatchSize, Duration.ofMillis(maxWaitMillis), 1000, Duration.ofSeconds(5))
+                : jdbcRepository;
+        deletePanels();
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (repository instanceof SolarPanelGroupCommitRepository groupCommit) {
+            groupCommit.destroy();
+        }
+        deletePanels();
+        dataSource.close();
+    }
+
+    @Benchmark
+    public SolarPanel create() {
+        int index = next.getAndIncrement();
+        int cell = index % (SyntheticFarm.GRID_SIZE * SyntheticFarm.GRID_SIZE);
+        String section = String.format("%s%03d", SECTION_PREFIX, index / (SyntheticFarm.GRID_SIZE * SyntheticFarm.GRID_SIZE) + 1);
+        return repository.create(new SolarPanel(0, section,
+                cell / SyntheticFarm.GRID_SIZE + 1, cell % SyntheticFarm.GRID_SIZE + 1,
+                2020, Material.MONO_SI, true));
+    }
+
+    private void deletePanels() {
+        jdbcTemplate.update("delete from solar_panel where section_id in " +
+                "(select section_id from section where name like ?);", SECTION_PREFIX + "%");
+    }
+}
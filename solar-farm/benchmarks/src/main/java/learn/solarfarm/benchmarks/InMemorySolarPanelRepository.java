@@ -0,0 +1,129 @@
+package learn.solarfarm.benchmarks;
+
+import learn.solarfarm.data.SolarPanelRepository;
+import learn.solarfarm.models.SolarPanel;
+import learn.solarfarm.models.SolarPanelCursor;
+import learn.solarfarm.models.SolarPanelFilter;
+import learn.solarfarm.models.SolarPanelGroupCount;
+import learn.solarfarm.models.UpsertType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * A repository stub that keeps panels in a HashMap so benchmarks measure
+ * our code rather than the database. Writes don't change the stored panels,
+ * which keeps every benchmark invocation identical.
+ */
+public class InMemorySolarPanelRepository implements SolarPanelRepository {
+    private final Map<Integer, SolarPanel> byId = new HashMap<>();
+    private final Map<String, List<SolarPanel>> bySection = new HashMap<>();
+    private final Map<String, SolarPanel> byNaturalKey = new HashMap<>();
+
+    public InMemorySolarPanelRepository(List<SolarPanel> solarPanels) {
+        for (SolarPanel solarPanel : solarPanels) {
+            byId.put(solarPanel.getId(), solarPanel);
+            bySection.computeIfAbsent(solarPanel.getSection().toLowerCase(), key -> new ArrayList<>()).add(solarPanel);
+            byNaturalKey.put(naturalKey(solarPanel), solarPanel);
+        }
+    }
+
+    @Override
+    public List<SolarPanel> findAll() {
+        return new ArrayList<>(byId.values());
+    }
+
+    @Override
+    public List<SolarPanel> findPage(SolarPanelCursor after, int limit) {
+        return findAll().subList(0, Math.min(limit, byId.size()));
+    }
+
+    @Override
+    public void streamAll(Consumer<SolarPanel> consumer) {
+        byId.values().forEach(consumer);
+    }
+
+    @Override
+    public List<SolarPanel> findBySection(String section) {
+        return bySection.getOrDefault(section.toLowerCase(), List.of());
+    }
+
+    @Override
+    public List<SolarPanel> findByRange(String section, int rowMin, int rowMax, int columnMin, int columnMax) {
+        return findBySection(section).stream()
+                .filter(solarPanel -> solarPanel.getRow() >= rowMin && solarPanel.getRow() <= rowMax &&
+                        solarPanel.getColumn() >= columnMin && solarPanel.getColumn() <= columnMax)
+                .toList();
+    }
+
+    @Override
+    public List<SolarPanel> findByFilter(SolarPanelFilter filter, SolarPanelCursor after, int limit) {
+        return byId.values().stream()
+                .filter(filter::matches)
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public SolarPanel findById(int id) {
+        return byId.get(id);
+    }
+
+    @Override
+    public boolean existsByNaturalKey(SolarPanel solarPanel) {
+        SolarPanel existing = byNaturalKey.get(naturalKey(solarPanel));
+        return existing != null && existing.getId() != solarPanel.getId();
+    }
+
+    @Override
+    public List<SolarPanelGroupCount> countByGroup() {
+        ArrayList<SolarPanelGroupCount> result = new ArrayList<>();
+        for (SolarPanel solarPanel : byId.values()) {
+            result.add(new SolarPanelGroupCount(solarPanel.getSection(), solarPanel.getMaterial(),
+                    solarPanel.getYearInstalled() / 10 * 10, solarPanel.isTracking(), 1));
+        }
+        return result;
+    }
+
+    @Override
+    public SolarPanel create(SolarPanel solarPanel) {
+        return solarPanel;
+    }
+
+    @Override
+    public List<SolarPanel> createAll(List<SolarPanel> solarPanels) {
+        return solarPanels;
+    }
+
+    @Override
+    public boolean update(SolarPanel solarPanel) {
+        return byId.containsKey(solarPanel.getId());
+    }
+
+    @Override
+    public UpsertType upsert(SolarPanel solarPanel) {
+        SolarPanel existing = byNaturalKey.get(naturalKey(solarPanel));
+        if (existing == null) {
+            return UpsertType.INSERTED;
+        }
+        solarPanel.setId(existing.getId());
+        return UpsertType.UPDATED;
+    }
+
+    @Override
+    public List<SolarPanel> upsertAll(List<SolarPanel> solarPanels) {
+        return solarPanels;
+    }
+
+    @Override
+    public boolean deleteById(int id) {
+        return byId.containsKey(id);
+    }
+
+    private static String naturalKey(SolarPanel solarPanel) {
+        return solarPanel.getSection().toLowerCase() + ":" + solarPanel.getRow() + ":" + solarPanel.getColumn();
+    }
+}
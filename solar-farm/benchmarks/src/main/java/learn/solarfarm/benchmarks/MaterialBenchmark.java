@@ -0,0 +1,39 @@
+package learn.solarfarm.benchmarks;
+
+import learn.solarfarm.models.Material;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the two ways we turn Strings into Materials.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MaterialBenchmark {
+
+    // The first and last values, since findByName scans in declaration order.
+    @Param({"POLY_SI", "CIGS"})
+    String constant;
+
+    String name;
+
+    @Setup
+    public void setup() {
+        name = Material.valueOf(constant).getName().toUpperCase();
+    }
+
+    @Benchmark
+    public Material valueOf() {
+        return Material.valueOf(constant);
+    }
+
+    @Benchmark
+    public Material findByName() {
+        return Material.findByName(name);
+    }
+}
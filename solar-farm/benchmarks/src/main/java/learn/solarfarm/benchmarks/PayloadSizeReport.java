@@ -0,0 +1,38 @@
+package learn.solarfarm.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import learn.solarfarm.controllers.BinaryFormatConfig;
+import learn.solarfarm.models.SolarPanel;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Prints the size of a List&lt;SolarPanel&gt; payload in each response format.
+ * Pair it with SerializationBenchmark, which measures how fast each one is written.
+ * Run it with `java -cp benchmarks/target/benchmarks.jar learn.solarfarm.benchmarks.PayloadSizeReport`.
+ */
+public class PayloadSizeReport {
+
+    public static void main(String[] args) throws IOException {
+        ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+        ObjectMapper smile = BinaryFormatConfig.smileObjectMapper();
+        ObjectMapper cbor = Jackson2ObjectMapperBuilder.cbor().build();
+
+        System.out.printf("%10s %12s %12s %12s %12s%n", "panels", "json", "json+gzip", "smile", "cbor");
+        for (int size : new int[]{1000, 100000}) {
+            List<SolarPanel> solarPanels = SyntheticFarm.solarPanels(size);
+            int jsonSize = json.writeValueAsBytes(solarPanels).length;
+            System.out.printf("%10d %12s %12s %12s %12s%n", size,
+                    jsonSize,
+                    describe(SerializationBenchmark.gzip(json, solarPanels).length, jsonSize),
+                    describe(smile.writeValueAsBytes(solarPanels).length, jsonSize),
+                    describe(cbor.writeValueAsBytes(solarPanels).length, jsonSize));
+        }
+    }
+
+    private static String describe(int bytes, int jsonBytes) {
+        return String.format("%d (%d%%)", bytes, Math.round(bytes * 100.0 / jsonBytes));
+    }
+}
@@ -0,0 +1,71 @@
+package learn.solarfarm.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import learn.solarfarm.controllers.BinaryFormatConfig;
+import learn.solarfarm.models.SolarPanel;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Measures Jackson serialization of large List&lt;SolarPanel&gt; responses in each
+ * format the API can send. PayloadSizeReport prints the matching payload sizes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    @Param({"1000", "100000"})
+    int size;
+
+    // Configured the same way Spring Boot configures the application's ObjectMapper.
+    final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    final ObjectMapper smileObjectMapper = BinaryFormatConfig.smileObjectMapper();
+    final ObjectMapper cborObjectMapper = Jackson2ObjectMapperBuilder.cbor().build();
+
+    List<SolarPanel> solarPanels;
+
+    @Setup
+    public void setup() {
+        solarPanels = SyntheticFarm.solarPanels(size);
+    }
+
+    @Benchmark
+    public byte[] writeList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(solarPanels);
+    }
+
+    @Benchmark
+    public byte[] writeListGzip() throws IOException {
+        return gzip(objectMapper, solarPanels);
+    }
+
+    @Benchmark
+    public byte[] writeListSmile() throws JsonProcessingException {
+        return smileObjectMapper.writeValueAsBytes(solarPanels);
+    }
+
+    @Benchmark
+    public byte[] writeListCbor() throws JsonProcessingException {
+        return cborObjectMapper.writeValueAsBytes(solarPanels);
+    }
+
+    // Tomcat compresses with the default Deflater level, so this does too.
+    static byte[] gzip(ObjectMapper objectMapper, Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            objectMapper.writeValue(gzip, value);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,64 @@
+package learn.solarfarm.benchmarks;
+
+import learn.solarfarm.domain.SolarFarmSnapshot;
+import learn.solarfarm.models.SolarPanel;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Prints how much heap a farm takes as a List&lt;SolarPanel&gt; (what the repository returns)
+ * and as a SolarFarmSnapshot. Pair it with SnapshotScanBenchmark, which measures scan speed.
+ * Heap use is read after a full GC, so run it with nothing else going on and enough heap:
+ * `java -Xmx4g -cp benchmarks/target/benchmarks.jar learn.solarfarm.benchmarks.SnapshotFootprintReport`.
+ */
+public class SnapshotFootprintReport {
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    public static void main(String[] args) {
+        System.out.printf("%10s %14s %8s %14s %8s%n", "panels", "list", "B/panel", "snapshot", "B/panel");
+        for (int size : new int[]{1_000_000, 2_000_000, 6_200_100}) {
+            long before = usedHeap();
+            List<SolarPanel> solarPanels = solarPanels(size);
+            long listBytes = usedHeap() - before;
+
+            before = usedHeap();
+            SolarFarmSnapshot snapshot = SolarFarmSnapshot.build(solarPanels::forEach);
+            solarPanels = null;
+            long snapshotBytes = usedHeap() - before + listBytes;
+
+            System.out.printf("%10d %14s %8.1f %14s %8.1f%n", snapshot.size(),
+                    describe(listBytes), (double) listBytes / size,
+                    describe(snapshotBytes), (double) snapshotBytes / size);
+        }
+    }
+
+    // Like SyntheticFarm.solarPanels, but panels in a section share one String for its name,
+    // the way SolarPanelMapper hands them out.
+    private static List<SolarPanel> solarPanels(int count) {
+        HashMap<String, String> names = new HashMap<>();
+        ArrayList<SolarPanel> solarPanels = new ArrayList<>(count);
+        Random random = new Random(42);
+        for (int i = 0; i < count; i++) {
+            SolarPanel solarPanel = SyntheticFarm.solarPanel(i, random);
+            solarPanel.setSection(names.computeIfAbsent(solarPanel.getSection(), name -> name));
+            solarPanels.add(solarPanel);
+        }
+        return solarPanels;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return MEMORY.getHeapMemoryUsage().getUsed();
+    }
+
+    private static String describe(long bytes) {
+        return String.format("%,.1f MB", bytes / (1024.0 * 1024.0));
+    }
+}
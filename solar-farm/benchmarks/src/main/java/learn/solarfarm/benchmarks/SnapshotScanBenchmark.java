@@ -0,0 +1,69 @@
+package learn.solarfarm.benchmarks;
+
+import learn.solarfarm.domain.SolarFarmSnapshot;
+import learn.solarfarm.models.Material;
+import learn.solarfarm.models.SolarPanel;
+import learn.solarfarm.models.SolarPanelFilter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures filtering and counting a whole farm held as a SolarFarmSnapshot against the same farm
+ * held as a List&lt;SolarPanel&gt;. SnapshotFootprintReport prints how much heap each one takes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class SnapshotScanBenchmark {
+    private static final int LIMIT = 1000;
+
+    @Param({"1000000"})
+    int size;
+
+    List<SolarPanel> solarPanels;
+    SolarFarmSnapshot snapshot;
+    SolarPanelFilter filter;
+
+    @Setup
+    public void setup() {
+        solarPanels = SyntheticFarm.solarPanels(size);
+        snapshot = SolarFarmSnapshot.build(solarPanels::forEach);
+
+        // "All CdTe panels installed before 2010 that aren't tracking."
+        filter = new SolarPanelFilter();
+        filter.setMaterial(Material.CD_TE);
+        filter.setTracking(false);
+        filter.setYearInstalledMax(2009);
+    }
+
+    @Benchmark
+    public long countSnapshot() {
+        return snapshot.count(filter);
+    }
+
+    @Benchmark
+    public long countList() {
+        long count = 0;
+        for (SolarPanel solarPanel : solarPanels) {
+            if (filter.matches(solarPanel)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int[] findIdsSnapshot() {
+        return snapshot.findIds(filter, LIMIT);
+    }
+
+    @Benchmark
+    public List<SolarPanel> findList() {
+        return solarPanels.stream().filter(filter::matches).limit(LIMIT).toList();
+    }
+}
@@ -0,0 +1,89 @@
+package learn.solarfarm.benchmarks;
+
+import learn.solarfarm.data.mappers.SolarPanelMapper;
+import learn.solarfarm.models.SolarPanel;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures SolarPanelMapper over a synthetic, in-memory ResultSet.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SolarPanelMapperBenchmark {
+
+    SolarPanelMapper mapper;
+    List<SolarPanel> rows;
+    ResultSet resultSet;
+    String[] materialNames;
+    int current;
+
+    @Setup
+    public void setup() {
+        rows = SyntheticFarm.solarPanels(10_000);
+        resultSet = new SyntheticResultSet();
+        materialNames = new String[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            // A copy per row, like a driver decoding each row's bytes.
+            materialNames[i] = new String(rows.get(i).getMaterial().name().toCharArray());
+        }
+
+        // Stands in for SectionRegistry: section ids are 1, 2, 3... like FarmGenerator's.
+        int sections = (rows.size() - 1) / (SyntheticFarm.GRID_SIZE * SyntheticFarm.GRID_SIZE) + 1;
+        String[] names = new String[sections + 1];
+        for (int i = 0; i < sections; i++) {
+            names[i + 1] = SyntheticFarm.sectionName(i);
+        }
+        mapper = new SolarPanelMapper((sectionId, resultSet) -> names[sectionId]);
+    }
+
+    @Benchmark
+    public SolarPanel mapRow() throws SQLException {
+        current = (current + 1) % rows.size();
+        return mapper.mapRow(resultSet, current);
+    }
+
+    // Answers getInt/getString/getBoolean by column label from the current row, the same way a driver's
+    // ResultSet would, without allocating: material names are decoded once up front, so the allocation
+    // the benchmark reports is the mapper's. A real driver also allocates while decoding each row.
+    // Rows carry a section_id, the mapper looks the name up instead of decoding it.
+    private class SyntheticResultSet extends UnsupportedResultSet {
+        @Override
+        public int getInt(String columnLabel) throws SQLException {
+            SolarPanel row = rows.get(current);
+            return switch (columnLabel) {
+                case "id" -> row.getId();
+                case "section_id" -> (row.getId() - 1) / (SyntheticFarm.GRID_SIZE * SyntheticFarm.GRID_SIZE) + 1;
+                case "row" -> row.getRow();
+                case "column" -> row.getColumn();
+                case "year_installed" -> row.getYearInstalled();
+                case "version" -> row.getVersion();
+                default -> throw new SQLException("Unknown int column: " + columnLabel);
+            };
+        }
+
+        @Override
+        public String getString(String columnLabel) throws SQLException {
+            if (!columnLabel.equals("material")) {
+                throw new SQLException("Unknown String column: " + columnLabel);
+            }
+            return materialNames[current];
+        }
+
+        @Override
+        public boolean getBoolean(String columnLabel) throws SQLException {
+            if (!columnLabel.equals("is_tracking")) {
+                throw new SQLException("Unknown boolean column: " + columnLabel);
+            }
+            return rows.get(current).isTracking();
+        }
+    }
+}
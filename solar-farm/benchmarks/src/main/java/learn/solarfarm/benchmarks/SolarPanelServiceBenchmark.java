@@ -0,0 +1,69 @@
+package learn.solarfarm.benchmarks;
+
+import learn.solarfarm.domain.SolarPanelCache;
+import learn.solarfarm.domain.SolarPanelResult;
+import learn.solarfarm.domain.SolarPanelService;
+import learn.solarfarm.models.Material;
+import learn.solarfarm.models.SolarPanel;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures SolarPanelService validation (including the natural key check)
+ * against an in-memory repository.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SolarPanelServiceBenchmark {
+
+    @Param({"1000", "62001"})
+    int sectionSize;
+
+    SolarPanelService service;
+    SolarPanel newSolarPanel;
+    SolarPanel duplicateSolarPanel;
+    SolarPanel invalidSolarPanel;
+    SolarPanel existingSolarPanel;
+
+    @Setup
+    public void setup() {
+        InMemorySolarPanelRepository repository =
+                new InMemorySolarPanelRepository(SyntheticFarm.solarPanels(sectionSize));
+        service = new SolarPanelService(repository,
+                new SolarPanelCache(false, 0, Duration.ZERO),
+                event -> { },
+                List.of());
+
+        newSolarPanel = new SolarPanel(0, "Empty Section", 1, 1, 2020, Material.POLY_SI, true);
+        duplicateSolarPanel = new SolarPanel(0, SyntheticFarm.sectionName(0), 1, 1, 2020, Material.POLY_SI, true);
+        invalidSolarPanel = new SolarPanel(0, "", 0, 300, 3000, null, true);
+        existingSolarPanel = repository.findById(1);
+    }
+
+    @Benchmark
+    public SolarPanelResult createValid() {
+        return service.create(newSolarPanel);
+    }
+
+    @Benchmark
+    public SolarPanelResult createDuplicateNaturalKey() {
+        return service.create(duplicateSolarPanel);
+    }
+
+    @Benchmark
+    public SolarPanelResult createInvalidFields() {
+        return service.create(invalidSolarPanel);
+    }
+
+    @Benchmark
+    public SolarPanelResult update() {
+        return service.update(existingSolarPanel);
+    }
+}
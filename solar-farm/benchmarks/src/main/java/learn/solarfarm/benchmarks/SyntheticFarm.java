@@ -0,0 +1,59 @@
+package learn.solarfarm.benchmarks;
+
+import learn.solarfarm.models.Material;
+import learn.solarfarm.models.SolarPanel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds repeatable, realistic-looking solar panels for benchmarks.
+ */
+public final class SyntheticFarm {
+    public static final int GRID_SIZE = 249;
+    private static final Material[] MATERIALS = Material.values();
+
+    private SyntheticFarm() {
+    }
+
+    /**
+     * Create panels that fill sections row by row.
+     * @param count The number of panels to create.
+     * @return A List of SolarPanel with ids starting at 1.
+     */
+    public static List<SolarPanel> solarPanels(int count) {
+        Random random = new Random(42);
+        ArrayList<SolarPanel> solarPanels = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            solarPanels.add(solarPanel(i, random));
+        }
+        return solarPanels;
+    }
+
+    /**
+     * Create one panel at a time, for farms too big to hold in memory.
+     * Calling this for index 0, 1, 2... with `new Random(42)` gives the same panels as solarPanels.
+     * @param index The panel's position in the farm, its id is index + 1.
+     * @param random The source of install years, materials, and tracking.
+     * @return A SolarPanel.
+     */
+    public static SolarPanel solarPanel(int index, Random random) {
+        int cell = index % (GRID_SIZE * GRID_SIZE);
+        String section = sectionName(index / (GRID_SIZE * GRID_SIZE));
+        SolarPanel solarPanel = new SolarPanel(index + 1, section,
+                cell / GRID_SIZE + 1,
+                cell % GRID_SIZE + 1,
+                1990 + random.nextInt(33),
+                MATERIALS[random.nextInt(MATERIALS.length)],
+                random.nextBoolean());
+        // As just inserted, so an update of it passes validation.
+        solarPanel.setVersion(0);
+        return solarPanel;
+    }
+
+    public static String sectionName(int sectionNumber) {
+        return String.format("Section %03d", sectionNumber + 1);
+    }
+}
@@ -0,0 +1,95 @@
+package learn.solarfarm.loadtest;
+
+import learn.solarfarm.benchmarks.SyntheticFarm;
+import learn.solarfarm.models.SolarPanel;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+
+/**
+ * Replaces everything in `section` and `solar_panel` with a production-sized farm: full 249 x 249 sections
+ * ("Section 001", "Section 002"...) with a mix of install years, materials, and tracking,
+ * built by SyntheticFarm. Panel ids start at 1 and follow the same order, which FarmLoadTest relies on.
+ *
+ * Create the database with database/production.sql first, then run:
+ *
+ *   DB_USERNAME=... DB_PASSWORD=... java -cp benchmarks/target/benchmarks.jar learn.solarfarm.loadtest.FarmGenerator \
+ *       [sections=100] [url=jdbc:mysql://localhost:3306/solar_farm?rewriteBatchedStatements=true]
+ *
+ * 100 sections is a little over 6.2 million panels.
+ */
+public class FarmGenerator {
+    // Rows per `executeBatch` call, which `rewriteBatchedStatements` sends as one multi-row insert.
+    private static final int BATCH_SIZE = 1000;
+    // Rows per transaction.
+    private static final int COMMIT_SIZE = 100_000;
+
+    public static void main(String[] args) throws SQLException {
+        int sections = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        String url = args.length > 1 ? args[1] : "jdbc:mysql://localhost:3306/solar_farm?rewriteBatchedStatements=true";
+        int count = Math.multiplyExact(sections, SyntheticFarm.GRID_SIZE * SyntheticFarm.GRID_SIZE);
+
+        final String sectionSql = "insert into section (name) values (?)";
+        final String sql = "insert into solar_panel (section_id, `row`, `column`, year_installed, material, is_tracking) " +
+                "values (?, ?, ?, ?, ?, ?)";
+
+        try (Connection connection = DriverManager.getConnection(url,
+                System.getenv("DB_USERNAME"), System.getenv("DB_PASSWORD"))) {
+
+            // Truncating also restarts auto increment, so ids line up with SyntheticFarm's.
+            // MySQL won't truncate a table another table's foreign key points at while checks are on.
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("set foreign_key_checks = 0");
+                statement.execute("truncate table solar_panel");
+                statement.execute("truncate table section");
+                statement.execute("set foreign_key_checks = 1");
+            }
+
+            int[] sectionIds = new int[sections];
+            try (PreparedStatement statement = connection.prepareStatement(sectionSql, Statement.RETURN_GENERATED_KEYS)) {
+                for (int i = 0; i < sections; i++) {
+                    statement.setString(1, SyntheticFarm.sectionName(i));
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    for (int i = 0; i < sections && keys.next(); i++) {
+                        sectionIds[i] = keys.getInt(1);
+                    }
+                }
+            }
+
+            connection.setAutoCommit(false);
+            Random random = new Random(42);
+            long start = System.nanoTime();
+
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                for (int i = 0; i < count; i++) {
+                    SolarPanel solarPanel = SyntheticFarm.solarPanel(i, random);
+                    statement.setInt(1, sectionIds[i / (SyntheticFarm.GRID_SIZE * SyntheticFarm.GRID_SIZE)]);
+                    statement.setInt(2, solarPanel.getRow());
+                    statement.setInt(3, solarPanel.getColumn());
+                    statement.setInt(4, solarPanel.getYearInstalled());
+                    statement.setString(5, solarPanel.getMaterial().toString());
+                    statement.setBoolean(6, solarPanel.isTracking());
+                    statement.addBatch();
+
+                    int added = i + 1;
+                    if (added % BATCH_SIZE == 0 || added == count) {
+                        statement.executeBatch();
+                    }
+                    if (added % COMMIT_SIZE == 0 || added == count) {
+                        connection.commit();
+                        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+                        System.out.printf("%,12d / %,d panels  %,10.0f panels/s%n", added, count, added / seconds);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package learn.solarfarm.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import learn.solarfarm.benchmarks.SyntheticFarm;
+import learn.solarfarm.models.SolarPanel;
+import learn.solarfarm.models.SolarPanelCursor;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Drives a mix of reads and writes at every SolarPanelController endpoint, with a fixed number
+ * of requests in flight, and reports throughput and latency percentiles per endpoint.
+ *
+ * Fill the database with FarmGenerator (using the same number of sections), start App on 8080, then run:
+ *
+ *   java -cp benchmarks/target/benchmarks.jar learn.solarfarm.loadtest.FarmLoadTest \
+ *       [writePercent=10] [concurrency=64] [seconds=60] [sections=100] [exports=false]
+ *
+ * Updates and upserts change farm panels. Creates and deletes only touch panels in this run's own
+ * "Load Test" sections, so runs can be repeated without generating the farm again.
+ * `exports=true` adds the unpaged list and the NDJSON stream, each of which returns the whole farm.
+ */
+public class FarmLoadTest {
+    private static final String BASE_URL = "http://localhost:8080/api/solarpanel";
+    private static final int CELLS = SyntheticFarm.GRID_SIZE * SyntheticFarm.GRID_SIZE;
+    private static final int PAGE_SIZE = 100;
+    private static final int BATCH_SIZE = 100;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private final int farmSize;
+    private final List<Endpoint> reads = new ArrayList<>();
+    private final List<Endpoint> writes = new ArrayList<>();
+
+    // A new name per run, so creates never collide with an earlier run's panels.
+    private final String loadTestSection = "Load Test " + Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicInteger nextLoadTestCell = new AtomicInteger();
+    private final Queue<Integer> createdIds = new ConcurrentLinkedQueue<>();
+
+    private final Map<String, LatencyRecorder> recorders = new ConcurrentHashMap<>();
+    private volatile LatencyRecorder total;
+
+    public static void main(String[] args) throws InterruptedException {
+        int writePercent = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 60;
+        int sections = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+        boolean exports = args.length > 4 && Boolean.parseBoolean(args[4]);
+
+        FarmLoadTest loadTest = new FarmLoadTest(sections, exports);
+
+        // Warm up the server (JIT, connection pool, caches) before measuring.
+        loadTest.run(writePercent, concurrency, Math.max(seconds / 5, 1));
+        LatencyRecorder total = loadTest.run(writePercent, concurrency, seconds);
+
+        System.out.printf("%d%% writes, %d in flight, %d s, %d sections%n", writePercent, concurrency, seconds, sections);
+        for (Endpoint endpoint : loadTest.endpoints()) {
+            LatencyRecorder recorder = loadTest.recorders.get(endpoint.name);
+            if (recorder != null) {
+                System.out.println(recorder.summary(seconds));
+            }
+        }
+        System.out.println(total.summary(seconds));
+    }
+
+    FarmLoadTest(int sections, boolean exports) {
+        this.farmSize = Math.multiplyExact(sections, CELLS);
+
+        reads.add(new Endpoint("GET /{id}", 50, this::findById));
+        reads.add(new Endpoint("GET ?limit&cursor", 25, this::findPage));
+        // Every section is a full grid, so each of these returns 62,001 panels.
+        reads.add(new Endpoint("GET /section/{section}", 5, this::findBySection));
+        if (exports) {
+            reads.add(new Endpoint("GET", 1, () -> send("GET", get(""), HttpResponse.BodyHandlers.discarding())));
+            reads.add(new Endpoint("GET /stream", 1,
+                    () -> send("GET /stream", get("/stream"), HttpResponse.BodyHandlers.discarding())));
+        }
+
+        writes.add(new Endpoint("POST", 30, this::create));
+        writes.add(new Endpoint("POST /batch", 5, this::createAll));
+        writes.add(new Endpoint("PUT /{id}", 30, this::update));
+        writes.add(new Endpoint("PUT /upsert", 20, this::upsert));
+        writes.add(new Endpoint("PUT /upsert/batch", 5, this::upsertAll));
+        writes.add(new Endpoint("DELETE /{id}", 10, this::delete));
+    }
+
+    LatencyRecorder run(int writePercent, int concurrency, int seconds) throws InterruptedException {
+        recorders.clear();
+        total = new LatencyRecorder("total");
+        Semaphore inFlight = new Semaphore(concurrency);
+        long end = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+
+        while (System.nanoTime() < end) {
+            inFlight.acquire();
+            Random random = ThreadLocalRandom.current();
+            Endpoint endpoint = pick(random.nextInt(100) < writePercent ? writes : reads, random);
+            endpoint.request.get().whenComplete((result, ex) -> inFlight.release());
+        }
+
+        // Let the requests that are still in flight finish.
+        inFlight.acquire(concurrency);
+        return total;
+    }
+
+    List<Endpoint> endpoints() {
+        List<Endpoint> result = new ArrayList<>(reads);
+        result.addAll(writes);
+        return result;
+    }
+
+    private CompletableFuture<?> findById() {
+        return send("GET /{id}", get("/" + (randomFarmIndex() + 1)), HttpResponse.BodyHandlers.discarding());
+    }
+
+    private CompletableFuture<?> findPage() {
+        // Start anywhere in the farm, keyset paging makes every page cost the same.
+        SolarPanel after = SyntheticFarm.solarPanel(randomFarmIndex(), ThreadLocalRandom.current());
+        String cursor = URLEncoder.encode(SolarPanelCursor.of(after).encode(), StandardCharsets.UTF_8);
+        return send("GET ?limit&cursor", get("?limit=" + PAGE_SIZE + "&cursor=" + cursor),
+                HttpResponse.BodyHandlers.discarding());
+    }
+
+    private CompletableFuture<?> findBySection() {
+        String section = SyntheticFarm.sectionName(randomFarmIndex() / CELLS);
+        return send("GET /section/{section}",
+                get("/section/" + URLEncoder.encode(section, StandardCharsets.UTF_8).replace("+", "%20")),
+                HttpResponse.BodyHandlers.discarding());
+    }
+
+    private CompletableFuture<?> create() {
+        return send("POST", post("", newLoadTestPanel()), HttpResponse.BodyHandlers.ofString())
+                .thenAccept(response -> {
+                    if (response.statusCode() == 201) {
+                        createdIds.add(read(response.body()).get("id").asInt());
+                    }
+                });
+    }
+
+    private CompletableFuture<?> createAll() {
+        List<SolarPanel> solarPanels = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            solarPanels.add(newLoadTestPanel());
+        }
+        return send("POST /batch", post("/batch", solarPanels), HttpResponse.BodyHandlers.ofString())
+                .thenAccept(response -> {
+                    if (response.statusCode() == 201) {
+                        read(response.body()).get("ids").forEach(id -> createdIds.add(id.asInt()));
+                    }
+                });
+    }
+
+    private CompletableFuture<?> update() {
+        int id = randomFarmIndex() + 1;
+        // Read the panel first (not measured) so the update carries its current version.
+        // A 409 means another request updated it in between.
+        return client.sendAsync(get("/" + id), HttpResponse.BodyHandlers.ofString())
+                .thenCompose(response -> {
+                    if (response.statusCode() != 200) {
+                        return CompletableFuture.<HttpResponse<Void>>completedFuture(null);
+                    }
+                    ObjectNode solarPanel = (ObjectNode) read(response.body());
+                    solarPanel.put("yearInstalled", 1990 + ThreadLocalRandom.current().nextInt(33));
+                    return send("PUT /{id}", put("/" + id, solarPanel), HttpResponse.BodyHandlers.discarding());
+                });
+    }
+
+    private CompletableFuture<?> upsert() {
+        SolarPanel solarPanel = SyntheticFarm.solarPanel(randomFarmIndex(), ThreadLocalRandom.current());
+        solarPanel.setId(0);
+        return send("PUT /upsert", put("/upsert", solarPanel), HttpResponse.BodyHandlers.discarding());
+    }
+
+    private CompletableFuture<?> upsertAll() {
+        Random random = ThreadLocalRandom.current();
+        int start = Math.min(randomFarmIndex(), farmSize - BATCH_SIZE);
+        List<SolarPanel> solarPanels = new ArrayList<>(BATCH_SIZE);
+        for (int index = Math.max(start, 0); index < Math.min(start + BATCH_SIZE, farmSize); index++) {
+            SolarPanel solarPanel = SyntheticFarm.solarPanel(index, random);
+            solarPanel.setId(0);
+            solarPanels.add(solarPanel);
+        }
+        return send("PUT /upsert/batch", put("/upsert/batch", solarPanels), HttpResponse.BodyHandlers.discarding());
+    }
+
+    private CompletableFuture<?> delete() {
+        Integer id = createdIds.poll();
+        if (id == null) {
+            // Nothing of ours to delete yet.
+            return create();
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(BASE_URL + "/" + id)).DELETE().build();
+        return send("DELETE /{id}", request, HttpResponse.BodyHandlers.discarding());
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> send(String name, HttpRequest request,
+                                                        HttpResponse.BodyHandler<T> bodyHandler) {
+        LatencyRecorder recorder = recorders.computeIfAbsent(name, LatencyRecorder::new);
+        LatencyRecorder all = total;
+        long start = System.nanoTime();
+        return client.sendAsync(request, bodyHandler)
+                .whenComplete((response, ex) -> {
+                    long nanos = System.nanoTime() - start;
+                    boolean success = ex == null && response.statusCode() < 500;
+                    recorder.record(nanos, success);
+                    all.record(nanos, success);
+                });
+    }
+
+    private SolarPanel newLoadTestPanel() {
+        int cell = nextLoadTestCell.getAndIncrement();
+        SolarPanel solarPanel = SyntheticFarm.solarPanel(cell, ThreadLocalRandom.current());
+        solarPanel.setId(0);
+        solarPanel.setSection(loadTestSection + " " + (cell / CELLS + 1));
+        return solarPanel;
+    }
+
+    private int randomFarmIndex() {
+        return ThreadLocalRandom.current().nextInt(farmSize);
+    }
+
+    private static HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(BASE_URL + path)).GET().build();
+    }
+
+    private HttpRequest post(String path, Object body) {
+        return HttpRequest.newBuilder(URI.create(BASE_URL + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(write(body)))
+                .build();
+    }
+
+    private HttpRequest put(String path, Object body) {
+        return HttpRequest.newBuilder(URI.create(BASE_URL + path))
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofByteArray(write(body)))
+                .build();
+    }
+
+    private byte[] write(Object body) {
+        try {
+            return mapper.writeValueAsBytes(body);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private JsonNode read(String body) {
+        try {
+            return mapper.readTree(body);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static Endpoint pick(List<Endpoint> endpoints, Random random) {
+        int totalWeight = 0;
+        for (Endpoint endpoint : endpoints) {
+            totalWeight += endpoint.weight;
+        }
+        int target = random.nextInt(totalWeight);
+        for (Endpoint endpoint : endpoints) {
+            target -= endpoint.weight;
+            if (target < 0) {
+                return endpoint;
+            }
+        }
+        return endpoints.get(endpoints.size() - 1);
+    }
+
+    private static final class Endpoint {
+        final String name;
+        final int weight;
+        final Supplier<CompletableFuture<?>> request;
+
+        Endpoint(String name, int weight, Supplier<CompletableFuture<?>> request) {
+            this.name = name;
+            this.weight = weight;
+            this.request = request;
+        }
+    }
+}
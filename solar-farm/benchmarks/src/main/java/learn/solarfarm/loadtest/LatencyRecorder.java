@@ -0,0 +1,49 @@
+package learn.solarfarm.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Collects request latencies and reports throughput and percentiles.
+ * Thread safe: record() is synchronized, which is cheap next to an HTTP round trip.
+ */
+public class LatencyRecorder {
+    private final String name;
+    private long[] latencies = new long[1 << 16];
+    private int count;
+    private int errors;
+
+    public LatencyRecorder(String name) {
+        this.name = name;
+    }
+
+    public synchronized void record(long nanos, boolean success) {
+        if (!success) {
+            errors++;
+        }
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = nanos;
+    }
+
+    public synchronized int getCount() {
+        return count;
+    }
+
+    public synchronized String summary(double elapsedSeconds) {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        return String.format("%-40s %8d req %8.1f req/s  p50 %7.2f ms  p95 %7.2f ms  p99 %7.2f ms  max %7.2f ms  errors %d",
+                name, count, count / elapsedSeconds,
+                percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99),
+                percentile(sorted, 1.0), errors);
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1_000_000.0;
+    }
+}
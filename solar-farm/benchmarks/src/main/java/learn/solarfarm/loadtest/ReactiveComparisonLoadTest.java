@@ -0,0 +1,66 @@
+package learn.solarfarm.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Drives the same read requests at the blocking (JdbcTemplate) and reactive (R2DBC) stacks
+ * with a fixed number of requests in flight, one stack after the other.
+ *
+ * Start both servers first (App on 8080, ReactiveApp on 8081), then run:
+ *
+ *   java -cp benchmarks/target/benchmarks.jar learn.solarfarm.loadtest.ReactiveComparisonLoadTest \
+ *       [concurrency=200] [seconds=30] [maxId=5]
+ */
+public class ReactiveComparisonLoadTest {
+
+    public static void main(String[] args) throws InterruptedException {
+        int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        int maxId = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        String[] stacks = {
+                "http://localhost:8080/api/solarpanel",
+                "http://localhost:8081/api/reactive/solarpanel"
+        };
+
+        for (String baseUrl : stacks) {
+            // Warm up both servers before measuring.
+            run(client, baseUrl, concurrency, Math.max(seconds / 5, 1), maxId);
+            LatencyRecorder recorder = run(client, baseUrl, concurrency, seconds, maxId);
+            System.out.println(recorder.summary(seconds));
+        }
+    }
+
+    static LatencyRecorder run(HttpClient client, String baseUrl, int concurrency, int seconds, int maxId)
+            throws InterruptedException {
+        LatencyRecorder recorder = new LatencyRecorder("GET " + baseUrl + "/{id}");
+        Semaphore inFlight = new Semaphore(concurrency);
+        long end = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        int next = 0;
+
+        while (System.nanoTime() < end) {
+            inFlight.acquire();
+            int id = next++ % maxId + 1;
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/" + id)).GET().build();
+            long start = System.nanoTime();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, ex) -> {
+                        recorder.record(System.nanoTime() - start, ex == null && response.statusCode() < 500);
+                        inFlight.release();
+                    });
+        }
+
+        // Let the requests that are still in flight finish.
+        inFlight.acquire(concurrency);
+        return recorder;
+    }
+}
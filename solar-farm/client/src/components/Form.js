@@ -15,6 +15,9 @@ function Form() {
   const [yearInstalled, setYearInstalled] = useState('');
   const [material, setMaterial] = useState('POLY_SI');
   const [tracking, setTracking] = useState(false);
+  // The version the panel was read at. The server rejects the update (409)
+  // if someone else changed it since.
+  const [version, setVersion] = useState(0);
 
   const resetState = () => {
     setSection('');
@@ -23,6 +26,7 @@ function Form() {
     setYearInstalled('');
     setMaterial('POLY_SI');
     setTracking(false);
+    setVersion(0);
   };
 
   useEffect(() => {
@@ -37,6 +41,7 @@ function Form() {
               setYearInstalled(panel.yearInstalled);
               setMaterial(panel.material);
               setTracking(panel.tracking);
+              setVersion(panel.version);
             });
           } else {
             // is it a 404?
@@ -68,6 +73,7 @@ function Form() {
 
     if (params.id !== undefined) {
       newPanel.id = params.id;
+      newPanel.version = version;
       url = `http://localhost:8080/api/solarpanel/${params.id}`;
       method = 'PUT';
     } else {
@@ -7,11 +7,14 @@ import {
   Routes,
   Route,
 } from 'react-router-dom';
+import { rest } from 'msw';
 import server from '../test/server';
 
 import Form from './Form';
 import List from './List';
 
+const PANEL_URL = 'http://localhost:8080/api/solarpanel/:panelId';
+
 function LocationDisplay() {
   const location = useLocation();
   return <div data-testid="location-display">{location.pathname}</div>;
@@ -103,4 +106,45 @@ describe('Form', () => {
     expect(screen.getByLabelText(/year installed/i)).toHaveValue(null);
     expect(screen.getByLabelText(/tracking/i)).not.toBeChecked();
   });
+
+  it('should send the version it read and show the conflict when the panel changed', async () => {
+    const user = userEvent.setup();
+    let sentPanel = null;
+    server.use(
+      rest.get(PANEL_URL, (_req, res, ctx) => {
+        return res(
+          ctx.json({
+            id: 3,
+            section: 'Flats',
+            row: 1,
+            column: 1,
+            yearInstalled: 2017,
+            material: 'POLY_SI',
+            tracking: true,
+            version: 2,
+          })
+        );
+      }),
+      rest.put(PANEL_URL, async (req, res, ctx) => {
+        sentPanel = await req.json();
+        return res(
+          ctx.status(409),
+          ctx.json(['SolarPanel id 3 has changed since version 2 was read.'])
+        );
+      })
+    );
+    renderComponent('/edit/3');
+
+    await waitFor(() => {
+      expect(screen.getByLabelText(/section/i)).toHaveValue('Flats');
+    });
+
+    await user.click(screen.getByRole('button', { name: /save/i }));
+
+    expect(
+      await screen.findByText(/has changed since version 2/i)
+    ).toBeInTheDocument();
+    expect(sentPanel.version).toBe(2);
+    expect(screen.getByTestId('location-display')).toHaveTextContent('/edit/3');
+  });
 });
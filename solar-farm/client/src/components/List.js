@@ -1,16 +1,78 @@
 import { useEffect, useState } from 'react';
 import { Link } from 'react-router-dom';
 
+const API_URL = 'http://localhost:8080/api/solarpanel';
+
+// Same order as the API: section (ignoring case), row, then column.
+const byLocation = (a, b) =>
+  a.section.localeCompare(b.section, undefined, { sensitivity: 'accent' }) ||
+  a.row - b.row ||
+  a.column - b.column;
+
+// Apply one change from the change feed to the list.
+const applyChange = (panels, change) => {
+  const others = panels.filter((panel) => panel.id !== change.solarPanelId);
+  if (change.changeType === 'DELETED') {
+    return others;
+  }
+  return [...others, change.solarPanel].sort(byLocation);
+};
+
 function List() {
   const [panels, setPanels] = useState(null);
 
-  const loadPanels = () => {
-    fetch('http://localhost:8080/api/solarpanel')
-      .then((response) => response.json())
-      .then((payload) => setPanels(payload));
-  };
+  useEffect(() => {
+    // Changes that arrive while the list is loading are applied once it's there.
+    let pending = [];
+    let loaded = false;
+    let loading = false;
+
+    const loadPanels = () => {
+      loading = true;
+      loaded = false;
+      pending = [];
+      fetch(API_URL)
+        .then((response) => response.json())
+        .then((payload) => {
+          setPanels(pending.reduce(applyChange, payload));
+          pending = [];
+          loaded = true;
+        });
+    };
+
+    if (typeof EventSource === 'undefined') {
+      loadPanels();
+      return undefined;
+    }
+
+    // Subscribe to changes (including other people's edits) before loading,
+    // so nothing between the two is missed.
+    const source = new EventSource(`${API_URL}/changes`);
+    source.addEventListener('ready', () => {
+      // Reconnects send `ready` again, but the list is already up to date.
+      if (!loading) {
+        loadPanels();
+      }
+    });
+    source.addEventListener('change', (evt) => {
+      const change = JSON.parse(evt.data);
+      if (loaded) {
+        setPanels((current) => applyChange(current, change));
+      } else {
+        pending.push(change);
+      }
+    });
+    // We were away too long to catch up, start over.
+    source.addEventListener('reset', loadPanels);
+    source.onerror = () => {
+      // Still show the list if the feed isn't available.
+      if (!loading) {
+        loadPanels();
+      }
+    };
 
-  useEffect(loadPanels, []); // call my callback function when the component loads
+    return () => source.close();
+  }, []); // call my callback function when the component loads
 
   if (panels === null) {
     return <p>Loading...</p>;
@@ -3,20 +3,55 @@ drop database if exists solar_farm;
 create database solar_farm;
 use solar_farm;
 
+-- One row per section. Panels store the 4 byte section_id instead of repeating the name.
+create table section (
+	section_id int primary key auto_increment,
+	name varchar(100) not null
+);
+
+-- Names compare without regard to case (like the default collation), so "flats" is the "Flats" section.
+create unique index uq_section_name
+	on section (name);
+
 create table solar_panel (
 	id int primary key auto_increment,
-	section varchar(100) not null,
+	section_id int not null,
 	`row` int not null,
     `column` int not null,
     year_installed int not null,
     material varchar(10) not null,
-    is_tracking bit not null
+    is_tracking bit not null,
+    -- Bumped by every update, so concurrent edits can be detected (optimistic concurrency).
+    version int not null default 0,
+    constraint fk_solar_panel_section_id
+		foreign key (section_id)
+		references section(section_id)
 );
 
-insert into solar_panel (section, `row`, `column`, year_installed, material, is_tracking)
+-- Enforces the natural key, supports the (`row`, `column`, id) ordering within a section used for paging,
+-- and serves rectangular range queries (one seek per row of the rectangle).
+create unique index uq_solar_panel_section_row_column
+	on solar_panel (section_id, `row`, `column`);
+
+-- Backs the filter API: equality on material and is_tracking, then a range on year_installed,
+-- only reads matching entries. Filters with a section use the unique index above.
+create index ix_solar_panel_material_tracking_year
+	on solar_panel (material, is_tracking, year_installed);
+
+-- Year-only filters, and the year_installed, id sort (InnoDB appends id to the index),
+-- so `limit` stops after reading that many entries.
+create index ix_solar_panel_year_installed
+	on solar_panel (year_installed);
+
+insert into section (name)
+	values
+    ('The Ridge'),
+    ('Flats');
+
+insert into solar_panel (section_id, `row`, `column`, year_installed, material, is_tracking)
 	values
-    ('The Ridge', 1, 1, 2020, 'POLY_SI', true),
-    ('The Ridge', 1, 2, 2019, 'MONO_SI', true),
-    ('Flats', 1, 1, 2017, 'A_SI', true),
-    ('Flats', 2, 6, 2017, 'CD_TE', true),
-    ('Flats', 3, 7, 2000, 'CIGS', false);
+    (1, 1, 1, 2020, 'POLY_SI', true),
+    (1, 1, 2, 2019, 'MONO_SI', true),
+    (2, 1, 1, 2017, 'A_SI', true),
+    (2, 2, 6, 2017, 'CD_TE', true),
+    (2, 3, 7, 2000, 'CIGS', false);
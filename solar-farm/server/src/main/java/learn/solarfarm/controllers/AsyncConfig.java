@@ -0,0 +1,34 @@
+package learn.solarfarm.controllers;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * The executor that runs repository work when `solarfarm.web.mode=async`.
+ * Size it close to the connection pool: more threads than connections just wait on the pool.
+ */
+@Configuration
+@ConditionalOnProperty(name = "solarfarm.web.mode", havingValue = "async")
+public class AsyncConfig {
+
+    @Bean
+    public ThreadPoolTaskExecutor jdbcExecutor(@Value("${solarfarm.async.pool-size:10}") int poolSize,
+                                               @Value("${solarfarm.async.queue-capacity:200}") int queueCapacity,
+                                               MeterRegistry registry) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        // When the queue is full, new work is rejected (503) instead of piling up.
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("jdbc-");
+        executor.initialize();
+
+        ExecutorServiceMetrics.monitor(registry, executor.getThreadPoolExecutor(), "jdbcExecutor");
+        return executor;
+    }
+}
@@ -0,0 +1,39 @@
+package learn.solarfarm.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Binary alternatives to JSON, picked with the Accept header:
+ * `application/x-jackson-smile` or `application/cbor`.
+ * Spring MVC adds the CBOR converter on its own once jackson-dataformat-cbor is on the classpath.
+ */
+@Configuration
+public class BinaryFormatConfig {
+    public static final String SMILE_MEDIA_TYPE = "application/x-jackson-smile";
+    public static final String CBOR_MEDIA_TYPE = "application/cbor";
+
+    /**
+     * Replaces the default Smile converter (Spring Boot swaps converter beans in by type).
+     */
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter() {
+        return new MappingJackson2SmileHttpMessageConverter(smileObjectMapper());
+    }
+
+    public static ObjectMapper smileObjectMapper() {
+        // Nearly every panel repeats one of a few section names. With shared string values,
+        // Smile writes each name once and a short back reference after that.
+        SmileFactory factory = SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build();
+        return Jackson2ObjectMapperBuilder.smile()
+                .factory(factory)
+                .build();
+    }
+}
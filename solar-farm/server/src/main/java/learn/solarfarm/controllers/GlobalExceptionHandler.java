@@ -1,20 +1,47 @@
 package learn.solarfarm.controllers;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
+import java.util.concurrent.TimeoutException;
+
 @ControllerAdvice
 public class GlobalExceptionHandler {
+    private static final Logger logger = LoggerFactory.getLogger(GlobalExceptionHandler.class);
+
+    private final MeterRegistry registry;
+
+    public GlobalExceptionHandler(MeterRegistry registry) {
+        this.registry = registry;
+    }
 
     // TODO what other exception types should we handle?
 
+    // The async executor or group commit queue is saturated, or a request took too long
+    // (see SolarPanelAsyncController and SolarPanelGroupCommitRepository).
+
+    @ExceptionHandler({TaskRejectedException.class, TimeoutException.class, QueryTimeoutException.class})
+    public ResponseEntity<ErrorResponse> handleOverload(Exception ex) {
+        registry.counter("solarfarm.exceptions", "type", ex.getClass().getSimpleName()).increment();
+
+        return new ResponseEntity<>(
+                new ErrorResponse("Sorry, the server is busy. Please try again."),
+                HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     // "Catch all" handler
 
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorResponse> handleException(Exception ex) {
-        // TODO log this exception
+        logger.error("Unhandled exception.", ex);
+        registry.counter("solarfarm.exceptions", "type", ex.getClass().getSimpleName()).increment();
 
         return new ResponseEntity<>(
                 new ErrorResponse("Sorry, something unexpected went wrong."),
@@ -0,0 +1,53 @@
+package learn.solarfarm.controllers;
+
+import learn.solarfarm.domain.SolarFarmSnapshotTracker;
+import learn.solarfarm.domain.SolarFarmStatistics;
+import learn.solarfarm.domain.SolarFarmStatisticsTracker;
+import learn.solarfarm.models.Material;
+import learn.solarfarm.models.SolarPanelFilter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/solarpanel/stats")
+@CrossOrigin
+public class SolarFarmStatisticsController {
+    private final SolarFarmStatisticsTracker tracker;
+    private final SolarFarmSnapshotTracker snapshotTracker;
+
+    public SolarFarmStatisticsController(SolarFarmStatisticsTracker tracker, SolarFarmSnapshotTracker snapshotTracker) {
+        this.tracker = tracker;
+        this.snapshotTracker = snapshotTracker;
+    }
+
+    @GetMapping
+    public SolarFarmStatistics findStatistics() {
+        return tracker.getStatistics();
+    }
+
+    // Counts panels matching any mix of the /api/solarpanel/filter criteria from the in-memory snapshot.
+    @GetMapping("/count")
+    public ResponseEntity<?> count(@RequestParam(required = false) String section,
+                                   @RequestParam(required = false) String material,
+                                   @RequestParam(required = false) Integer yearInstalledMin,
+                                   @RequestParam(required = false) Integer yearInstalledMax,
+                                   @RequestParam(required = false) Boolean tracking) {
+        SolarPanelFilter filter = new SolarPanelFilter();
+        filter.setSection(section == null || section.isBlank() ? null : section);
+        filter.setYearInstalledMin(yearInstalledMin);
+        filter.setYearInstalledMax(yearInstalledMax);
+        filter.setTracking(tracking);
+
+        if (material != null) {
+            filter.setMaterial(Material.parse(material));
+            if (filter.getMaterial() == null) {
+                return new ResponseEntity<>(List.of(String.format("Unknown `material`: %s.", material)),
+                        HttpStatus.BAD_REQUEST); // 400
+            }
+        }
+        return ResponseEntity.ok(snapshotTracker.getSnapshot().count(filter));
+    }
+}
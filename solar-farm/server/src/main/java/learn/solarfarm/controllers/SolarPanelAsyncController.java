@@ -0,0 +1,149 @@
+package learn.solarfarm.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import learn.solarfarm.domain.SolarPanelBatchResult;
+import learn.solarfarm.domain.SolarPanelService;
+import learn.solarfarm.domain.SolarPanelVersions;
+import learn.solarfarm.models.SolarPanel;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.servlet.http.HttpServletRequest;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Serves the same endpoints as SolarPanelController, but runs each one on the
+ * `jdbcExecutor` so Tomcat's request threads are released while JDBC work runs.
+ * Turn it on with `solarfarm.web.mode=async`.
+ */
+@RestController
+@RequestMapping("/api/solarpanel")
+@CrossOrigin
+@ConditionalOnProperty(name = "solarfarm.web.mode", havingValue = "async")
+public class SolarPanelAsyncController {
+    // The sync controller does the actual work, so both modes behave the same.
+    private final SolarPanelController delegate;
+    private final SolarPanelVersions versions;
+    private final ThreadPoolTaskExecutor executor;
+    private final Duration timeout;
+
+    public SolarPanelAsyncController(SolarPanelService service, ObjectMapper objectMapper, SolarPanelVersions versions,
+                                     @Qualifier("jdbcExecutor") ThreadPoolTaskExecutor executor,
+                                     @Value("${solarfarm.async.timeout:5s}") Duration timeout,
+                                     @Value("${solarfarm.stream.timeout:30m}") Duration streamTimeout) {
+        this.delegate = new SolarPanelController(service, objectMapper, versions, streamTimeout);
+        this.versions = versions;
+        this.executor = executor;
+        this.timeout = timeout;
+    }
+
+    @GetMapping
+    public CompletableFuture<ResponseEntity<?>> findAll(@RequestParam(required = false) Integer limit,
+                                                        @RequestParam(required = false) String cursor,
+                                                        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // Answer a 304 on the request thread instead of queueing it.
+        String eTag = versions.getAllETag();
+        if (SolarPanelController.isNotModified(ifNoneMatch, eTag)) {
+            return CompletableFuture.completedFuture(SolarPanelController.notModified(eTag));
+        }
+        return submit(() -> delegate.findAll(limit, cursor, ifNoneMatch));
+    }
+
+    // Already asynchronous, so there's nothing to hand off.
+    @GetMapping(value = "/stream", produces = SolarPanelController.NDJSON_MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> stream(HttpServletRequest request) {
+        return delegate.stream(request);
+    }
+
+    @GetMapping("/section/{section}")
+    public CompletableFuture<ResponseEntity<List<SolarPanel>>> findBySection(@PathVariable String section,
+                                                                             @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String eTag = versions.getSectionETag(section);
+        if (SolarPanelController.isNotModified(ifNoneMatch, eTag)) {
+            return CompletableFuture.completedFuture(SolarPanelController.notModified(eTag));
+        }
+        return submit(() -> delegate.findBySection(section, ifNoneMatch));
+    }
+
+    @GetMapping("/section/{section}/range")
+    public CompletableFuture<ResponseEntity<?>> findByRange(@PathVariable String section,
+                                                            @RequestParam(defaultValue = "1") int rowMin,
+                                                            @RequestParam(defaultValue = "" + (SolarPanelService.MAX_ROW_COLUMN - 1)) int rowMax,
+                                                            @RequestParam(defaultValue = "1") int columnMin,
+                                                            @RequestParam(defaultValue = "" + (SolarPanelService.MAX_ROW_COLUMN - 1)) int columnMax,
+                                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // Invalid ranges go to the delegate, which answers with a 400.
+        String eTag = versions.getSectionETag(section);
+        if (rowMin <= rowMax && columnMin <= columnMax && SolarPanelController.isNotModified(ifNoneMatch, eTag)) {
+            return CompletableFuture.completedFuture(SolarPanelController.notModified(eTag));
+        }
+        return submit(() -> delegate.findByRange(section, rowMin, rowMax, columnMin, columnMax, ifNoneMatch));
+    }
+
+    @GetMapping("/filter")
+    public CompletableFuture<ResponseEntity<?>> findByFilter(@RequestParam(required = false) String section,
+                                                             @RequestParam(required = false) String material,
+                                                             @RequestParam(required = false) Integer yearInstalledMin,
+                                                             @RequestParam(required = false) Integer yearInstalledMax,
+                                                             @RequestParam(required = false) Boolean tracking,
+                                                             @RequestParam(required = false) String sort,
+                                                             @RequestParam(required = false) Integer limit,
+                                                             @RequestParam(required = false) String cursor,
+                                                             @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return submit(() -> delegate.findByFilter(section, material, yearInstalledMin, yearInstalledMax,
+                tracking, sort, limit, cursor, ifNoneMatch));
+    }
+
+    @GetMapping("/{id}")
+    public CompletableFuture<ResponseEntity<SolarPanel>> findById(@PathVariable int id) {
+        return submit(() -> delegate.findById(id));
+    }
+
+    @PostMapping
+    public CompletableFuture<ResponseEntity<?>> create(@RequestBody SolarPanel solarPanel) {
+        return submit(() -> delegate.create(solarPanel));
+    }
+
+    @PostMapping("/batch")
+    public CompletableFuture<ResponseEntity<SolarPanelBatchResult>> createAll(@RequestBody List<SolarPanel> solarPanels) {
+        return submit(() -> delegate.createAll(solarPanels));
+    }
+
+    @PutMapping("/{id}")
+    public CompletableFuture<ResponseEntity<?>> update(@PathVariable int id, @RequestBody SolarPanel solarPanel) {
+        return submit(() -> delegate.update(id, solarPanel));
+    }
+
+    @PutMapping("/upsert")
+    public CompletableFuture<ResponseEntity<?>> upsert(@RequestBody SolarPanel solarPanel) {
+        return submit(() -> delegate.upsert(solarPanel));
+    }
+
+    @PutMapping("/upsert/batch")
+    public CompletableFuture<ResponseEntity<SolarPanelBatchResult>> upsertAll(@RequestBody List<SolarPanel> solarPanels) {
+        return submit(() -> delegate.upsertAll(solarPanels));
+    }
+
+    @DeleteMapping("/{id}")
+    public CompletableFuture<ResponseEntity<Void>> delete(@PathVariable int id) {
+        return submit(() -> delegate.delete(id));
+    }
+
+    // A full queue throws TaskRejectedException right away. A slow task completes the
+    // future with a TimeoutException (the JDBC call itself keeps running until it finishes).
+    // GlobalExceptionHandler turns both into a 503.
+    private <T> CompletableFuture<T> submit(Supplier<T> work) {
+        return CompletableFuture.supplyAsync(work, executor)
+                .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+}
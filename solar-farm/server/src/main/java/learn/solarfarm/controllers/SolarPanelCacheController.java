@@ -0,0 +1,23 @@
+package learn.solarfarm.controllers;
+
+import learn.solarfarm.domain.SolarPanelCache;
+import learn.solarfarm.domain.SolarPanelCacheStatistics;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/solarpanel/cache")
+@CrossOrigin
+public class SolarPanelCacheController {
+    private final SolarPanelCache cache;
+
+    public SolarPanelCacheController(SolarPanelCache cache) {
+        this.cache = cache;
+    }
+
+    @GetMapping("/stats")
+    public List<SolarPanelCacheStatistics> findStatistics() {
+        return cache.getStatistics();
+    }
+}
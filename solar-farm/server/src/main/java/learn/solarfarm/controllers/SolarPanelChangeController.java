@@ -0,0 +1,111 @@
+package learn.solarfarm.controllers;
+
+import learn.solarfarm.domain.SolarPanelChange;
+import learn.solarfarm.domain.SolarPanelChangeFeed;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Server-Sent Events for every solar panel change, so clients can apply deltas instead of re-fetching.
+ *
+ * A `ready` event comes first: fetch the panels after it, then apply the `change` events that follow.
+ * Each event's id is the server instance and its sequence number (e.g. `kx3f9a2b-42`). EventSource sends
+ * the last one back as `Last-Event-ID` when it reconnects (e.g. after the timeout), and the changes since then
+ * are replayed. A `reset` event means those changes are gone, or the id is from before a restart: reload
+ * everything. The stream then closes, and the reconnect picks up from the reset event's id.
+ */
+@RestController
+@RequestMapping("/api/solarpanel/changes")
+@CrossOrigin
+public class SolarPanelChangeController {
+    private final SolarPanelChangeFeed feed;
+    private final Duration timeout;
+
+    public SolarPanelChangeController(SolarPanelChangeFeed feed,
+                                      @Value("${solarfarm.changes.timeout:5m}") Duration timeout) {
+        this.feed = feed;
+        this.timeout = timeout;
+    }
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                @RequestParam(required = false) String after) throws IOException {
+        String resumeFrom = after != null ? after : lastEventId;
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+
+        long start;
+        if (resumeFrom == null) {
+            start = feed.getLastSequence();
+        } else {
+            Long sequence = parseSequence(resumeFrom);
+            if (sequence == null) {
+                // From before a restart (or not ours), so we can't tell what was missed.
+                emitter.send(SseEmitter.event()
+                        .name("reset")
+                        .id(eventId(feed.getLastSequence()))
+                        .data(""));
+                emitter.complete();
+                return emitter;
+            }
+            start = sequence;
+        }
+
+        emitter.send(SseEmitter.event()
+                .name("ready")
+                .id(eventId(start))
+                .data(""));
+
+        SolarPanelChangeFeed.Subscription subscription = feed.subscribe(start, new SolarPanelChangeFeed.Subscriber() {
+            @Override
+            public void onChanges(List<SolarPanelChange> changes) throws IOException {
+                for (SolarPanelChange change : changes) {
+                    emitter.send(SseEmitter.event()
+                            .name("change")
+                            .id(eventId(change.getSequence()))
+                            .data(change, MediaType.APPLICATION_JSON));
+                }
+            }
+
+            @Override
+            public void onMissed(long lastSequence) throws IOException {
+                emitter.send(SseEmitter.event()
+                        .name("reset")
+                        .id(eventId(lastSequence))
+                        .data(""));
+                emitter.complete();
+            }
+
+            @Override
+            public void onStalled() {
+                emitter.completeWithError(new IOException("Timed out sending changes"));
+            }
+        });
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(ex -> subscription.cancel());
+        return emitter;
+    }
+
+    private String eventId(long sequence) {
+        return feed.getInstance() + "-" + sequence;
+    }
+
+    // Null unless this instance handed out the id.
+    private Long parseSequence(String eventId) {
+        String[] parts = eventId.trim().split("-", 2);
+        if (parts.length != 2 || !parts[0].equals(feed.getInstance())) {
+            return null;
+        }
+        try {
+            return Long.valueOf(parts[1]);
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+}
@@ -1,33 +1,192 @@
 package learn.solarfarm.controllers;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import learn.solarfarm.domain.ResultType;
+import learn.solarfarm.domain.SolarPanelBatchResult;
+import learn.solarfarm.domain.SolarPanelPage;
 import learn.solarfarm.domain.SolarPanelResult;
 import learn.solarfarm.domain.SolarPanelService;
+import learn.solarfarm.domain.SolarPanelUpsertResult;
+import learn.solarfarm.domain.SolarPanelVersions;
+import learn.solarfarm.models.Material;
 import learn.solarfarm.models.SolarPanel;
+import learn.solarfarm.models.SolarPanelCursor;
+import learn.solarfarm.models.SolarPanelFilter;
+import learn.solarfarm.models.UpsertType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @RestController
 @RequestMapping("/api/solarpanel")
 @CrossOrigin
+@ConditionalOnProperty(name = "solarfarm.web.mode", havingValue = "sync", matchIfMissing = true)
 public class SolarPanelController {
+    public static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+
+    // How many panels to write between flushes when streaming.
+    private static final int STREAM_FLUSH_INTERVAL = 500;
+
     private final SolarPanelService service;
+    private final ObjectMapper objectMapper;
+    private final SolarPanelVersions versions;
+    private final Duration streamTimeout;
 
-    public SolarPanelController(SolarPanelService service) {
+    public SolarPanelController(SolarPanelService service, ObjectMapper objectMapper, SolarPanelVersions versions,
+                                @Value("${solarfarm.stream.timeout:30m}") Duration streamTimeout) {
         this.service = service;
+        this.objectMapper = objectMapper;
+        this.versions = versions;
+        this.streamTimeout = streamTimeout;
     }
 
     @GetMapping
-    public List<SolarPanel> findAll() {
-        return service.findAll();
+    public ResponseEntity<?> findAll(@RequestParam(required = false) Integer limit,
+                                     @RequestParam(required = false) String cursor,
+                                     @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // The tag covers the whole table, so it's good for every page too.
+        String eTag = versions.getAllETag();
+        if (isNotModified(ifNoneMatch, eTag)) {
+            return notModified(eTag);
+        }
+
+        // Without paging parameters, return every solar panel (the original behavior).
+        if (limit == null && cursor == null) {
+            return ResponseEntity.ok().eTag(eTag).body(service.findAll());
+        }
+
+        SolarPanelCursor after = SolarPanelCursor.decode(cursor);
+        if (cursor != null && after == null) {
+            return new ResponseEntity<>(List.of("Invalid `cursor`."), HttpStatus.BAD_REQUEST); // 400
+        }
+
+        SolarPanelPage page = service.findPage(after, limit == null ? SolarPanelService.MAX_PAGE_SIZE : limit);
+        return ResponseEntity.ok().eTag(eTag).body(page);
+    }
+
+    @GetMapping(value = "/stream", produces = NDJSON_MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> stream(HttpServletRequest request) {
+        // Exporting a large farm can take a while, far longer than other async requests should.
+        StreamingTimeoutConfig.setTimeout(request, streamTimeout);
+        StreamingResponseBody body = outputStream -> {
+            ObjectWriter writer = objectMapper.writerFor(SolarPanel.class)
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            AtomicInteger count = new AtomicInteger();
+
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                // Each panel goes on its own line, so skip Jackson's default root value separator.
+                generator.setRootValueSeparator(null);
+
+                // Write each panel as soon as it's read instead of building a List first.
+                service.streamAll(solarPanel -> {
+                    try {
+                        writer.writeValue(generator, solarPanel);
+                        generator.writeRaw('\n');
+                        // Flushing the first panel right away gets the first byte out quickly.
+                        if (count.getAndIncrement() % STREAM_FLUSH_INTERVAL == 0) {
+                            generator.flush();
+                        }
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            }
+        };
+        return new ResponseEntity<>(body, HttpStatus.OK);
     }
 
     @GetMapping("/section/{section}")
-    public List<SolarPanel> findBySection(@PathVariable String section) {
-        return service.findBySection(section);
+    public ResponseEntity<List<SolarPanel>> findBySection(@PathVariable String section,
+                                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String eTag = versions.getSectionETag(section);
+        if (isNotModified(ifNoneMatch, eTag)) {
+            return notModified(eTag);
+        }
+        return ResponseEntity.ok().eTag(eTag).body(service.findBySection(section));
+    }
+
+    @GetMapping("/section/{section}/range")
+    public ResponseEntity<?> findByRange(@PathVariable String section,
+                                         @RequestParam(defaultValue = "1") int rowMin,
+                                         @RequestParam(defaultValue = "" + (SolarPanelService.MAX_ROW_COLUMN - 1)) int rowMax,
+                                         @RequestParam(defaultValue = "1") int columnMin,
+                                         @RequestParam(defaultValue = "" + (SolarPanelService.MAX_ROW_COLUMN - 1)) int columnMax,
+                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (rowMin > rowMax || columnMin > columnMax) {
+            return new ResponseEntity<>(List.of("`rowMin` and `columnMin` cannot be greater than `rowMax` and `columnMax`."),
+                    HttpStatus.BAD_REQUEST); // 400
+        }
+
+        // A range only changes when its section does.
+        String eTag = versions.getSectionETag(section);
+        if (isNotModified(ifNoneMatch, eTag)) {
+            return notModified(eTag);
+        }
+        return ResponseEntity.ok().eTag(eTag).body(service.findByRange(section, rowMin, rowMax, columnMin, columnMax));
+    }
+
+    @GetMapping("/filter")
+    public ResponseEntity<?> findByFilter(@RequestParam(required = false) String section,
+                                          @RequestParam(required = false) String material,
+                                          @RequestParam(required = false) Integer yearInstalledMin,
+                                          @RequestParam(required = false) Integer yearInstalledMax,
+                                          @RequestParam(required = false) Boolean tracking,
+                                          @RequestParam(required = false) String sort,
+                                          @RequestParam(required = false) Integer limit,
+                                          @RequestParam(required = false) String cursor,
+                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        SolarPanelFilter filter = new SolarPanelFilter();
+        filter.setSection(section == null || section.isBlank() ? null : section);
+        filter.setYearInstalledMin(yearInstalledMin);
+        filter.setYearInstalledMax(yearInstalledMax);
+        filter.setTracking(tracking);
+
+        if (material != null) {
+            filter.setMaterial(Material.parse(material));
+            if (filter.getMaterial() == null) {
+                return new ResponseEntity<>(List.of(String.format("Unknown `material`: %s.", material)),
+                        HttpStatus.BAD_REQUEST); // 400
+            }
+        }
+        if ("yearInstalled".equalsIgnoreCase(sort)) {
+            filter.setSort(SolarPanelFilter.Sort.YEAR_INSTALLED);
+        } else if (sort != null && !"location".equalsIgnoreCase(sort)) {
+            return new ResponseEntity<>(List.of("`sort` must be `location` or `yearInstalled`."),
+                    HttpStatus.BAD_REQUEST); // 400
+        }
+
+        // Pages look like findAll's, each sorted and sought the way `sort` says.
+        // An empty `cursor` asks for the first page, leaving it out returns a plain list (the original behavior).
+        SolarPanelCursor after = SolarPanelCursor.decode(cursor);
+        if (cursor != null && !cursor.isBlank() && after == null) {
+            return new ResponseEntity<>(List.of("Invalid `cursor`."), HttpStatus.BAD_REQUEST); // 400
+        }
+
+        // Any change can add or remove a match, so the tag covers the whole table.
+        String eTag = versions.getAllETag();
+        if (isNotModified(ifNoneMatch, eTag)) {
+            return notModified(eTag);
+        }
+        int pageSize = limit == null ? SolarPanelService.MAX_PAGE_SIZE : limit;
+        if (cursor != null) {
+            return ResponseEntity.ok().eTag(eTag).body(service.findPageByFilter(filter, after, pageSize));
+        }
+        return ResponseEntity.ok().eTag(eTag).body(service.findByFilter(filter, pageSize));
     }
 
     @GetMapping("/{id}")
@@ -48,6 +207,15 @@ public class SolarPanelController {
         return new ResponseEntity<>(result.getSolarPanel(), HttpStatus.CREATED); // 201
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<SolarPanelBatchResult> createAll(@RequestBody List<SolarPanel> solarPanels) {
+        SolarPanelBatchResult result = service.createAll(solarPanels);
+        if (!result.isSuccess()) {
+            return new ResponseEntity<>(result, HttpStatus.BAD_REQUEST); // 400
+        }
+        return new ResponseEntity<>(result, HttpStatus.CREATED); // 201
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<?> update(@PathVariable int id, @RequestBody SolarPanel solarPanel) {
         if (id != solarPanel.getId()) {
@@ -58,6 +226,8 @@ public class SolarPanelController {
         if (!result.isSuccess()) {
             if (result.getResultType() == ResultType.NOT_FOUND) {
                 return new ResponseEntity<>(HttpStatus.NOT_FOUND); // 404
+            } else if (result.getResultType() == ResultType.CONFLICT) {
+                return new ResponseEntity<>(result.getErrorMessages(), HttpStatus.CONFLICT); // 409
             } else {
                 return new ResponseEntity<>(result.getErrorMessages(), HttpStatus.BAD_REQUEST); // 400
             }
@@ -65,6 +235,28 @@ public class SolarPanelController {
         return new ResponseEntity<>(HttpStatus.NO_CONTENT); // 204
     }
 
+    // Matches on section, row, and column instead of id.
+    @PutMapping("/upsert")
+    public ResponseEntity<?> upsert(@RequestBody SolarPanel solarPanel) {
+        SolarPanelUpsertResult result = service.upsert(solarPanel);
+        if (!result.isSuccess()) {
+            return new ResponseEntity<>(result.getErrorMessages(), HttpStatus.BAD_REQUEST); // 400
+        }
+        if (result.getUpsertType() == UpsertType.INSERTED) {
+            return new ResponseEntity<>(result, HttpStatus.CREATED); // 201
+        }
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
+
+    @PutMapping("/upsert/batch")
+    public ResponseEntity<SolarPanelBatchResult> upsertAll(@RequestBody List<SolarPanel> solarPanels) {
+        SolarPanelBatchResult result = service.upsertAll(solarPanels);
+        if (!result.isSuccess()) {
+            return new ResponseEntity<>(result, HttpStatus.BAD_REQUEST); // 400
+        }
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(@PathVariable int id) {
         SolarPanelResult result = service.deleteById(id);
@@ -73,4 +265,27 @@ public class SolarPanelController {
         }
         return new ResponseEntity<>(HttpStatus.NO_CONTENT); // 204
     }
+
+    static boolean isNotModified(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        // If-None-Match uses weak comparison and can hold a list of tags.
+        String opaqueTag = withoutWeakPrefix(eTag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || withoutWeakPrefix(tag).equals(opaqueTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String withoutWeakPrefix(String eTag) {
+        return eTag.startsWith("W/") ? eTag.substring(2) : eTag;
+    }
+
+    static <T> ResponseEntity<T> notModified(String eTag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build(); // 304
+    }
 }
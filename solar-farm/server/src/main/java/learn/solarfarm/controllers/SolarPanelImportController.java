@@ -0,0 +1,39 @@
+package learn.solarfarm.controllers;
+
+import learn.solarfarm.domain.SolarPanelImportResult;
+import learn.solarfarm.domain.SolarPanelImportService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+@RestController
+@RequestMapping("/api/solarpanel/import")
+@CrossOrigin
+public class SolarPanelImportController {
+    public static final String CSV_MEDIA_TYPE = "text/csv";
+
+    private final SolarPanelImportService service;
+
+    public SolarPanelImportController(SolarPanelImportService service) {
+        this.service = service;
+    }
+
+    // Reads the request body as it arrives instead of buffering the whole file.
+    @PostMapping(consumes = CSV_MEDIA_TYPE)
+    public ResponseEntity<SolarPanelImportResult> importCsv(InputStream body) throws IOException {
+        try (Reader reader = new InputStreamReader(body, StandardCharsets.UTF_8)) {
+            SolarPanelImportResult result = service.importCsv(reader);
+            if (!result.getErrorMessages().isEmpty()) {
+                return new ResponseEntity<>(result, HttpStatus.BAD_REQUEST); // 400
+            }
+            // Row errors don't stop the import, so the response lists them alongside what was imported.
+            return new ResponseEntity<>(result, HttpStatus.OK);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package learn.solarfarm.controllers;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.servlet.http.HttpServletRequest;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+
+/**
+ * Lets an endpoint that returns a StreamingResponseBody pick its own timeout, so a long export
+ * doesn't need `spring.mvc.async.request-timeout` raised for every async endpoint.
+ * The endpoint calls `setTimeout` before returning the body.
+ */
+@Configuration
+public class StreamingTimeoutConfig implements WebMvcConfigurer {
+    private static final String TIMEOUT_ATTRIBUTE = StreamingTimeoutConfig.class.getName() + ".timeout";
+
+    public static void setTimeout(HttpServletRequest request, Duration timeout) {
+        request.setAttribute(TIMEOUT_ATTRIBUTE, timeout);
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.registerCallableInterceptors(new CallableProcessingInterceptor() {
+            @Override
+            public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+                // Runs just before the async request starts, while its timeout can still change.
+                Object timeout = request.getAttribute(TIMEOUT_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+                if (timeout instanceof Duration duration && request instanceof AsyncWebRequest asyncWebRequest) {
+                    asyncWebRequest.setTimeout(duration.toMillis());
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,91 @@
+package learn.solarfarm.data;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.jdbc.init.DataSourceScriptDatabaseInitializer;
+import org.springframework.boot.sql.init.DatabaseInitializationMode;
+import org.springframework.boot.sql.init.DatabaseInitializationSettings;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.StreamUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads the schema and seed data from `database/production.sql` into the in-process H2 database
+ * used by the "embedded" profile (see application-embedded.properties). The build copies the script
+ * onto the classpath, so it loads no matter which directory the app starts in.
+ * Point `solarfarm.embedded.scripts` at other scripts with absolute locations, e.g. `file:/opt/solar-farm/seed.sql`.
+ * The scripts are written for MySQL, so the statements H2 can't run are left out:
+ * `drop database`, `create database`, `use`, and stored procedures.
+ */
+@Configuration
+@Profile("embedded")
+public class EmbeddedDatabaseConfig {
+
+    /**
+     * Spring Boot runs database initializers before anything that uses a JdbcTemplate,
+     * so the grid repository (and everything else) sees a loaded database.
+     */
+    @Bean
+    public DataSourceScriptDatabaseInitializer embeddedDatabaseInitializer(
+            DataSource dataSource,
+            @Value("${solarfarm.embedded.scripts:classpath:database/production.sql}") String[] scripts) {
+        DatabaseInitializationSettings settings = new DatabaseInitializationSettings();
+        settings.setSchemaLocations(List.of(scripts));
+        settings.setMode(DatabaseInitializationMode.ALWAYS);
+        return new MySqlScriptInitializer(dataSource, settings);
+    }
+
+    static String withoutMySqlOnlyStatements(String script) {
+        StringBuilder result = new StringBuilder();
+        boolean inProcedure = false;
+        for (String line : script.split("\\R")) {
+            String statement = line.trim().toLowerCase();
+            if (statement.startsWith("delimiter")) {
+                // `delimiter //` starts a stored procedure and `delimiter ;` ends it.
+                inProcedure = !statement.endsWith(";");
+                continue;
+            }
+            if (inProcedure
+                    || statement.startsWith("drop database")
+                    || statement.startsWith("create database")
+                    || statement.startsWith("use ")) {
+                continue;
+            }
+            result.append(line).append('\n');
+        }
+        return result.toString();
+    }
+
+    private static class MySqlScriptInitializer extends DataSourceScriptDatabaseInitializer {
+
+        MySqlScriptInitializer(DataSource dataSource, DatabaseInitializationSettings settings) {
+            super(dataSource, settings);
+        }
+
+        @Override
+        protected void runScripts(List<Resource> resources, boolean continueOnError, String separator, Charset encoding) {
+            Charset charset = encoding == null ? StandardCharsets.UTF_8 : encoding;
+            List<Resource> portable = new ArrayList<>();
+            for (Resource resource : resources) {
+                try {
+                    String script = StreamUtils.copyToString(resource.getInputStream(), charset);
+                    portable.add(new ByteArrayResource(
+                            withoutMySqlOnlyStatements(script).getBytes(charset), resource.getDescription()));
+                } catch (IOException ex) {
+                    throw new UncheckedIOException("Couldn't read " + resource.getDescription(), ex);
+                }
+            }
+            super.runScripts(portable, continueOnError, separator, charset);
+        }
+    }
+}
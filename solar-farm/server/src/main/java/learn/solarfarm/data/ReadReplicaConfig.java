@@ -0,0 +1,47 @@
+package learn.solarfarm.data;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds a connection pool for every URL in `solarfarm.replicas.urls` (see application.properties).
+ * Replicas use the primary's username and password unless `solarfarm.replicas.username`
+ * and `solarfarm.replicas.password` are set.
+ */
+@Configuration
+public class ReadReplicaConfig {
+
+    @Bean
+    public ReadReplicas readReplicas(
+            JdbcTemplate jdbcTemplate,
+            @Value("${solarfarm.replicas.urls:}") String[] urls,
+            @Value("${solarfarm.replicas.username:${spring.datasource.username:}}") String username,
+            @Value("${solarfarm.replicas.password:${spring.datasource.password:}}") String password,
+            @Value("${solarfarm.replicas.pool-size:10}") int poolSize,
+            @Value("${solarfarm.replicas.balance:round-robin}") String balance) {
+
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : urls) {
+            if (url.isBlank()) {
+                continue;
+            }
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("replica-" + (replicas.size() + 1));
+            config.setJdbcUrl(url.trim());
+            config.setUsername(username);
+            config.setPassword(password);
+            config.setMaximumPoolSize(poolSize);
+            config.setReadOnly(true);
+            // Starts the pool, so least-connections can see how busy it is from the first query.
+            replicas.add(new HikariDataSource(config));
+        }
+        return new ReadReplicas(jdbcTemplate, replicas, ReadReplicas.Balance.fromName(balance));
+    }
+}
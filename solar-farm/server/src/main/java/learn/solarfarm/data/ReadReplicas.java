@@ -0,0 +1,153 @@
+package learn.solarfarm.data;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Sends the repository's plain reads (findAll, findBySection and findById) to read replicas,
+ * so read-heavy traffic doesn't all land on the primary. Everything else uses the primary.
+ *
+ * A replica can be a little behind, so reads stay on the primary inside a transaction (it has to see
+ * its own writes) and inside `onPrimary`, which writes use for the reads their checks depend on
+ * (and SolarPanelCache for what it's about to cache).
+ * With no replicas configured (see ReadReplicaConfig) every read goes to the primary.
+ */
+public class ReadReplicas implements Closeable {
+    private static final ThreadLocal<Boolean> PRIMARY_ONLY = ThreadLocal.withInitial(() -> false);
+
+    public enum Balance {
+        // Each replica in turn.
+        ROUND_ROBIN,
+        // The replica with the fewest connections in use, for reads that take very different amounts of time.
+        LEAST_CONNECTIONS;
+
+        /**
+         * @param name `round-robin` or `least-connections`, as in application.properties.
+         */
+        public static Balance fromName(String name) {
+            try {
+                return valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException(String.format(
+                        "Unknown read replica balance `%s`, use `round-robin` or `least-connections`.", name), ex);
+            }
+        }
+    }
+
+    private final JdbcTemplate primary;
+    private final List<HikariDataSource> replicas;
+    private final Balance balance;
+    private final JdbcTemplate replicaTemplate;
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * @param primary The JdbcTemplate for the primary. The replicas' template gets the same settings (e.g. fetch size).
+     * @param replicas Started connection pools, one per replica. Closing this closes them.
+     * @param balance How to pick a replica for each query.
+     */
+    public ReadReplicas(JdbcTemplate primary, List<HikariDataSource> replicas, Balance balance) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.balance = balance;
+
+        if (this.replicas.isEmpty()) {
+            replicaTemplate = primary;
+        } else {
+            replicaTemplate = new JdbcTemplate(new BalancedDataSource());
+            replicaTemplate.setFetchSize(primary.getFetchSize());
+            replicaTemplate.setMaxRows(primary.getMaxRows());
+            replicaTemplate.setQueryTimeout(primary.getQueryTimeout());
+        }
+    }
+
+    /**
+     * No replicas, everything reads from the primary.
+     */
+    public static ReadReplicas none(JdbcTemplate primary) {
+        return new ReadReplicas(primary, List.of(), Balance.ROUND_ROBIN);
+    }
+
+    /**
+     * Run reads against the primary, e.g. to check what a write is about to collide with.
+     * @param reads The reads.
+     * @return What the reads return.
+     */
+    public static <T> T onPrimary(Supplier<T> reads) {
+        boolean previous = PRIMARY_ONLY.get();
+        PRIMARY_ONLY.set(true);
+        try {
+            return reads.get();
+        } finally {
+            PRIMARY_ONLY.set(previous);
+        }
+    }
+
+    /**
+     * @return The JdbcTemplate a read that may lag behind the primary should use right now.
+     */
+    public JdbcTemplate forReads() {
+        if (replicas.isEmpty()
+                || PRIMARY_ONLY.get()
+                || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return primary;
+        }
+        return replicaTemplate;
+    }
+
+    public int size() {
+        return replicas.size();
+    }
+
+    @Override
+    public void close() {
+        for (HikariDataSource replica : replicas) {
+            replica.close();
+        }
+    }
+
+    private HikariDataSource pick() {
+        // Start from the next replica in turn, so least-connections ties spread out too.
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        HikariDataSource picked = replicas.get(start);
+        if (balance == Balance.LEAST_CONNECTIONS) {
+            int fewest = activeConnections(picked);
+            for (int i = 1; i < replicas.size() && fewest > 0; i++) {
+                HikariDataSource replica = replicas.get((start + i) % replicas.size());
+                int active = activeConnections(replica);
+                if (active < fewest) {
+                    picked = replica;
+                    fewest = active;
+                }
+            }
+        }
+        return picked;
+    }
+
+    private static int activeConnections(HikariDataSource replica) {
+        // Null until the pool starts. ReadReplicaConfig starts them, but a pool built elsewhere may not be.
+        return replica.getHikariPoolMXBean() == null ? 0 : replica.getHikariPoolMXBean().getActiveConnections();
+    }
+
+    // Not a bean: a second DataSource bean would turn off Spring Boot's auto-configured primary.
+    private class BalancedDataSource extends AbstractDataSource {
+        @Override
+        public Connection getConnection() throws SQLException {
+            return pick().getConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return pick().getConnection(username, password);
+        }
+    }
+}
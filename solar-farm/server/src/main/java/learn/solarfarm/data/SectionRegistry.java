@@ -0,0 +1,231 @@
+package learn.solarfarm.data;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Maps section names to the `section_id` that `solar_panel` rows store, and back.
+ * There's one String instance per section, and every panel read from the database shares it,
+ * so a large result set doesn't carry a copy of the name for every row.
+ *
+ * Sections are never deleted, so a cached entry can't go stale. An id or name this server hasn't
+ * seen yet (e.g. one another server added) reloads the whole table, which has a few dozen rows.
+ *
+ * Everything runs in the caller's transaction, if there is one, so it never needs a second connection.
+ * A section added (or first seen) in a transaction is only visible to that transaction until it commits,
+ * and forgotten if it rolls back.
+ */
+@Repository
+public class SectionRegistry {
+    // Don't reload more than this often because of names that don't exist or sections other servers added.
+    private static final long RELOAD_NANOS = 1_000_000_000L;
+    private static final String SELECT = "select section_id, name from section";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Sections sections;
+
+    public SectionRegistry(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Find a section's name, for a row mapper.
+     * @param sectionId The section's id.
+     * @param resultSet The result set the id came from. A section this server hasn't seen yet is loaded
+     *                  over its connection: asking the pool for another one while this one is held can run
+     *                  the pool dry, and only this connection can see a section its transaction just added.
+     *                  It can't be a streaming result set, since MySQL can't run another query alongside one.
+     * @return The shared String for the section's name.
+     */
+    public String getName(int sectionId, ResultSet resultSet) throws SQLException {
+        Sections current = visible();
+        String name = current == null ? null : current.namesById.get(sectionId);
+        if (name == null) {
+            Sections loaded;
+            try (Statement statement = resultSet.getStatement().getConnection().createStatement();
+                 ResultSet sectionRows = statement.executeQuery(SELECT + ";")) {
+                loaded = load(sectionRows);
+            }
+            publish(loaded);
+            name = loaded.namesById.get(sectionId);
+        }
+        if (name == null) {
+            // Can't happen for ids read from solar_panel, the foreign key guarantees the section exists.
+            throw new IllegalStateException(String.format("Unknown section id %s.", sectionId));
+        }
+        return name;
+    }
+
+    /**
+     * Find a section's id, without regard to case.
+     * @param name The section's name.
+     * @return The section's id or null if there's no such section.
+     */
+    public Integer findId(String name) {
+        if (name == null) {
+            return null;
+        }
+        Sections current = sections();
+        Integer id = current.idsByName.get(name);
+        if (id == null && current.isOld()) {
+            id = reload().idsByName.get(name);
+        }
+        return id;
+    }
+
+    /**
+     * Find a section's id, adding the section if it doesn't exist yet.
+     * @param name The section's name.
+     * @return The section's id.
+     */
+    public int getOrCreateId(String name) {
+        Integer id = sections().idsByName.get(name);
+        if (id != null) {
+            return id;
+        }
+
+        // `on duplicate key` rather than catching the error, so the caller's transaction carries on normally.
+        jdbcTemplate.update("insert into section (name) values (?) on duplicate key update name = name;", name);
+        // A locking read sees the row even if another transaction added it after this one started.
+        jdbcTemplate.query(SELECT + " where name = ? for update;", (RowCallbackHandler) resultSet ->
+                publish(sections().with(resultSet.getInt("section_id"), resultSet.getString("name"))), name);
+
+        id = sections().idsByName.get(name);
+        if (id == null) {
+            throw new IllegalStateException(String.format("Section %s wasn't added.", name));
+        }
+        return id;
+    }
+
+    /**
+     * Every section, ordered by name without regard to case, which is the order panels are listed in.
+     * Sections another server added show up within a second.
+     * @return An unmodifiable map from section name to id.
+     */
+    public NavigableMap<String, Integer> getIdsByName() {
+        Sections current = sections();
+        return current.isOld() ? reload().idsByName : current.idsByName;
+    }
+
+    // What the current transaction can use, which includes any sections it added.
+    private Sections visible() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            Sections own = (Sections) TransactionSynchronizationManager.getResource(this);
+            if (own != null) {
+                return own;
+            }
+        }
+        return sections;
+    }
+
+    private Sections sections() {
+        Sections current = visible();
+        return current == null ? reload() : current;
+    }
+
+    private Sections reload() {
+        Sections loaded = jdbcTemplate.query(SELECT + ";", (ResultSetExtractor<Sections>) this::load);
+        publish(loaded);
+        return loaded;
+    }
+
+    private void publish(Sections loaded) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            merge(loaded);
+            return;
+        }
+
+        // Other transactions can't see what this one added until it commits.
+        Sections own = (Sections) TransactionSynchronizationManager.unbindResourceIfPossible(this);
+        if (own == null) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    Sections added = (Sections) TransactionSynchronizationManager.unbindResourceIfPossible(
+                            SectionRegistry.this);
+                    if (status == STATUS_COMMITTED && added != null) {
+                        merge(added);
+                    }
+                }
+            });
+            own = sections;
+        }
+        TransactionSynchronizationManager.bindResource(this, own == null ? loaded : own.union(loaded));
+    }
+
+    // Sections are never deleted, so whatever either one knows about is still there.
+    private synchronized void merge(Sections loaded) {
+        Sections current = sections;
+        sections = current == null ? loaded : current.union(loaded);
+    }
+
+    private Sections load(ResultSet resultSet) throws SQLException {
+        Sections previous = sections;
+        TreeMap<String, Integer> idsByName = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        HashMap<Integer, String> namesById = new HashMap<>();
+
+        while (resultSet.next()) {
+            int id = resultSet.getInt("section_id");
+            String name = resultSet.getString("name");
+            // Keep handing out the same instance for sections we already knew about.
+            if (previous != null && name.equals(previous.namesById.get(id))) {
+                name = previous.namesById.get(id);
+            }
+            idsByName.put(name, id);
+            namesById.put(id, name);
+        }
+
+        return new Sections(idsByName, namesById, System.nanoTime());
+    }
+
+    private static final class Sections {
+        final NavigableMap<String, Integer> idsByName;
+        final Map<Integer, String> namesById;
+        final long loadedAt;
+
+        Sections(TreeMap<String, Integer> idsByName, HashMap<Integer, String> namesById, long loadedAt) {
+            this.idsByName = Collections.unmodifiableNavigableMap(idsByName);
+            this.namesById = namesById;
+            this.loadedAt = loadedAt;
+        }
+
+        boolean isOld() {
+            return System.nanoTime() - loadedAt > RELOAD_NANOS;
+        }
+
+        Sections with(int id, String name) {
+            if (name.equals(namesById.get(id))) {
+                return this;
+            }
+            TreeMap<String, Integer> idsByName = new TreeMap<>(this.idsByName);
+            HashMap<Integer, String> namesById = new HashMap<>(this.namesById);
+            idsByName.put(name, id);
+            namesById.put(id, name);
+            return new Sections(idsByName, namesById, loadedAt);
+        }
+
+        Sections union(Sections other) {
+            Sections newer = other.loadedAt - loadedAt > 0 ? other : this;
+            Sections older = newer == this ? other : this;
+            TreeMap<String, Integer> idsByName = new TreeMap<>(older.idsByName);
+            HashMap<Integer, String> namesById = new HashMap<>(older.namesById);
+            idsByName.putAll(newer.idsByName);
+            namesById.putAll(newer.namesById);
+            return new Sections(idsByName, namesById, newer.loadedAt);
+        }
+    }
+}
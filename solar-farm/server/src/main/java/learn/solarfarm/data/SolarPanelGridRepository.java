@@ -0,0 +1,371 @@
+package learn.solarfarm.data;
+
+import learn.solarfarm.models.Material;
+import learn.solarfarm.models.SolarPanel;
+import learn.solarfarm.models.SolarPanelCursor;
+import learn.solarfarm.models.SolarPanelFilter;
+import learn.solarfarm.models.SolarPanelGroupCount;
+import learn.solarfarm.models.UpsertType;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Keeps every solar panel in memory, one primitive-array grid per section,
+ * and writes changes through to the database.
+ * Turn it on with the "grid" profile (e.g. `spring.profiles.active=grid`).
+ */
+@Repository
+@Primary
+@Profile("grid")
+public class SolarPanelGridRepository implements SolarPanelRepository {
+    // Matches SolarPanelService.MAX_ROW_COLUMN: rows and columns are always less than this.
+    private static final int GRID_SIZE = 250;
+    private static final int CELLS = GRID_SIZE * GRID_SIZE;
+    private static final Material[] MATERIALS = Material.values();
+
+    private final SolarPanelJdbcTemplateRepository delegate;
+
+    // Sections compare without regard to case, just like MySQL does.
+    private final TreeMap<String, SectionGrid> sections = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final ArrayList<SectionGrid> sectionsByNumber = new ArrayList<>();
+
+    // Indexed by id, holds (section number << 16 | cell) + 1, with 0 meaning "no panel".
+    private int[] slotsById = new int[1024];
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Serializes writers so the database and the grid apply changes in the same order.
+    private final Object writeMutex = new Object();
+
+    public SolarPanelGridRepository(SolarPanelJdbcTemplateRepository delegate) {
+        this.delegate = delegate;
+        delegate.streamAll(this::put);
+    }
+
+    @Override
+    public List<SolarPanel> findAll() {
+        ArrayList<SolarPanel> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (SectionGrid grid : sections.values()) {
+                grid.addTo(result, 0, Integer.MAX_VALUE);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    @Override
+    public List<SolarPanel> findPage(SolarPanelCursor after, int limit) {
+        ArrayList<SolarPanel> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Map<String, SectionGrid> remaining = after == null
+                    ? sections
+                    : sections.tailMap(after.getSection(), true);
+
+            for (SectionGrid grid : remaining.values()) {
+                int fromCell = 0;
+                if (after != null && grid.name.equalsIgnoreCase(after.getSection())) {
+                    // Each cell holds at most one panel, so the next page starts at the next cell.
+                    fromCell = toCell(after.getRow(), after.getColumn()) + 1;
+                }
+                grid.addTo(result, fromCell, limit - result.size());
+                if (result.size() >= limit) {
+                    break;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    @Override
+    public void streamAll(Consumer<SolarPanel> consumer) {
+        List<String> names;
+        lock.readLock().lock();
+        try {
+            names = new ArrayList<>(sections.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // Copy one section at a time so writers aren't blocked while the consumer does I/O.
+        for (String name : names) {
+            findBySection(name).forEach(consumer);
+        }
+    }
+
+    @Override
+    public List<SolarPanel> findBySection(String section) {
+        ArrayList<SolarPanel> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            SectionGrid grid = section == null ? null : sections.get(section);
+            if (grid != null) {
+                grid.addTo(result, 0, Integer.MAX_VALUE);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    @Override
+    public List<SolarPanel> findByRange(String section, int rowMin, int rowMax, int columnMin, int columnMax) {
+        ArrayList<SolarPanel> result = new ArrayList<>();
+        // Only visit the cells in the rectangle.
+        int fromRow = Math.max(rowMin, 0);
+        int toRow = Math.min(rowMax, GRID_SIZE - 1);
+        int fromColumn = Math.max(columnMin, 0);
+        int toColumn = Math.min(columnMax, GRID_SIZE - 1);
+        lock.readLock().lock();
+        try {
+            SectionGrid grid = section == null ? null : sections.get(section);
+            if (grid != null) {
+                for (int row = fromRow; row <= toRow; row++) {
+                    for (int cell = toCell(row, fromColumn); cell <= toCell(row, toColumn); cell++) {
+                        if (grid.ids[cell] != 0) {
+                            result.add(grid.toSolarPanel(cell));
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    @Override
+    public List<SolarPanel> findByFilter(SolarPanelFilter filter, SolarPanelCursor after, int limit) {
+        // The grid has no indexes on material or year installed, the database does.
+        return delegate.findByFilter(filter, after, limit);
+    }
+
+    @Override
+    public SolarPanel findById(int id) {
+        lock.readLock().lock();
+        try {
+            int slot = findSlot(id);
+            if (slot < 0) {
+                return null;
+            }
+            return sectionsByNumber.get(slot >>> 16).toSolarPanel(slot & 0xFFFF);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean existsByNaturalKey(SolarPanel solarPanel) {
+        if (!isOnGrid(solarPanel)) {
+            return delegate.existsByNaturalKey(solarPanel);
+        }
+
+        lock.readLock().lock();
+        try {
+            SectionGrid grid = sections.get(solarPanel.getSection());
+            if (grid == null) {
+                return false;
+            }
+            int id = grid.ids[toCell(solarPanel.getRow(), solarPanel.getColumn())];
+            return id != 0 && id != solarPanel.getId();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<SolarPanelGroupCount> countByGroup() {
+        // Only used to rebuild statistics, so let the database do the grouping.
+        return delegate.countByGroup();
+    }
+
+    @Override
+    public SolarPanel create(SolarPanel solarPanel) {
+        synchronized (writeMutex) {
+            SolarPanel result = delegate.create(solarPanel);
+            if (result != null) {
+                write(() -> put(result));
+            }
+            return result;
+        }
+    }
+
+    @Override
+    public List<SolarPanel> createAll(List<SolarPanel> solarPanels) {
+        synchronized (writeMutex) {
+            List<SolarPanel> result = delegate.createAll(solarPanels);
+            write(() -> result.forEach(this::put));
+            return result;
+        }
+    }
+
+    @Override
+    public boolean update(SolarPanel solarPanel) {
+        synchronized (writeMutex) {
+            if (!delegate.update(solarPanel)) {
+                return false;
+            }
+            write(() -> {
+                remove(solarPanel.getId());
+                put(solarPanel);
+            });
+            return true;
+        }
+    }
+
+    @Override
+    public UpsertType upsert(SolarPanel solarPanel) {
+        synchronized (writeMutex) {
+            UpsertType upsertType = delegate.upsert(solarPanel);
+            if (upsertType == UpsertType.UNCHANGED) {
+                return upsertType;
+            }
+            // The delegate set the id and version, so it's what's stored. Reading it back could hit
+            // a replica that doesn't have the write yet, and the grid would keep the old panel.
+            write(() -> {
+                remove(solarPanel.getId());
+                put(solarPanel);
+            });
+            return upsertType;
+        }
+    }
+
+    @Override
+    public List<SolarPanel> upsertAll(List<SolarPanel> solarPanels) {
+        synchronized (writeMutex) {
+            List<SolarPanel> result = delegate.upsertAll(solarPanels);
+            write(() -> result.forEach(solarPanel -> {
+                remove(solarPanel.getId());
+                put(solarPanel);
+            }));
+            return result;
+        }
+    }
+
+    @Override
+    public boolean deleteById(int id) {
+        synchronized (writeMutex) {
+            if (!delegate.deleteById(id)) {
+                return false;
+            }
+            write(() -> remove(id));
+            return true;
+        }
+    }
+
+    private void write(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            change.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Callers must hold the write lock (or be the constructor).
+    private void put(SolarPanel solarPanel) {
+        if (!isOnGrid(solarPanel)) {
+            // Can't happen for panels that passed validation.
+            throw new IllegalStateException(
+                    String.format("SolarPanel id %s is outside of the grid.", solarPanel.getId()));
+        }
+
+        SectionGrid grid = sections.get(solarPanel.getSection());
+        if (grid == null) {
+            grid = new SectionGrid(solarPanel.getSection(), sectionsByNumber.size());
+            sections.put(grid.name, grid);
+            sectionsByNumber.add(grid);
+        }
+
+        int cell = toCell(solarPanel.getRow(), solarPanel.getColumn());
+        grid.ids[cell] = solarPanel.getId();
+        grid.yearsInstalled[cell] = solarPanel.getYearInstalled();
+        grid.materials[cell] = (byte) solarPanel.getMaterial().ordinal();
+        grid.tracking[cell] = solarPanel.isTracking();
+        grid.versions[cell] = solarPanel.getVersion();
+
+        if (solarPanel.getId() >= slotsById.length) {
+            slotsById = Arrays.copyOf(slotsById, Math.max(slotsById.length * 2, solarPanel.getId() + 1));
+        }
+        slotsById[solarPanel.getId()] = ((grid.number << 16) | cell) + 1;
+    }
+
+    // Callers must hold the write lock.
+    private void remove(int id) {
+        int slot = findSlot(id);
+        if (slot < 0) {
+            return;
+        }
+        SectionGrid grid = sectionsByNumber.get(slot >>> 16);
+        grid.ids[slot & 0xFFFF] = 0;
+        slotsById[id] = 0;
+    }
+
+    private int findSlot(int id) {
+        if (id <= 0 || id >= slotsById.length) {
+            return -1;
+        }
+        return slotsById[id] - 1;
+    }
+
+    private static boolean isOnGrid(SolarPanel solarPanel) {
+        return solarPanel.getSection() != null &&
+                solarPanel.getRow() > 0 && solarPanel.getRow() < GRID_SIZE &&
+                solarPanel.getColumn() > 0 && solarPanel.getColumn() < GRID_SIZE;
+    }
+
+    private static int toCell(int row, int column) {
+        return row * GRID_SIZE + column;
+    }
+
+    /**
+     * One section laid out as parallel arrays indexed by cell (row * GRID_SIZE + column),
+     * so cells are already in `row`, `column` order.
+     */
+    private static final class SectionGrid {
+        // The first spelling we saw for this section.
+        final String name;
+        final int number;
+        final int[] ids = new int[CELLS];
+        final int[] yearsInstalled = new int[CELLS];
+        final byte[] materials = new byte[CELLS];
+        final boolean[] tracking = new boolean[CELLS];
+        final int[] versions = new int[CELLS];
+
+        SectionGrid(String name, int number) {
+            this.name = name;
+            this.number = number;
+        }
+
+        void addTo(List<SolarPanel> result, int fromCell, int limit) {
+            int added = 0;
+            for (int cell = Math.max(fromCell, 0); cell < CELLS && added < limit; cell++) {
+                if (ids[cell] != 0) {
+                    result.add(toSolarPanel(cell));
+                    added++;
+                }
+            }
+        }
+
+        SolarPanel toSolarPanel(int cell) {
+            SolarPanel solarPanel = new SolarPanel(ids[cell], name, cell / GRID_SIZE, cell % GRID_SIZE,
+                    yearsInstalled[cell], MATERIALS[materials[cell]], tracking[cell]);
+            solarPanel.setVersion(versions[cell]);
+            return solarPanel;
+        }
+    }
+}
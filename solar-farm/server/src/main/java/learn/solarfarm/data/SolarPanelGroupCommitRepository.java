@@ -0,0 +1,297 @@
+package learn.solarfarm.data;
+
+import learn.solarfarm.models.SolarPanel;
+import learn.solarfarm.models.SolarPanelCursor;
+import learn.solarfarm.models.SolarPanelFilter;
+import learn.solarfarm.models.SolarPanelGroupCount;
+import learn.solarfarm.models.UpsertType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Group commit for creates: concurrent `create` calls are gathered for up to `max-wait`
+ * (or until `max-batch-size` are waiting) and inserted as one batch in one transaction.
+ * Each caller still gets its own panel back with its generated id.
+ * Everything else goes straight to SolarPanelJdbcTemplateRepository.
+ *
+ * Turn it on with `solarfarm.group-commit.enabled=true`. It trades up to `max-wait` of extra latency
+ * per create for far fewer commits when many clients create at once (see GroupCommitBenchmark).
+ * The grid profile serializes writes anyway, so it's off there.
+ *
+ * At most `max-queue-size` creates wait at once; more are rejected (a 503), and a caller gives up
+ * after `timeout`. Both keep a stuck database or writer from piling up request threads.
+ * A caller whose panel the writer is already inserting doesn't give up, it waits for the insert,
+ * so a create never commits unannounced. The writer's transactions time out after `timeout` too,
+ * so that wait is bounded as well.
+ */
+@Repository
+@Primary
+@Profile("!grid")
+@ConditionalOnProperty(name = "solarfarm.group-commit.enabled", havingValue = "true")
+public class SolarPanelGroupCommitRepository implements SolarPanelRepository, DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(SolarPanelGroupCommitRepository.class);
+    private static final String SHUTTING_DOWN = "The server is shutting down.";
+
+    private final SolarPanelJdbcTemplateRepository delegate;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final long timeoutNanos;
+
+    private final BlockingQueue<PendingCreate> queue;
+    private final Thread writer;
+    private volatile boolean closed;
+
+    public SolarPanelGroupCommitRepository(SolarPanelJdbcTemplateRepository delegate,
+                                           PlatformTransactionManager transactionManager,
+                                           @Value("${solarfarm.group-commit.max-batch-size:100}") int maxBatchSize,
+                                           @Value("${solarfarm.group-commit.max-wait:2ms}") Duration maxWait,
+                                           @Value("${solarfarm.group-commit.max-queue-size:1000}") int maxQueueSize,
+                                           @Value("${solarfarm.group-commit.timeout:5s}") Duration timeout) {
+        this.delegate = delegate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Applied to each statement as its query timeout. Whole seconds, rounded up.
+        this.transactionTemplate.setTimeout((int) Math.max(1, (timeout.toMillis() + 999) / 1000));
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.timeoutNanos = timeout.toNanos();
+        this.queue = new LinkedBlockingQueue<>(maxQueueSize);
+
+        writer = new Thread(this::writeLoop, "group-commit");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public SolarPanel create(SolarPanel solarPanel) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            // The caller's transaction has to include the insert, so it can't be committed with others.
+            return delegate.create(solarPanel);
+        }
+
+        PendingCreate pending = new PendingCreate(solarPanel);
+        if (!queue.offer(pending)) {
+            throw new TaskRejectedException("Too many creates are waiting to be written.");
+        }
+        if (closed && queue.remove(pending)) {
+            // Nothing will write it.
+            throw new IllegalStateException(SHUTTING_DOWN);
+        }
+        try {
+            return pending.result.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (ExecutionException ex) {
+            throw failure(ex.getCause());
+        } catch (TimeoutException ex) {
+            return giveUp(pending, "Timed out waiting for the panel to be written.");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return giveUp(pending, "Interrupted while waiting for the panel to be written.");
+        }
+    }
+
+    private SolarPanel giveUp(PendingCreate pending, String message) {
+        if (pending.claim()) {
+            // The writer hasn't got to it, and now it never will.
+            queue.remove(pending);
+            throw new QueryTimeoutException(message + " It wasn't created.");
+        }
+        // It's being written and may commit. The caller only publishes the change once create returns,
+        // so giving up now could leave a panel nobody hears about. Wait for the insert instead,
+        // the writer's transaction timeout bounds it.
+        try {
+            return pending.result.join();
+        } catch (CompletionException ex) {
+            throw failure(ex.getCause());
+        }
+    }
+
+    // Rethrow what the insert threw (e.g. DuplicateKeyException), like a direct create would.
+    private static RuntimeException failure(Throwable cause) {
+        if (cause instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        return new CompletionException(cause);
+    }
+
+    @Override
+    public void destroy() {
+        closed = true;
+        writer.interrupt();
+        PendingCreate pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result.completeExceptionally(new IllegalStateException(SHUTTING_DOWN));
+        }
+    }
+
+    private void writeLoop() {
+        ArrayList<PendingCreate> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (true) {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    PendingCreate next = queue.poll(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                // Callers that gave up on theirs already, don't write them.
+                batch.removeIf(pending -> !pending.claim());
+                try {
+                    write(batch);
+                } catch (RuntimeException | Error ex) {
+                    // write reports insert errors to each caller, so this is a bug. Fail the batch, but keep
+                    // the writer going, or every create after it would wait for nothing.
+                    logger.error("Group commit failed.", ex);
+                    for (PendingCreate pending : batch) {
+                        pending.result.completeExceptionally(ex);
+                    }
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException ex) {
+            for (PendingCreate pending : batch) {
+                pending.result.completeExceptionally(new IllegalStateException(SHUTTING_DOWN));
+            }
+        }
+    }
+
+    private void write(List<PendingCreate> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        ArrayList<SolarPanel> solarPanels = new ArrayList<>(batch.size());
+        for (PendingCreate pending : batch) {
+            solarPanels.add(pending.solarPanel);
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> delegate.createAll(solarPanels));
+            for (PendingCreate pending : batch) {
+                pending.result.complete(pending.solarPanel);
+            }
+        } catch (RuntimeException ex) {
+            // One bad panel (e.g. a natural key someone else just took) fails the whole batch.
+            // Retry them one at a time, so only that panel's caller gets the error.
+            for (PendingCreate pending : batch) {
+                try {
+                    SolarPanel created = transactionTemplate.execute(status -> delegate.create(pending.solarPanel));
+                    pending.result.complete(created);
+                } catch (RuntimeException createEx) {
+                    pending.result.completeExceptionally(createEx);
+                }
+            }
+        }
+    }
+
+    private static final class PendingCreate {
+        final SolarPanel solarPanel;
+        final CompletableFuture<SolarPanel> result = new CompletableFuture<>();
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        PendingCreate(SolarPanel solarPanel) {
+            this.solarPanel = solarPanel;
+        }
+
+        // The writer claims it before writing, a caller that gives up claims it so it's never written.
+        // Only the first one gets it.
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+
+    @Override
+    public List<SolarPanel> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<SolarPanel> findPage(SolarPanelCursor after, int limit) {
+        return delegate.findPage(after, limit);
+    }
+
+    @Override
+    public void streamAll(Consumer<SolarPanel> consumer) {
+        delegate.streamAll(consumer);
+    }
+
+    @Override
+    public List<SolarPanel> findBySection(String section) {
+        return delegate.findBySection(section);
+    }
+
+    @Override
+    public List<SolarPanel> findByRange(String section, int rowMin, int rowMax, int columnMin, int columnMax) {
+        return delegate.findByRange(section, rowMin, rowMax, columnMin, columnMax);
+    }
+
+    @Override
+    public List<SolarPanel> findByFilter(SolarPanelFilter filter, SolarPanelCursor after, int limit) {
+        return delegate.findByFilter(filter, after, limit);
+    }
+
+    @Override
+    public SolarPanel findById(int id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public boolean existsByNaturalKey(SolarPanel solarPanel) {
+        return delegate.existsByNaturalKey(solarPanel);
+    }
+
+    @Override
+    public List<SolarPanelGroupCount> countByGroup() {
+        return delegate.countByGroup();
+    }
+
+    @Override
+    public List<SolarPanel> createAll(List<SolarPanel> solarPanels) {
+        return delegate.createAll(solarPanels);
+    }
+
+    @Override
+    public boolean update(SolarPanel solarPanel) {
+        return delegate.update(solarPanel);
+    }
+
+    @Override
+    public UpsertType upsert(SolarPanel solarPanel) {
+        return delegate.upsert(solarPanel);
+    }
+
+    @Override
+    public List<SolarPanel> upsertAll(List<SolarPanel> solarPanels) {
+        return delegate.upsertAll(solarPanels);
+    }
+
+    @Override
+    public boolean deleteById(int id) {
+        return delegate.deleteById(id);
+    }
+}
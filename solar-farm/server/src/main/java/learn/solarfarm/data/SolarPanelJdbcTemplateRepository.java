@@ -1,50 +1,159 @@
 package learn.solarfarm.data;
 
-import learn.solarfarm.models.Material;
+import learn.solarfarm.data.mappers.SolarPanelMapper;
 import learn.solarfarm.models.SolarPanel;
+import learn.solarfarm.models.Material;
+import learn.solarfarm.models.SolarPanelCursor;
+import learn.solarfarm.models.SolarPanelFilter;
+import learn.solarfarm.models.SolarPanelGroupCount;
+import learn.solarfarm.models.UpsertType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.function.Consumer;
 
 @Repository
 public class SolarPanelJdbcTemplateRepository implements SolarPanelRepository {
-    private final JdbcTemplate jdbcTemplate;
+    // The number of rows sent to the database per `executeBatch` call.
+    private static final int BATCH_SIZE = 1000;
+
+    // Only bump the version when something changes. MySQL applies the assignments in order,
+    // so this has to come before the columns it compares are overwritten.
+    private static final String UPSERT_VERSION = "version = case when year_installed <> values(year_installed) " +
+            "or material <> values(material) " +
+            "or is_tracking <> values(is_tracking) " +
+            "then version + 1 else version end, ";
 
-    public SolarPanelJdbcTemplateRepository(JdbcTemplate jdbcTemplate) {
+    private static final String COLUMNS = "id, section_id, `row`, `column`, year_installed, material, is_tracking, version ";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SectionRegistry sections;
+    private final ReadReplicas replicas;
+    private final RowMapper<SolarPanel> mapper;
+    private final int streamFetchSize;
+    // Integer.MIN_VALUE tells MySQL Connector/J to stream rows one at a time
+    // instead of reading the whole result set into memory.
+    @Autowired
+    public SolarPanelJdbcTemplateRepository(JdbcTemplate jdbcTemplate, SectionRegistry sections, ReadReplicas replicas,
+                                            @Value("${solarfarm.stream.fetch-size:-2147483648}") int streamFetchSize) {
         this.jdbcTemplate = jdbcTemplate;
+        this.sections = sections;
+        this.replicas = replicas;
+        this.mapper = new SolarPanelMapper(sections::getName);
+        this.streamFetchSize = streamFetchSize;
     }
 
-    private final RowMapper<SolarPanel> mapper = (resultSet, rowIndex) -> {
-        SolarPanel solarPanel = new SolarPanel();
+    // Every query on the one database, no read replicas.
+    public SolarPanelJdbcTemplateRepository(JdbcTemplate jdbcTemplate, SectionRegistry sections, int streamFetchSize) {
+        this(jdbcTemplate, sections, ReadReplicas.none(jdbcTemplate), streamFetchSize);
+    }
 
-        solarPanel.setId(resultSet.getInt("id"));
-        solarPanel.setSection(resultSet.getString("section"));
-        solarPanel.setRow(resultSet.getInt("row"));
-        solarPanel.setColumn(resultSet.getInt("column"));
-        solarPanel.setYearInstalled(resultSet.getInt("year_installed"));
+    @Override
+    public List<SolarPanel> findAll() {
 
-        Material material = Material.valueOf(resultSet.getString("material"));
-        solarPanel.setMaterial(material);
+        // Section ids aren't in name order. The rows come back grouped by section (in index order),
+        // so the stable sort only has to move whole runs of rows.
+        final String sql = "select " + COLUMNS +
+                "from solar_panel " +
+                "order by section_id, `row`, `column`;";
 
-        solarPanel.setTracking(resultSet.getBoolean("is_tracking"));
+        List<SolarPanel> result = replicas.forReads().query(sql, mapper);
+        result.sort(Comparator.comparing(SolarPanel::getSection, sections.getIdsByName().comparator()));
+        return result;
+    }
 
-        return solarPanel;
-    };
+    @Override
+    public List<SolarPanel> findPage(SolarPanelCursor after, int limit) {
+
+        // Keyset pagination: seek past the last row of the previous page instead of
+        // using `offset`, so every page costs the same no matter how deep it is.
+        // Pages are ordered by section name, which the (section_id, `row`, `column`) index can't do,
+        // so walk the sections in name order with one seek each until the page is full.
+        final String firstSql = "select " + COLUMNS +
+                "from solar_panel " +
+                "where section_id = ? and (`row`, `column`, id) > (?, ?, ?) " +
+                "order by `row`, `column`, id " +
+                "limit ?;";
+        final String nextSql = "select " + COLUMNS +
+                "from solar_panel " +
+                "where section_id = ? " +
+                "order by `row`, `column`, id " +
+                "limit ?;";
+
+        NavigableMap<String, Integer> idsByName = sections.getIdsByName();
+        if (after != null) {
+            idsByName = idsByName.tailMap(after.getSection(), true);
+        }
+
+        ArrayList<SolarPanel> result = new ArrayList<>();
+        for (Map.Entry<String, Integer> section : idsByName.entrySet()) {
+            int remaining = limit - result.size();
+            if (remaining <= 0) {
+                break;
+            }
+            if (after != null && idsByName.comparator().compare(section.getKey(), after.getSection()) == 0) {
+                result.addAll(jdbcTemplate.query(firstSql, mapper,
+                        section.getValue(),
+                        after.getRow(),
+                        after.getColumn(),
+                        after.getId(),
+                        remaining));
+            } else {
+                result.addAll(jdbcTemplate.query(nextSql, mapper, section.getValue(), remaining));
+            }
+        }
+        return result;
+    }
 
     @Override
-    public List<SolarPanel> findAll() {
+    public void streamAll(Consumer<SolarPanel> consumer) {
 
-        final String sql = "select id, section, `row`, `column`, year_installed, material, is_tracking " +
+        // One streamed query per section, in name order, so rows still arrive in listing order
+        // without sorting the whole table. Every row's section is known up front, so mapping never
+        // looks one up, which it couldn't do on a connection that's busy streaming.
+        final String sql = "select " + COLUMNS +
                 "from solar_panel " +
-                "order by section, `row`, `column`;";
+                "where section_id = ? " +
+                "order by `row`, `column`;";
 
-        return jdbcTemplate.query(sql, mapper);
+        for (Map.Entry<String, Integer> section : sections.getIdsByName().entrySet()) {
+            SolarPanelMapper sectionMapper = new SolarPanelMapper((id, resultSet) -> section.getKey());
+            int sectionId = section.getValue();
+            RowCallbackHandler handler = new RowCallbackHandler() {
+                private int rowIndex = 0;
+
+                @Override
+                public void processRow(ResultSet resultSet) throws SQLException {
+                    consumer.accept(sectionMapper.mapRow(resultSet, rowIndex++));
+                }
+            };
+
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(sql,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(streamFetchSize);
+                statement.setInt(1, sectionId);
+                return statement;
+            }, handler);
+        }
     }
 
     @Override
@@ -53,22 +162,159 @@ public class SolarPanelJdbcTemplateRepository implements SolarPanelRepository {
         // SQL injection
         // '; drop table solar_panel;
 
-//        final String sql = String.format("select id, section, `row`, `column`, year_installed, material, is_tracking " +
+//        final String sql = String.format("select id, section, `row`, `column`, year_installed, material, is_tracking, version " +
 //                "from solar_panel " +
 //                "where section = '%s' " +
 //                "order by section, `row`, `column`;", section);
 
-        final String sql = "select id, section, `row`, `column`, year_installed, material, is_tracking " +
+        Integer sectionId = sections.findId(section);
+        if (sectionId == null) {
+            return List.of();
+        }
+
+        final String sql = "select " + COLUMNS +
                 "from solar_panel " +
-                "where section = ? " +
-                "order by section, `row`, `column`;";
+                "where section_id = ? " +
+                "order by `row`, `column`;";
+
+        return replicas.forReads().query(sql, mapper, sectionId);
+    }
 
-        return jdbcTemplate.query(sql, mapper, section);
+    @Override
+    public List<SolarPanel> findByRange(String section, int rowMin, int rowMax, int columnMin, int columnMax) {
+        Integer sectionId = sections.findId(section);
+        if (sectionId == null || rowMin > rowMax || columnMin > columnMax) {
+            return List.of();
+        }
+
+        // `row` between ? and ? would read every column of every row in the range. Listing the rows
+        // gives one (section_id, `row`, `column` between ? and ?) seek per row on the unique index,
+        // so only the rectangle itself is read.
+        StringBuilder sql = new StringBuilder("select " + COLUMNS +
+                "from solar_panel " +
+                "where section_id = ? and `row` in (");
+        Object[] args = new Object[rowMax - rowMin + 4];
+        args[0] = sectionId;
+        for (int row = rowMin; row <= rowMax; row++) {
+            sql.append(row == rowMin ? "?" : ", ?");
+            args[row - rowMin + 1] = row;
+        }
+        sql.append(") and `column` between ? and ? " +
+                "order by `row`, `column`;");
+        args[args.length - 2] = columnMin;
+        args[args.length - 1] = columnMax;
+
+        return jdbcTemplate.query(sql.toString(), mapper, args);
+    }
+
+    @Override
+    public List<SolarPanel> findByFilter(SolarPanelFilter filter, SolarPanelCursor after, int limit) {
+
+        // Only the criteria that are set become conditions, and every value is a parameter.
+        // The indexes in database/*.sql cover the common combinations (see the comments there).
+        ArrayList<String> conditions = new ArrayList<>();
+        ArrayList<Object> args = new ArrayList<>();
+        if (filter.getSection() != null) {
+            Integer sectionId = sections.findId(filter.getSection());
+            if (sectionId == null) {
+                return List.of();
+            }
+            conditions.add("p.section_id = ?");
+            args.add(sectionId);
+        }
+        if (filter.getMaterial() != null) {
+            conditions.add("p.material = ?");
+            args.add(filter.getMaterial().toString());
+        }
+        if (filter.getTracking() != null) {
+            conditions.add("p.is_tracking = ?");
+            args.add(filter.getTracking());
+        }
+        if (filter.getYearInstalledMin() != null) {
+            conditions.add("p.year_installed >= ?");
+            args.add(filter.getYearInstalledMin());
+        }
+        if (filter.getYearInstalledMax() != null) {
+            conditions.add("p.year_installed <= ?");
+            args.add(filter.getYearInstalledMax());
+        }
+
+        if (filter.getSort() == SolarPanelFilter.Sort.LOCATION && filter.getSection() == null) {
+            return findByFilterInSectionOrder(conditions, args, after, limit);
+        }
+
+        // Keyset pagination like findPage: seek past the previous page's last row in the same order.
+        if (after != null) {
+            if (filter.getSort() == SolarPanelFilter.Sort.YEAR_INSTALLED) {
+                conditions.add("(p.year_installed, p.id) > (?, ?)");
+                args.add(after.getYearInstalled());
+            } else {
+                conditions.add("(p.`row`, p.`column`, p.id) > (?, ?, ?)");
+                args.add(after.getRow());
+                args.add(after.getColumn());
+            }
+            args.add(after.getId());
+        }
+        StringBuilder sql = new StringBuilder("select p.id, p.section_id, p.`row`, p.`column`, " +
+                "p.year_installed, p.material, p.is_tracking, p.version " +
+                "from solar_panel p");
+        if (!conditions.isEmpty()) {
+            sql.append(" where ").append(String.join(" and ", conditions));
+        }
+        if (filter.getSort() == SolarPanelFilter.Sort.YEAR_INSTALLED) {
+            sql.append(" order by p.year_installed, p.id");
+        } else {
+            sql.append(" order by p.`row`, p.`column`, p.id");
+        }
+        sql.append(" limit ?;");
+        args.add(limit);
+
+        return jdbcTemplate.query(sql.toString(), mapper, args.toArray());
+    }
+
+    // Ordering by location across sections needs the section's name, and no index has that order,
+    // so MySQL would sort every matching row for each page. Like findPage, walk the sections in name order
+    // instead, with one query each on the (section_id, `row`, `column`) index, until the page is full.
+    private List<SolarPanel> findByFilterInSectionOrder(List<String> conditions, List<Object> args,
+                                                        SolarPanelCursor after, int limit) {
+        String select = "select p.id, p.section_id, p.`row`, p.`column`, " +
+                "p.year_installed, p.material, p.is_tracking, p.version " +
+                "from solar_panel p " +
+                "where p.section_id = ?";
+        String filters = conditions.isEmpty() ? "" : " and " + String.join(" and ", conditions);
+        String order = " order by p.`row`, p.`column`, p.id limit ?;";
+        final String firstSql = select + " and (p.`row`, p.`column`, p.id) > (?, ?, ?)" + filters + order;
+        final String nextSql = select + filters + order;
+
+        NavigableMap<String, Integer> idsByName = sections.getIdsByName();
+        if (after != null) {
+            idsByName = idsByName.tailMap(after.getSection(), true);
+        }
+
+        ArrayList<SolarPanel> result = new ArrayList<>();
+        for (Map.Entry<String, Integer> section : idsByName.entrySet()) {
+            int remaining = limit - result.size();
+            if (remaining <= 0) {
+                break;
+            }
+            ArrayList<Object> sectionArgs = new ArrayList<>(args.size() + 5);
+            sectionArgs.add(section.getValue());
+            boolean first = after != null && idsByName.comparator().compare(section.getKey(), after.getSection()) == 0;
+            if (first) {
+                sectionArgs.add(after.getRow());
+                sectionArgs.add(after.getColumn());
+                sectionArgs.add(after.getId());
+            }
+            sectionArgs.addAll(args);
+            sectionArgs.add(remaining);
+            result.addAll(jdbcTemplate.query(first ? firstSql : nextSql, mapper, sectionArgs.toArray()));
+        }
+        return result;
     }
 
     @Override
     public SolarPanel findById(int id) {
-        final String sql = "select id, section, `row`, `column`, year_installed, material, is_tracking " +
+        final String sql = "select " + COLUMNS +
                 "from solar_panel " +
                 "where id = ?";
 
@@ -79,24 +325,58 @@ public class SolarPanelJdbcTemplateRepository implements SolarPanelRepository {
 //        }
 
         // This approach avoids the exception from being thrown.
-        return jdbcTemplate.query(sql, mapper, id).stream().findFirst().orElse(null);
+        return replicas.forReads().query(sql, mapper, id).stream().findFirst().orElse(null);
+    }
+
+    @Override
+    public boolean existsByNaturalKey(SolarPanel solarPanel) {
+
+        Integer sectionId = sections.findId(solarPanel.getSection());
+        if (sectionId == null) {
+            return false;
+        }
+
+        // A single lookup on the unique (section_id, `row`, `column`) index.
+        final String sql = "select count(*) " +
+                "from solar_panel " +
+                "where section_id = ? and `row` = ? and `column` = ? and id <> ?;";
+
+        Integer count = jdbcTemplate.queryForObject(sql, Integer.class,
+                sectionId,
+                solarPanel.getRow(),
+                solarPanel.getColumn(),
+                solarPanel.getId());
+
+        return count != null && count > 0;
+    }
+
+    @Override
+    public List<SolarPanelGroupCount> countByGroup() {
+
+        final String sql = "select section_id, material, floor(year_installed / 10) * 10 as decade_installed, " +
+                "is_tracking, count(*) as panel_count " +
+                "from solar_panel " +
+                "group by section_id, material, floor(year_installed / 10) * 10, is_tracking;";
+
+        return jdbcTemplate.query(sql, (resultSet, rowIndex) -> new SolarPanelGroupCount(
+                sections.getName(resultSet.getInt("section_id"), resultSet),
+                Material.valueOf(resultSet.getString("material")),
+                resultSet.getInt("decade_installed"),
+                resultSet.getBoolean("is_tracking"),
+                resultSet.getLong("panel_count")));
     }
 
     @Override
     public SolarPanel create(SolarPanel solarPanel) {
 
-        final String sql = "insert into solar_panel (section, `row`, `column`, year_installed, material, is_tracking) " +
+        final String sql = "insert into solar_panel (section_id, `row`, `column`, year_installed, material, is_tracking) " +
                 "values (?, ?, ?, ?, ?, ?);";
 
+        int sectionId = sections.getOrCreateId(solarPanel.getSection());
         KeyHolder keyHolder = new GeneratedKeyHolder();
         int rowsAffected = jdbcTemplate.update(connection -> {
             PreparedStatement statement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-            statement.setString(1, solarPanel.getSection());
-            statement.setInt(2, solarPanel.getRow());
-            statement.setInt(3, solarPanel.getColumn());
-            statement.setInt(4, solarPanel.getYearInstalled());
-            statement.setString(5, solarPanel.getMaterial().toString());
-            statement.setBoolean(6, solarPanel.isTracking());
+            setValues(statement, solarPanel, sectionId);
             return statement;
         }, keyHolder);
 
@@ -105,31 +385,169 @@ public class SolarPanelJdbcTemplateRepository implements SolarPanelRepository {
         }
 
         solarPanel.setId(keyHolder.getKey().intValue());
+        solarPanel.setVersion(0);
 
         return solarPanel;
     }
 
+    @Override
+    @Transactional
+    public List<SolarPanel> createAll(List<SolarPanel> solarPanels) {
+
+        // No trailing semicolon, so the driver can rewrite the batch
+        // into multi-row inserts (see `rewriteBatchedStatements`).
+        final String sql = "insert into solar_panel (section_id, `row`, `column`, year_installed, material, is_tracking) " +
+                "values (?, ?, ?, ?, ?, ?)";
+
+        Map<String, Integer> sectionIds = getOrCreateSectionIds(solarPanels);
+        return jdbcTemplate.execute((ConnectionCallback<List<SolarPanel>>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                for (int start = 0; start < solarPanels.size(); start += BATCH_SIZE) {
+                    List<SolarPanel> chunk = solarPanels.subList(start, Math.min(start + BATCH_SIZE, solarPanels.size()));
+
+                    for (SolarPanel solarPanel : chunk) {
+                        setValues(statement, solarPanel, sectionIds.get(solarPanel.getSection()));
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+
+                    // Generated keys come back in the same order the rows were added.
+                    try (ResultSet keys = statement.getGeneratedKeys()) {
+                        for (SolarPanel solarPanel : chunk) {
+                            if (!keys.next()) {
+                                throw new SQLException("Missing generated key for batch insert.");
+                            }
+                            solarPanel.setId(keys.getInt(1));
+                            solarPanel.setVersion(0);
+                        }
+                    }
+                }
+            }
+            return solarPanels;
+        });
+    }
+
     @Override
     public boolean update(SolarPanel solarPanel) {
+        // Compare-and-set: only update the version the caller read.
         final String sql = "update solar_panel set " +
-                "section = ?, " +
+                "section_id = ?, " +
                 "`row` = ?, " +
                 "`column` = ?, " +
                 "year_installed = ?, " +
                 "material = ?, " +
-                "is_tracking = ? " +
-                "where id = ?;";
+                "is_tracking = ?, " +
+                "version = version + 1 " +
+                "where id = ? and version = ?;";
 
         int rowsUpdated = jdbcTemplate.update(sql,
-                solarPanel.getSection(),
+                sections.getOrCreateId(solarPanel.getSection()),
                 solarPanel.getRow(),
                 solarPanel.getColumn(),
                 solarPanel.getYearInstalled(),
                 solarPanel.getMaterial().toString(),
                 solarPanel.isTracking(),
-                solarPanel.getId());
+                solarPanel.getId(),
+                solarPanel.getVersion());
 
-        return rowsUpdated > 0;
+        if (rowsUpdated == 0) {
+            return false;
+        }
+        solarPanel.setVersion(solarPanel.getVersion() + 1);
+        return true;
+    }
+
+    @Override
+    public UpsertType upsert(SolarPanel solarPanel) {
+
+        final String sql = "insert into solar_panel (section_id, `row`, `column`, year_installed, material, is_tracking) " +
+                "values (?, ?, ?, ?, ?, ?) " +
+                "on duplicate key update " +
+                UPSERT_VERSION +
+                "year_installed = values(year_installed), " +
+                "material = values(material), " +
+                "is_tracking = values(is_tracking);";
+
+        int sectionId = sections.getOrCreateId(solarPanel.getSection());
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        int rowsAffected = jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            setValues(statement, solarPanel, sectionId);
+            return statement;
+        }, keyHolder);
+
+        // With `useAffectedRows`, MySQL reports 1 for an insert, 2 for an update, and 0 if nothing changed.
+        // H2 always reports 2 when the natural key is taken, so it never says UNCHANGED.
+        // Only an insert reliably returns a generated key (MySQL returns none when nothing changed),
+        // and an update may have bumped the version, so otherwise both are read back by natural key.
+        if (rowsAffected == 1) {
+            solarPanel.setId(keyHolder.getKey().intValue());
+        } else {
+            jdbcTemplate.query("select id, version from solar_panel where section_id = ? and `row` = ? and `column` = ?;",
+                    (RowCallbackHandler) resultSet -> {
+                        solarPanel.setId(resultSet.getInt("id"));
+                        solarPanel.setVersion(resultSet.getInt("version"));
+                    },
+                    sectionId, solarPanel.getRow(), solarPanel.getColumn());
+        }
+
+        return switch (rowsAffected) {
+            case 1 -> {
+                solarPanel.setVersion(0);
+                yield UpsertType.INSERTED;
+            }
+            case 0 -> UpsertType.UNCHANGED;
+            default -> UpsertType.UPDATED;
+        };
+    }
+
+    @Override
+    @Transactional
+    public List<SolarPanel> upsertAll(List<SolarPanel> solarPanels) {
+
+        // No trailing semicolon, so the driver can rewrite the batch into multi-row statements.
+        final String sql = "insert into solar_panel (section_id, `row`, `column`, year_installed, material, is_tracking) " +
+                "values (?, ?, ?, ?, ?, ?) " +
+                "on duplicate key update " +
+                UPSERT_VERSION +
+                "year_installed = values(year_installed), " +
+                "material = values(material), " +
+                "is_tracking = values(is_tracking)";
+
+        Map<String, Integer> sectionIds = getOrCreateSectionIds(solarPanels);
+        for (int start = 0; start < solarPanels.size(); start += BATCH_SIZE) {
+            List<SolarPanel> chunk = solarPanels.subList(start, Math.min(start + BATCH_SIZE, solarPanels.size()));
+
+            jdbcTemplate.batchUpdate(sql, chunk, chunk.size(), (statement, solarPanel) ->
+                    setValues(statement, solarPanel, sectionIds.get(solarPanel.getSection())));
+
+            // Generated keys aren't reliable for a multi-row upsert, so read the ids back by natural key.
+            StringBuilder keySql = new StringBuilder("select id, version, section_id, `row`, `column` " +
+                    "from solar_panel " +
+                    "where (section_id, `row`, `column`) in (");
+            Object[] args = new Object[chunk.size() * 3];
+            for (int i = 0; i < chunk.size(); i++) {
+                keySql.append(i == 0 ? "(?, ?, ?)" : ", (?, ?, ?)");
+                args[i * 3] = sectionIds.get(chunk.get(i).getSection());
+                args[i * 3 + 1] = chunk.get(i).getRow();
+                args[i * 3 + 2] = chunk.get(i).getColumn();
+            }
+            keySql.append(");");
+
+            Map<String, int[]> idsAndVersions = new HashMap<>();
+            jdbcTemplate.query(keySql.toString(), (RowCallbackHandler) resultSet -> idsAndVersions.put(
+                    naturalKey(resultSet.getInt("section_id"), resultSet.getInt("row"), resultSet.getInt("column")),
+                    new int[]{resultSet.getInt("id"), resultSet.getInt("version")}), args);
+
+            for (SolarPanel solarPanel : chunk) {
+                int[] idAndVersion = idsAndVersions.getOrDefault(
+                        naturalKey(sectionIds.get(solarPanel.getSection()), solarPanel.getRow(), solarPanel.getColumn()),
+                        new int[2]);
+                solarPanel.setId(idAndVersion[0]);
+                solarPanel.setVersion(idAndVersion[1]);
+            }
+        }
+        return solarPanels;
     }
 
     @Override
@@ -137,4 +555,26 @@ public class SolarPanelJdbcTemplateRepository implements SolarPanelRepository {
         final String sql = "delete from solar_panel where id = ?;";
         return jdbcTemplate.update(sql, id) > 0;
     }
+
+    private void setValues(PreparedStatement statement, SolarPanel solarPanel, int sectionId) throws SQLException {
+        statement.setInt(1, sectionId);
+        statement.setInt(2, solarPanel.getRow());
+        statement.setInt(3, solarPanel.getColumn());
+        statement.setInt(4, solarPanel.getYearInstalled());
+        statement.setString(5, solarPanel.getMaterial().toString());
+        statement.setBoolean(6, solarPanel.isTracking());
+    }
+
+    // Resolve each distinct section once, before the batch, so new sections are added up front.
+    private Map<String, Integer> getOrCreateSectionIds(List<SolarPanel> solarPanels) {
+        HashMap<String, Integer> sectionIds = new HashMap<>();
+        for (SolarPanel solarPanel : solarPanels) {
+            sectionIds.computeIfAbsent(solarPanel.getSection(), sections::getOrCreateId);
+        }
+        return sectionIds;
+    }
+
+    private static String naturalKey(int sectionId, int row, int column) {
+        return sectionId + ":" + row + ":" + column;
+    }
 }
@@ -1,19 +1,100 @@
 package learn.solarfarm.data;
 
 import learn.solarfarm.models.SolarPanel;
+import learn.solarfarm.models.SolarPanelCursor;
+import learn.solarfarm.models.SolarPanelFilter;
+import learn.solarfarm.models.SolarPanelGroupCount;
+import learn.solarfarm.models.UpsertType;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface SolarPanelRepository {
     List<SolarPanel> findAll();
 
+    /**
+     * Find a page of solar panels ordered by section, row, column, and id.
+     * @param after The cursor to start after or null to start at the beginning.
+     * @param limit The maximum number of solar panels to return.
+     * @return A List of SolarPanel.
+     */
+    List<SolarPanel> findPage(SolarPanelCursor after, int limit);
+
+    /**
+     * Pass every solar panel, one at a time, to the provided consumer
+     * without loading the whole table into memory.
+     * @param consumer The Consumer to call for each solar panel.
+     */
+    void streamAll(Consumer<SolarPanel> consumer);
+
     List<SolarPanel> findBySection(String section);
 
+    /**
+     * Find the solar panels in a rectangle of a section, ordered by row and column.
+     * @param section The section to search.
+     * @param rowMin The first row, inclusive.
+     * @param rowMax The last row, inclusive.
+     * @param columnMin The first column, inclusive.
+     * @param columnMax The last column, inclusive.
+     * @return A List of SolarPanel.
+     */
+    List<SolarPanel> findByRange(String section, int rowMin, int rowMax, int columnMin, int columnMax);
+
+    /**
+     * Find solar panels that match every criterion in the filter.
+     * @param filter The criteria and sort order.
+     * @param after The cursor to start after (in the filter's sort order) or null to start at the beginning.
+     * @param limit The maximum number of solar panels to return.
+     * @return A List of SolarPanel in the filter's sort order.
+     */
+    List<SolarPanel> findByFilter(SolarPanelFilter filter, SolarPanelCursor after, int limit);
+
     SolarPanel findById(int id);
 
+    /**
+     * Check if a different solar panel already uses the provided solar panel's
+     * section, row, and column (i.e. the natural key).
+     * @param solarPanel The solar panel to check. Its id is excluded from the check.
+     * @return True if the natural key is taken by another solar panel.
+     */
+    boolean existsByNaturalKey(SolarPanel solarPanel);
+
+    /**
+     * Count solar panels grouped by section, material, decade installed, and tracking.
+     * @return A List of SolarPanelGroupCount.
+     */
+    List<SolarPanelGroupCount> countByGroup();
+
     SolarPanel create(SolarPanel solarPanel);
 
+    /**
+     * Create all of the provided solar panels in a single transaction.
+     * @param solarPanels The solar panels to create.
+     * @return The created solar panels (with their ids) in the same order.
+     */
+    List<SolarPanel> createAll(List<SolarPanel> solarPanels);
+
+    /**
+     * Update a solar panel if it's still at the version the caller read.
+     * @param solarPanel The solar panel to update. Its version is incremented on success.
+     * @return False if the panel doesn't exist or its version has moved on.
+     */
     boolean update(SolarPanel solarPanel);
 
+    /**
+     * Insert a solar panel, or update the one with the same section, row, and column, in one statement.
+     * @param solarPanel The solar panel to upsert. Its id and version are ignored and then set to the stored
+     *                   panel's id. The version is only known (0) after an insert.
+     * @return What the upsert did.
+     */
+    UpsertType upsert(SolarPanel solarPanel);
+
+    /**
+     * Upsert all of the provided solar panels in a single transaction.
+     * @param solarPanels The solar panels to upsert. No two may share a section, row, and column.
+     * @return The solar panels (with their ids and versions) in the same order.
+     */
+    List<SolarPanel> upsertAll(List<SolarPanel> solarPanels);
+
     boolean deleteById(int id);
 }
@@ -0,0 +1,44 @@
+package learn.solarfarm.data.mappers;
+
+import learn.solarfarm.models.Material;
+import learn.solarfarm.models.SolarPanel;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class SolarPanelMapper implements RowMapper<SolarPanel> {
+    private final SectionNames sectionNames;
+
+    @FunctionalInterface
+    public interface SectionNames {
+        String getName(int sectionId, ResultSet resultSet) throws SQLException;
+    }
+
+    /**
+     * @param sectionNames Finds a section's name by its `section_id` (see SectionRegistry),
+     *                     so panels share one String per section.
+     */
+    public SolarPanelMapper(SectionNames sectionNames) {
+        this.sectionNames = sectionNames;
+    }
+
+    @Override
+    public SolarPanel mapRow(ResultSet resultSet, int rowIndex) throws SQLException {
+        SolarPanel solarPanel = new SolarPanel();
+
+        solarPanel.setId(resultSet.getInt("id"));
+        solarPanel.setSection(sectionNames.getName(resultSet.getInt("section_id"), resultSet));
+        solarPanel.setRow(resultSet.getInt("row"));
+        solarPanel.setColumn(resultSet.getInt("column"));
+        solarPanel.setYearInstalled(resultSet.getInt("year_installed"));
+
+        Material material = Material.valueOf(resultSet.getString("material"));
+        solarPanel.setMaterial(material);
+
+        solarPanel.setTracking(resultSet.getBoolean("is_tracking"));
+        solarPanel.setVersion(resultSet.getInt("version"));
+
+        return solarPanel;
+    }
+}
@@ -0,0 +1,9 @@
+package learn.solarfarm.domain;
+
+/**
+ * A SolarPanelChangedEvent listener that may need the event's `previous` panel, e.g. to find its old section.
+ * SolarPanelService only reads a panel before updating or deleting it while one of these needs it.
+ */
+public interface PreviousSolarPanelListener {
+    boolean needsPrevious();
+}
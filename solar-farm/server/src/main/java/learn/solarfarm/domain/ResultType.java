@@ -3,5 +3,7 @@ package learn.solarfarm.domain;
 public enum ResultType {
     SUCCESS,
     INVALID,
-    NOT_FOUND
+    NOT_FOUND,
+    // The solar panel changed since the caller read it.
+    CONFLICT
 }
@@ -0,0 +1,463 @@
+package learn.solarfarm.domain;
+
+import learn.solarfarm.models.Material;
+import learn.solarfarm.models.SolarPanel;
+import learn.solarfarm.models.SolarPanelFilter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * An immutable, packed copy of every solar panel for in-memory analytics.
+ * Each section is a sorted long[] of panels (cell, year installed, material, and tracking in one long)
+ * with a parallel int[] of ids, so a panel takes 12 bytes instead of a SolarPanel object.
+ * Scans, filters, and counts read the arrays directly and don't allocate SolarPanels.
+ *
+ * A snapshot never changes. withChanges copies only the sections and id index pages that changed,
+ * so older snapshots stay valid for readers that still hold them.
+ * Versions aren't kept, they only matter for writes.
+ */
+public final class SolarFarmSnapshot {
+    // Rows and columns are always less than this.
+    private static final int GRID_SIZE = SolarPanelService.MAX_ROW_COLUMN;
+    private static final int CELLS = GRID_SIZE * GRID_SIZE;
+    private static final Material[] MATERIALS = Material.values();
+
+    // Bit layout of a packed panel. The top 12 bits are always 0, so packed panels are positive
+    // and sorting them sorts by cell (`row`, `column`).
+    private static final int MATERIAL_SHIFT = 1;
+    private static final int YEAR_SHIFT = 4;
+    private static final int CELL_SHIFT = 36;
+    private static final long MATERIAL_MASK = 0b1110L;
+    private static final long TRACKING_MASK = 1L;
+
+    // The id index is split into pages so a change only copies the page it touches.
+    private static final int ID_PAGE_BITS = 12;
+    private static final int ID_PAGE_SIZE = 1 << ID_PAGE_BITS;
+
+    private static final SolarFarmSnapshot EMPTY = new SolarFarmSnapshot(
+            List.of(), new TreeMap<>(String.CASE_INSENSITIVE_ORDER), new int[0],
+            new long[0][], new int[0][], new int[0][], 0);
+
+    // Indexed by section number, the order sections were first seen.
+    private final List<String> names;
+    // Sections compare without regard to case, just like MySQL does.
+    private final TreeMap<String, Integer> numbersByName;
+    // Section numbers in name order.
+    private final int[] order;
+    private final long[][] panels;
+    private final int[][] ids;
+    // idPages[id >>> ID_PAGE_BITS][id & (ID_PAGE_SIZE - 1)] holds (section number << 16 | cell) + 1,
+    // with 0 meaning "no panel".
+    private final int[][] idPages;
+    private final int size;
+
+    private SolarFarmSnapshot(List<String> names, TreeMap<String, Integer> numbersByName, int[] order,
+                              long[][] panels, int[][] ids, int[][] idPages, int size) {
+        this.names = names;
+        this.numbersByName = numbersByName;
+        this.order = order;
+        this.panels = panels;
+        this.ids = ids;
+        this.idPages = idPages;
+        this.size = size;
+    }
+
+    /**
+     * Build a snapshot from every panel a source hands out, e.g. `SolarFarmSnapshot.build(repository::streamAll)`.
+     * @param source Passes each solar panel to the Consumer it's given.
+     * @return A SolarFarmSnapshot.
+     */
+    public static SolarFarmSnapshot build(Consumer<Consumer<SolarPanel>> source) {
+        Builder builder = new Builder(EMPTY);
+        source.accept(builder::put);
+        return builder.build();
+    }
+
+    /**
+     * Apply changes without rebuilding the whole snapshot.
+     * @param changes The changes in the order they happened.
+     * @return A new SolarFarmSnapshot, this one is left as it was.
+     */
+    public SolarFarmSnapshot withChanges(List<SolarPanelChangedEvent> changes) {
+        if (changes.isEmpty()) {
+            return this;
+        }
+        Builder builder = new Builder(this);
+        for (SolarPanelChangedEvent change : changes) {
+            if (change.getCurrent() == null) {
+                builder.remove(change.getSolarPanelId());
+            } else {
+                builder.put(change.getCurrent());
+            }
+        }
+        return builder.build();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Every section with at least one panel.
+     * @return Section names in order, without regard to case.
+     */
+    public List<String> getSections() {
+        ArrayList<String> result = new ArrayList<>(order.length);
+        for (int number : order) {
+            if (panels[number].length > 0) {
+                result.add(names.get(number));
+            }
+        }
+        return result;
+    }
+
+    public boolean contains(int id) {
+        return findSlot(id) >= 0;
+    }
+
+    /**
+     * Count the panels that match every criterion in the filter. The filter's sort is ignored.
+     * @param filter The criteria.
+     * @return The number of matching panels.
+     */
+    public long count(SolarPanelFilter filter) {
+        Criteria criteria = new Criteria(filter);
+        long count = 0;
+        for (int number : criteria.sections) {
+            for (long panel : panels[number]) {
+                if (criteria.matches(panel)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Find the ids of the panels that match every criterion in the filter,
+     * ordered by section, row, and column. The filter's sort is ignored.
+     * @param filter The criteria.
+     * @param limit The maximum number of ids to return.
+     * @return The matching ids.
+     */
+    public int[] findIds(SolarPanelFilter filter, int limit) {
+        Criteria criteria = new Criteria(filter);
+        int[] result = new int[Math.min(Math.max(limit, 0), size)];
+        int found = 0;
+        for (int number : criteria.sections) {
+            long[] sectionPanels = panels[number];
+            for (int i = 0; i < sectionPanels.length && found < result.length; i++) {
+                if (criteria.matches(sectionPanels[i])) {
+                    result[found++] = ids[number][i];
+                }
+            }
+        }
+        return found == result.length ? result : Arrays.copyOf(result, found);
+    }
+
+    /**
+     * Pass each panel that matches every criterion in the filter to the visitor,
+     * ordered by section, row, and column. Read its fields with the static accessors (e.g. getRow).
+     * @param filter The criteria. The filter's sort is ignored.
+     * @param visitor The PanelVisitor to call for each matching panel.
+     */
+    public void forEach(SolarPanelFilter filter, PanelVisitor visitor) {
+        Criteria criteria = new Criteria(filter);
+        for (int number : criteria.sections) {
+            String name = names.get(number);
+            long[] sectionPanels = panels[number];
+            for (int i = 0; i < sectionPanels.length; i++) {
+                if (criteria.matches(sectionPanels[i])) {
+                    visitor.visit(ids[number][i], name, sectionPanels[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Pack a solar panel's row, column, year installed, material, and tracking into a long.
+     * @param solarPanel The solar panel to pack.
+     * @return The packed panel.
+     */
+    public static long pack(SolarPanel solarPanel) {
+        if (solarPanel.getRow() < 1 || solarPanel.getRow() >= GRID_SIZE ||
+                solarPanel.getColumn() < 1 || solarPanel.getColumn() >= GRID_SIZE) {
+            // Can't happen for panels that passed validation.
+            throw new IllegalArgumentException(
+                    String.format("SolarPanel id %s is outside of the grid.", solarPanel.getId()));
+        }
+        return (long) toCell(solarPanel.getRow(), solarPanel.getColumn()) << CELL_SHIFT
+                | (solarPanel.getYearInstalled() & 0xFFFFFFFFL) << YEAR_SHIFT
+                | (long) solarPanel.getMaterial().ordinal() << MATERIAL_SHIFT
+                | (solarPanel.isTracking() ? TRACKING_MASK : 0);
+    }
+
+    public static int getRow(long panel) {
+        return getCell(panel) / GRID_SIZE;
+    }
+
+    public static int getColumn(long panel) {
+        return getCell(panel) % GRID_SIZE;
+    }
+
+    public static int getYearInstalled(long panel) {
+        return (int) (panel >>> YEAR_SHIFT);
+    }
+
+    public static Material getMaterial(long panel) {
+        return MATERIALS[(int) ((panel & MATERIAL_MASK) >>> MATERIAL_SHIFT)];
+    }
+
+    public static boolean isTracking(long panel) {
+        return (panel & TRACKING_MASK) != 0;
+    }
+
+    private static int getCell(long panel) {
+        return (int) (panel >>> CELL_SHIFT);
+    }
+
+    private static int toCell(int row, int column) {
+        return row * GRID_SIZE + column;
+    }
+
+    private int findSlot(int id) {
+        int page = id >>> ID_PAGE_BITS;
+        if (id <= 0 || page >= idPages.length || idPages[page] == null) {
+            return -1;
+        }
+        return idPages[page][id & (ID_PAGE_SIZE - 1)] - 1;
+    }
+
+    @FunctionalInterface
+    public interface PanelVisitor {
+        /**
+         * @param id The panel's id.
+         * @param section The panel's section.
+         * @param panel The packed panel, read it with SolarFarmSnapshot's static accessors.
+         */
+        void visit(int id, String section, long panel);
+    }
+
+    /**
+     * A SolarPanelFilter turned into bit masks and ranges on packed panels.
+     */
+    private final class Criteria {
+        final int[] sections;
+        // Material and tracking are compared in one step: (panel & mask) == expected.
+        final long mask;
+        final long expected;
+        final int yearMin;
+        final int yearMax;
+
+        Criteria(SolarPanelFilter filter) {
+            if (filter.getSection() == null) {
+                sections = order;
+            } else {
+                Integer number = numbersByName.get(filter.getSection());
+                sections = number == null ? new int[0] : new int[]{number};
+            }
+
+            long mask = 0;
+            long expected = 0;
+            if (filter.getMaterial() != null) {
+                mask |= MATERIAL_MASK;
+                expected |= (long) filter.getMaterial().ordinal() << MATERIAL_SHIFT;
+            }
+            if (filter.getTracking() != null) {
+                mask |= TRACKING_MASK;
+                expected |= filter.getTracking() ? TRACKING_MASK : 0;
+            }
+            this.mask = mask;
+            this.expected = expected;
+
+            yearMin = filter.getYearInstalledMin() == null ? Integer.MIN_VALUE : filter.getYearInstalledMin();
+            yearMax = filter.getYearInstalledMax() == null ? Integer.MAX_VALUE : filter.getYearInstalledMax();
+        }
+
+        boolean matches(long panel) {
+            if ((panel & mask) != expected) {
+                return false;
+            }
+            int yearInstalled = getYearInstalled(panel);
+            return yearInstalled >= yearMin && yearInstalled <= yearMax;
+        }
+    }
+
+    /**
+     * Starts from a snapshot and applies changes. A section that changes is expanded into
+     * arrays indexed by cell while it's being edited, then packed again by build.
+     */
+    private static final class Builder {
+        final ArrayList<String> names;
+        TreeMap<String, Integer> numbersByName;
+        final ArrayList<long[]> panels;
+        final ArrayList<int[]> ids;
+        // Indexed by section number, null until the section changes.
+        final ArrayList<long[]> expandedPanels = new ArrayList<>();
+        final ArrayList<int[]> expandedIds = new ArrayList<>();
+        int[][] idPages;
+        boolean[] copiedPages;
+        boolean sectionAdded;
+
+        Builder(SolarFarmSnapshot base) {
+            names = new ArrayList<>(base.names);
+            numbersByName = base.numbersByName;
+            panels = new ArrayList<>(Arrays.asList(base.panels));
+            ids = new ArrayList<>(Arrays.asList(base.ids));
+            for (int number = 0; number < names.size(); number++) {
+                expandedPanels.add(null);
+                expandedIds.add(null);
+            }
+            idPages = base.idPages.clone();
+            copiedPages = new boolean[idPages.length];
+        }
+
+        void put(SolarPanel solarPanel) {
+            long panel = pack(solarPanel);
+            int id = solarPanel.getId();
+            int number = findOrAddSection(solarPanel.getSection());
+            int cell = getCell(panel);
+
+            // An update can move a panel to another section or cell.
+            remove(id);
+            expand(number);
+            int[] cellIds = expandedIds.get(number);
+            if (cellIds[cell] != 0) {
+                // Another panel's stale entry, e.g. one whose delete wasn't seen.
+                setSlot(cellIds[cell], 0);
+            }
+            cellIds[cell] = id;
+            expandedPanels.get(number)[cell] = panel;
+            setSlot(id, (number << 16 | cell) + 1);
+        }
+
+        void remove(int id) {
+            int slot = getSlot(id) - 1;
+            if (slot < 0) {
+                return;
+            }
+            int number = slot >>> 16;
+            int cell = slot & 0xFFFF;
+            expand(number);
+            expandedIds.get(number)[cell] = 0;
+            expandedPanels.get(number)[cell] = 0;
+            setSlot(id, 0);
+        }
+
+        SolarFarmSnapshot build() {
+            TreeMap<String, Integer> builtNumbersByName = numbersByName;
+            if (sectionAdded) {
+                builtNumbersByName = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+                for (int number = 0; number < names.size(); number++) {
+                    builtNumbersByName.put(names.get(number), number);
+                }
+            }
+            int[] order = builtNumbersByName.values().stream().mapToInt(Integer::intValue).toArray();
+
+            long[][] builtPanels = new long[names.size()][];
+            int[][] builtIds = new int[names.size()][];
+            int size = 0;
+            for (int number = 0; number < names.size(); number++) {
+                int[] cellIds = expandedIds.get(number);
+                if (cellIds == null) {
+                    builtPanels[number] = panels.get(number);
+                    builtIds[number] = ids.get(number);
+                } else {
+                    // Cells are already in order, so packing them keeps the section sorted.
+                    int count = 0;
+                    for (int id : cellIds) {
+                        if (id != 0) {
+                            count++;
+                        }
+                    }
+                    long[] cellPanels = expandedPanels.get(number);
+                    builtPanels[number] = new long[count];
+                    builtIds[number] = new int[count];
+                    int i = 0;
+                    for (int cell = 0; cell < CELLS; cell++) {
+                        if (cellIds[cell] != 0) {
+                            builtPanels[number][i] = cellPanels[cell];
+                            builtIds[number][i] = cellIds[cell];
+                            i++;
+                        }
+                    }
+                }
+                size += builtIds[number].length;
+            }
+
+            return new SolarFarmSnapshot(Collections.unmodifiableList(new ArrayList<>(names)),
+                    builtNumbersByName, order, builtPanels, builtIds, idPages, size);
+        }
+
+        private int findOrAddSection(String name) {
+            Integer number = numbersByName.get(name);
+            if (number != null) {
+                return number;
+            }
+            if (!sectionAdded) {
+                // The base snapshot's map is shared, so copy it before the first change.
+                TreeMap<String, Integer> copy = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+                copy.putAll(numbersByName);
+                numbersByName = copy;
+                sectionAdded = true;
+            }
+            number = names.size();
+            names.add(name);
+            numbersByName.put(name, number);
+            panels.add(new long[0]);
+            ids.add(new int[0]);
+            expandedPanels.add(null);
+            expandedIds.add(null);
+            return number;
+        }
+
+        private void expand(int number) {
+            if (expandedIds.get(number) != null) {
+                return;
+            }
+            long[] cellPanels = new long[CELLS];
+            int[] cellIds = new int[CELLS];
+            long[] sectionPanels = panels.get(number);
+            int[] sectionIds = ids.get(number);
+            for (int i = 0; i < sectionPanels.length; i++) {
+                cellPanels[getCell(sectionPanels[i])] = sectionPanels[i];
+                cellIds[getCell(sectionPanels[i])] = sectionIds[i];
+            }
+            expandedPanels.set(number, cellPanels);
+            expandedIds.set(number, cellIds);
+        }
+
+        private int getSlot(int id) {
+            int page = id >>> ID_PAGE_BITS;
+            if (id <= 0 || page >= idPages.length || idPages[page] == null) {
+                return 0;
+            }
+            return idPages[page][id & (ID_PAGE_SIZE - 1)];
+        }
+
+        private void setSlot(int id, int slot) {
+            if (id <= 0) {
+                return;
+            }
+            int page = id >>> ID_PAGE_BITS;
+            if (page >= idPages.length) {
+                if (slot == 0) {
+                    return;
+                }
+                int length = Math.max(idPages.length * 2, page + 1);
+                idPages = Arrays.copyOf(idPages, length);
+                copiedPages = Arrays.copyOf(copiedPages, length);
+            }
+            if (!copiedPages[page]) {
+                idPages[page] = idPages[page] == null ? new int[ID_PAGE_SIZE] : idPages[page].clone();
+                copiedPages[page] = true;
+            }
+            idPages[page][id & (ID_PAGE_SIZE - 1)] = slot;
+        }
+    }
+}
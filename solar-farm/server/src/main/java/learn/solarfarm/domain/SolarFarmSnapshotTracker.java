@@ -0,0 +1,103 @@
+package learn.solarfarm.domain;
+
+import learn.solarfarm.data.SolarPanelRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+
+/**
+ * Keeps a SolarFarmSnapshot up to date as panels change.
+ * The first read streams every panel from the repository. After that, SolarPanelChangedEvents are
+ * collected and applied on the next read, copying only the sections they touched.
+ *
+ * Streaming a big farm takes a while, so a build doesn't hold the lock: readers keep getting the
+ * previous snapshot, and changes made during the build are replayed on the new one before it's swapped in.
+ */
+@Component
+public class SolarFarmSnapshotTracker {
+    // Apply waiting changes once there are this many, even if nobody reads the snapshot.
+    private static final int MAX_PENDING_CHANGES = 10_000;
+
+    private final SolarPanelRepository repository;
+    // One build at a time. Reads and changes only ever wait on `this`.
+    private final Object buildLock = new Object();
+    private final ArrayList<SolarPanelChangedEvent> pending = new ArrayList<>();
+
+    // Null until the first read, so servers that never use it don't load every panel.
+    private SolarFarmSnapshot snapshot;
+    // Every change since the running build started, null when there's no build running.
+    private ArrayList<SolarPanelChangedEvent> duringBuild;
+
+    public SolarFarmSnapshotTracker(SolarPanelRepository repository) {
+        this.repository = repository;
+    }
+
+    public void rebuild() {
+        synchronized (buildLock) {
+            synchronized (this) {
+                duringBuild = new ArrayList<>();
+            }
+
+            SolarFarmSnapshot built = null;
+            try {
+                built = SolarFarmSnapshot.build(repository::streamAll);
+            } finally {
+                synchronized (this) {
+                    if (built != null) {
+                        // A change made during the build may or may not be in it. Replaying it is safe either way,
+                        // since each change puts the panel's latest state (or removes it).
+                        snapshot = built.withChanges(duringBuild);
+                        pending.clear();
+                    }
+                    duringBuild = null;
+                }
+            }
+        }
+    }
+
+    // After commit, so a rolled back write never shows up in the snapshot.
+    // Writes outside a transaction publish straight away, hence the fallback.
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onSolarPanelChanged(SolarPanelChangedEvent event) {
+        if (duringBuild != null) {
+            duringBuild.add(event);
+        }
+        if (snapshot == null) {
+            // The first read will see it.
+            return;
+        }
+        pending.add(event);
+        if (pending.size() >= MAX_PENDING_CHANGES) {
+            applyPending();
+        }
+    }
+
+    public SolarFarmSnapshot getSnapshot() {
+        synchronized (this) {
+            if (snapshot != null) {
+                applyPending();
+                return snapshot;
+            }
+        }
+
+        synchronized (buildLock) {
+            // Someone else may have built it while we waited.
+            synchronized (this) {
+                if (snapshot != null) {
+                    applyPending();
+                    return snapshot;
+                }
+            }
+            rebuild();
+        }
+        synchronized (this) {
+            return snapshot;
+        }
+    }
+
+    private void applyPending() {
+        snapshot = snapshot.withChanges(pending);
+        pending.clear();
+    }
+}
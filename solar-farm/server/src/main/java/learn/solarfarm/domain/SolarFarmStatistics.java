@@ -0,0 +1,51 @@
+package learn.solarfarm.domain;
+
+import learn.solarfarm.models.Material;
+
+import java.util.Map;
+
+/**
+ * Panel counts for the whole farm, broken down a few different ways.
+ */
+public class SolarFarmStatistics {
+    private final long total;
+    private final long tracking;
+    private final long fixed;
+    private final Map<String, Long> bySection;
+    private final Map<Material, Long> byMaterial;
+    private final Map<Integer, Long> byDecadeInstalled;
+
+    public SolarFarmStatistics(long total, long tracking, long fixed, Map<String, Long> bySection,
+                               Map<Material, Long> byMaterial, Map<Integer, Long> byDecadeInstalled) {
+        this.total = total;
+        this.tracking = tracking;
+        this.fixed = fixed;
+        this.bySection = bySection;
+        this.byMaterial = byMaterial;
+        this.byDecadeInstalled = byDecadeInstalled;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getTracking() {
+        return tracking;
+    }
+
+    public long getFixed() {
+        return fixed;
+    }
+
+    public Map<String, Long> getBySection() {
+        return bySection;
+    }
+
+    public Map<Material, Long> getByMaterial() {
+        return byMaterial;
+    }
+
+    public Map<Integer, Long> getByDecadeInstalled() {
+        return byDecadeInstalled;
+    }
+}
@@ -0,0 +1,158 @@
+package learn.solarfarm.domain;
+
+import learn.solarfarm.data.SolarPanelRepository;
+import learn.solarfarm.models.Material;
+import learn.solarfarm.models.SolarPanel;
+import learn.solarfarm.models.SolarPanelGroupCount;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Keeps farm statistics up to date as panels change, so reading them doesn't scan the table.
+ * The counts are loaded with a single GROUP BY query at startup, then adjusted by
+ * SolarPanelChangedEvents once their transaction commits.
+ *
+ * An update's previous panel is read before the update, so a concurrent write can slip in between
+ * and leave the counts a little off. Reloading them every `solarfarm.statistics.reconcile-interval`
+ * puts that right.
+ */
+@Component
+public class SolarFarmStatisticsTracker implements PreviousSolarPanelListener {
+    private static final int REBUILD_ATTEMPTS = 3;
+
+    private final SolarPanelRepository repository;
+
+    private Counts counts = new Counts();
+    // How many changes have been applied, so a rebuild can tell whether one landed while it was querying.
+    private long changes;
+
+    // When we can't tell how a change affected the counts, reload them on the next read.
+    private volatile boolean stale = true;
+    private SolarFarmStatistics snapshot;
+
+    public SolarFarmStatisticsTracker(SolarPanelRepository repository) {
+        this.repository = repository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${solarfarm.statistics.reconcile-interval:PT5M}",
+            fixedDelayString = "${solarfarm.statistics.reconcile-interval:PT5M}")
+    public void rebuild() {
+        for (int attempt = 1; ; attempt++) {
+            long changesBefore;
+            synchronized (this) {
+                changesBefore = changes;
+            }
+
+            // The query runs without the lock, so reads and changes don't wait on it.
+            Counts rebuilt = new Counts();
+            for (SolarPanelGroupCount group : repository.countByGroup()) {
+                rebuilt.add(group.getSection(), group.getMaterial(), group.getDecadeInstalled(),
+                        group.isTracking(), group.getCount());
+            }
+
+            synchronized (this) {
+                // A change that committed during the query may or may not be in its counts, so query again.
+                // If changes keep coming, keep the last counts anyway and let the next reconcile fix them.
+                if (changes == changesBefore || attempt == REBUILD_ATTEMPTS) {
+                    counts = rebuilt;
+                    stale = false;
+                    snapshot = null;
+                    return;
+                }
+            }
+        }
+    }
+
+    // Taking the old panel's counts off needs to know what it was. While the counts are stale, nothing does.
+    @Override
+    public boolean needsPrevious() {
+        return !stale;
+    }
+
+    // After commit, so a rolled back write never touches the counts.
+    // Writes outside a transaction publish straight away, hence the fallback.
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onSolarPanelChanged(SolarPanelChangedEvent event) {
+        changes++;
+        if (stale) {
+            return;
+        }
+
+        SolarPanel previous = event.getPrevious();
+        SolarPanel current = event.getCurrent();
+
+        if (event.getChangeType() != SolarPanelChangeType.CREATED) {
+            if (previous == null) {
+                stale = true;
+                return;
+            }
+            counts.add(previous, -1);
+        }
+        if (current != null) {
+            counts.add(current, 1);
+        }
+        snapshot = null;
+    }
+
+    public SolarFarmStatistics getStatistics() {
+        if (stale) {
+            rebuild();
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                snapshot = counts.toStatistics();
+            }
+            return snapshot;
+        }
+    }
+
+    public static int toDecade(int yearInstalled) {
+        return Math.floorDiv(yearInstalled, 10) * 10;
+    }
+
+    private static final class Counts {
+        // Sections compare without regard to case, just like MySQL does.
+        private final TreeMap<String, Long> bySection = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        private final EnumMap<Material, Long> byMaterial = new EnumMap<>(Material.class);
+        private final TreeMap<Integer, Long> byDecadeInstalled = new TreeMap<>();
+        private long tracking;
+        private long fixed;
+
+        void add(SolarPanel solarPanel, long count) {
+            add(solarPanel.getSection(), solarPanel.getMaterial(), toDecade(solarPanel.getYearInstalled()),
+                    solarPanel.isTracking(), count);
+        }
+
+        void add(String section, Material material, int decade, boolean isTracking, long count) {
+            adjust(bySection, section, count);
+            adjust(byMaterial, material, count);
+            adjust(byDecadeInstalled, decade, count);
+            if (isTracking) {
+                tracking += count;
+            } else {
+                fixed += count;
+            }
+        }
+
+        SolarFarmStatistics toStatistics() {
+            return new SolarFarmStatistics(tracking + fixed, tracking, fixed,
+                    Collections.unmodifiableMap(new TreeMap<>(bySection)),
+                    Collections.unmodifiableMap(new EnumMap<>(byMaterial)),
+                    Collections.unmodifiableMap(new TreeMap<>(byDecadeInstalled)));
+        }
+
+        private static <K> void adjust(Map<K, Long> counts, K key, long count) {
+            // Drop keys that reach zero so emptied sections disappear.
+            counts.merge(key, count, (a, b) -> a + b == 0 ? null : a + b);
+        }
+    }
+}
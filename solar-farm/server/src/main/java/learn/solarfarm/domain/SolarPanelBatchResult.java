@@ -0,0 +1,48 @@
+package learn.solarfarm.domain;
+
+import learn.solarfarm.models.SolarPanel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SolarPanelBatchResult {
+    private final ArrayList<String> messages = new ArrayList<>();
+    private final ArrayList<SolarPanelResult> results = new ArrayList<>();
+
+    /**
+     * Errors that apply to the batch as a whole.
+     * @return A List of error messages.
+     */
+    public List<String> getErrorMessages() {
+        return new ArrayList<>(messages);
+    }
+
+    public void addErrorMessage(String format, Object... args) {
+        messages.add(String.format(format, args));
+    }
+
+    /**
+     * One result per item, in the same order as the items were submitted.
+     * @return A List of SolarPanelResult.
+     */
+    public List<SolarPanelResult> getResults() {
+        return new ArrayList<>(results);
+    }
+
+    public void addResult(SolarPanelResult result) {
+        results.add(result);
+    }
+
+    public List<Integer> getIds() {
+        ArrayList<Integer> ids = new ArrayList<>();
+        for (SolarPanelResult result : results) {
+            SolarPanel solarPanel = result.getSolarPanel();
+            ids.add(solarPanel == null ? 0 : solarPanel.getId());
+        }
+        return ids;
+    }
+
+    public boolean isSuccess() {
+        return messages.isEmpty() && results.stream().allMatch(SolarPanelResult::isSuccess);
+    }
+}
@@ -0,0 +1,133 @@
+package learn.solarfarm.domain;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import learn.solarfarm.data.ReadReplicas;
+import learn.solarfarm.models.SolarPanel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * An optional read-through cache for SolarPanelService reads.
+ * Turn it on with `solarfarm.cache.enabled=true`.
+ * SolarPanel is mutable, so the cache keeps its own copies and hands out fresh ones:
+ * a caller that changes a panel it got back can't change what the next caller sees.
+ *
+ * Misses load from the primary, not a read replica. A replica that hasn't caught up with a write yet
+ * would hand back the panel from before it, and the cache would keep that for the whole TTL
+ * after the write's invalidation. Hits still spare the primary.
+ */
+@Component
+public class SolarPanelCache implements PreviousSolarPanelListener {
+    private final Cache<Integer, SolarPanel> byId;
+    private final Cache<String, List<SolarPanel>> bySection;
+
+    public SolarPanelCache(@Value("${solarfarm.cache.enabled:false}") boolean enabled,
+                           @Value("${solarfarm.cache.maximum-size:10000}") long maximumSize,
+                           @Value("${solarfarm.cache.ttl:60s}") Duration ttl) {
+        if (enabled) {
+            byId = Caffeine.newBuilder()
+                    .maximumSize(maximumSize)
+                    .expireAfterWrite(ttl)
+                    .recordStats()
+                    .build();
+            // A section list is much bigger than a single panel, so weigh entries by panel count.
+            bySection = Caffeine.newBuilder()
+                    .maximumWeight(maximumSize)
+                    .<String, List<SolarPanel>>weigher((section, solarPanels) -> Math.max(1, solarPanels.size()))
+                    .expireAfterWrite(ttl)
+                    .recordStats()
+                    .build();
+        } else {
+            byId = null;
+            bySection = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return byId != null;
+    }
+
+    public SolarPanel findById(int id, IntFunction<SolarPanel> loader) {
+        if (!isEnabled()) {
+            return loader.apply(id);
+        }
+        // A null (not found) result isn't cached.
+        return copy(byId.get(id, key -> copy(ReadReplicas.onPrimary(() -> loader.apply(key)))));
+    }
+
+    /**
+     * @return A copy of the cached panel, or null if it isn't cached. Never loads it.
+     */
+    public SolarPanel findCachedById(int id) {
+        return isEnabled() ? copy(byId.getIfPresent(id)) : null;
+    }
+
+    public List<SolarPanel> findBySection(String section, Function<String, List<SolarPanel>> loader) {
+        if (!isEnabled() || section == null) {
+            return loader.apply(section);
+        }
+        // MySQL compares sections without regard to case, so the cache does too.
+        return copy(bySection.get(section.toLowerCase(),
+                key -> List.copyOf(copy(ReadReplicas.onPrimary(() -> loader.apply(section))))));
+    }
+
+    // The old section has to be invalidated along with the new one.
+    @Override
+    public boolean needsPrevious() {
+        return isEnabled();
+    }
+
+    // After commit. Invalidated any earlier, a read before the commit could put the old panel
+    // right back for the whole TTL. Writes outside a transaction publish straight away, hence the fallback.
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSolarPanelChanged(SolarPanelChangedEvent event) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        byId.invalidate(event.getSolarPanelId());
+
+        if (event.getPrevious() == null && event.getCurrent() == null) {
+            // We don't know which section the panel was in.
+            bySection.invalidateAll();
+            return;
+        }
+        invalidateSection(event.getPrevious());
+        invalidateSection(event.getCurrent());
+    }
+
+    public List<SolarPanelCacheStatistics> getStatistics() {
+        if (!isEnabled()) {
+            return List.of();
+        }
+        return List.of(
+                new SolarPanelCacheStatistics("byId", byId.estimatedSize(), byId.stats()),
+                new SolarPanelCacheStatistics("bySection", bySection.estimatedSize(), bySection.stats()));
+    }
+
+    private static SolarPanel copy(SolarPanel solarPanel) {
+        return solarPanel == null ? null : new SolarPanel(solarPanel);
+    }
+
+    private static List<SolarPanel> copy(List<SolarPanel> solarPanels) {
+        ArrayList<SolarPanel> copies = new ArrayList<>(solarPanels.size());
+        for (SolarPanel solarPanel : solarPanels) {
+            copies.add(copy(solarPanel));
+        }
+        return copies;
+    }
+
+    private void invalidateSection(SolarPanel solarPanel) {
+        if (solarPanel != null && solarPanel.getSection() != null) {
+            bySection.invalidate(solarPanel.getSection().toLowerCase());
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package learn.solarfarm.domain;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+public class SolarPanelCacheStatistics {
+    private final String name;
+    private final long size;
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final double hitRate;
+
+    public SolarPanelCacheStatistics(String name, long size, CacheStats stats) {
+        this.name = name;
+        this.size = size;
+        this.hitCount = stats.hitCount();
+        this.missCount = stats.missCount();
+        this.evictionCount = stats.evictionCount();
+        this.hitRate = stats.hitRate();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public double getHitRate() {
+        return hitRate;
+    }
+}
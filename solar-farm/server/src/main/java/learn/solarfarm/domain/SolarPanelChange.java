@@ -0,0 +1,40 @@
+package learn.solarfarm.domain;
+
+import learn.solarfarm.models.SolarPanel;
+
+/**
+ * One entry in the SolarPanelChangeFeed: what happened to a solar panel, numbered in the order it happened.
+ */
+public class SolarPanelChange {
+    private final long sequence;
+    private final SolarPanelChangeType changeType;
+    private final int solarPanelId;
+    private final SolarPanel solarPanel;
+
+    public SolarPanelChange(long sequence, SolarPanelChangeType changeType, int solarPanelId, SolarPanel solarPanel) {
+        this.sequence = sequence;
+        this.changeType = changeType;
+        this.solarPanelId = solarPanelId;
+        this.solarPanel = solarPanel;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public SolarPanelChangeType getChangeType() {
+        return changeType;
+    }
+
+    public int getSolarPanelId() {
+        return solarPanelId;
+    }
+
+    /**
+     * The solar panel after the change.
+     * @return A SolarPanel or null if it was deleted.
+     */
+    public SolarPanel getSolarPanel() {
+        return solarPanel;
+    }
+}
@@ -0,0 +1,286 @@
+package learn.solarfarm.domain;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Numbers every SolarPanelChangedEvent and keeps the most recent ones in a ring buffer,
+ * so subscribers can resume from the last sequence number they saw.
+ *
+ * The writer that published the event only appends to the buffer and wakes subscribers up.
+ * Each subscriber is then caught up on the feed's own threads, one task at a time, so a slow
+ * subscriber never holds up a write (or the other subscribers' order).
+ *
+ * Sending blocks while the client's connection is full, so a task sends one batch and then goes to the
+ * back of the line, and a subscriber whose send takes longer than `solarfarm.changes.send-timeout` is
+ * cut off. A subscriber that falls further behind than the buffer is told to reload instead of queueing.
+ */
+@Component
+public class SolarPanelChangeFeed {
+    // The most changes handed to a subscriber at once.
+    private static final int MAX_CHANGES_PER_DELIVERY = 500;
+
+    // Sequence numbers start over on restart, so a client resuming from a previous run has to be told apart.
+    private final String instance = Long.toString(System.currentTimeMillis(), 36);
+    private final SolarPanelChange[] buffer;
+    private final Executor executor;
+    private final long sendTimeoutNanos;
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+    // Guarded by this, along with buffer.
+    private long lastSequence;
+
+    @Autowired
+    public SolarPanelChangeFeed(@Value("${solarfarm.changes.buffer-size:10000}") int bufferSize,
+                                @Value("${solarfarm.changes.threads:4}") int threads,
+                                @Value("${solarfarm.changes.send-timeout:PT10S}") Duration sendTimeout) {
+        this(bufferSize, Executors.newFixedThreadPool(threads, daemonThreads()), sendTimeout);
+    }
+
+    SolarPanelChangeFeed(int bufferSize, Executor executor, Duration sendTimeout) {
+        this.buffer = new SolarPanelChange[bufferSize];
+        this.executor = executor;
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+    }
+
+    // After commit, so subscribers never see a change that rolls back, and sequence numbers follow commit order.
+    // Writes outside a transaction publish straight away, hence the fallback.
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSolarPanelChanged(SolarPanelChangedEvent event) {
+        synchronized (this) {
+            lastSequence++;
+            buffer[(int) (lastSequence % buffer.length)] = new SolarPanelChange(lastSequence,
+                    event.getChangeType(), event.getSolarPanelId(), event.getCurrent());
+        }
+        for (Subscription subscription : subscriptions) {
+            subscription.schedule();
+        }
+    }
+
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * @return What tells this run's sequence numbers apart from a previous run's.
+     */
+    public String getInstance() {
+        return instance;
+    }
+
+    /**
+     * Start sending changes to a subscriber.
+     * @param after The last sequence number the subscriber saw (getLastSequence for only changes from now on).
+     * @param subscriber The Subscriber to send changes to.
+     * @return The Subscription, cancel it when the subscriber goes away.
+     */
+    public Subscription subscribe(long after, Subscriber subscriber) {
+        Subscription subscription = new Subscription(after, subscriber);
+        subscriptions.add(subscription);
+        // Send anything the subscriber missed right away.
+        subscription.schedule();
+        return subscription;
+    }
+
+    /**
+     * Cut off subscribers stuck sending for longer than the send timeout, so they give their thread back.
+     * Checked every send timeout, so a stuck send is noticed within twice that.
+     */
+    @Scheduled(initialDelayString = "${solarfarm.changes.send-timeout:PT10S}",
+            fixedDelayString = "${solarfarm.changes.send-timeout:PT10S}")
+    public void cancelStalled() {
+        long now = System.nanoTime();
+        for (Subscription subscription : subscriptions) {
+            subscription.cancelIfStalled(now);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Subscription subscription : subscriptions) {
+            subscription.cancel();
+        }
+        if (executor instanceof ExecutorService executorService) {
+            // Interrupts any sends still running.
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Find the changes after a sequence number.
+     * @param after The last sequence number already seen.
+     * @param limit The maximum number of changes to return.
+     * @return The changes in order, or null if some of them are no longer in the buffer
+     * (or `after` is from before a restart).
+     */
+    synchronized List<SolarPanelChange> findAfter(long after, int limit) {
+        if (after > lastSequence || after < lastSequence - buffer.length) {
+            return null;
+        }
+        int count = (int) Math.min(limit, lastSequence - after);
+        ArrayList<SolarPanelChange> result = new ArrayList<>(count);
+        for (long sequence = after + 1; sequence <= after + count; sequence++) {
+            result.add(buffer[(int) (sequence % buffer.length)]);
+        }
+        return result;
+    }
+
+    private static CustomizableThreadFactory daemonThreads() {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("change-feed-");
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+
+    public interface Subscriber {
+        /**
+         * Called with the next changes, in order. Calls for one subscriber never overlap.
+         * Throwing cancels the subscription.
+         */
+        void onChanges(List<SolarPanelChange> changes) throws IOException;
+
+        /**
+         * Called instead of onChanges when the changes the subscriber needs are no longer in the buffer.
+         * It should reload everything. The subscription is cancelled afterwards.
+         * @param lastSequence The sequence number to resume from after reloading.
+         */
+        void onMissed(long lastSequence) throws IOException;
+
+        /**
+         * Called from another thread when a send has taken longer than the send timeout.
+         * The subscription is already cancelled; the subscriber should close its connection,
+         * so the stuck send fails.
+         */
+        void onStalled();
+    }
+
+    public final class Subscription {
+        private final Subscriber subscriber;
+        // Counts wake-ups, so at most one delivery task runs (or waits to run) per subscription.
+        private final AtomicInteger wakeUps = new AtomicInteger();
+        // Only touched by the delivery task.
+        private long after;
+        private volatile boolean cancelled;
+        // The thread sending to the subscriber and when it started, guarded by this. Null when not sending.
+        private Thread sender;
+        private long sendStarted;
+
+        private Subscription(long after, Subscriber subscriber) {
+            this.after = after;
+            this.subscriber = subscriber;
+        }
+
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+        }
+
+        private void schedule() {
+            if (!cancelled && wakeUps.getAndIncrement() == 0) {
+                submit();
+            }
+        }
+
+        private void submit() {
+            try {
+                executor.execute(this::deliver);
+            } catch (RejectedExecutionException ex) {
+                // Shutting down.
+                cancel();
+            }
+        }
+
+        private void deliver() {
+            int handled = wakeUps.get();
+            while (true) {
+                if (deliverNext()) {
+                    // There's more, but let the other subscribers have a turn first.
+                    // The wake-ups stay counted, so nothing else schedules this subscription meanwhile.
+                    submit();
+                    return;
+                }
+                // Wake-ups that came in while sending need another pass.
+                handled = wakeUps.addAndGet(-handled);
+                if (handled == 0) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Send the next batch of changes, if there is one.
+         * @return true if the batch was full, so there may be more.
+         */
+        private boolean deliverNext() {
+            if (cancelled) {
+                return false;
+            }
+            startSending();
+            try {
+                List<SolarPanelChange> changes = findAfter(after, MAX_CHANGES_PER_DELIVERY);
+                if (changes == null) {
+                    cancel();
+                    subscriber.onMissed(getLastSequence());
+                    return false;
+                }
+                if (changes.isEmpty()) {
+                    return false;
+                }
+                subscriber.onChanges(changes);
+                after = changes.get(changes.size() - 1).getSequence();
+                return changes.size() == MAX_CHANGES_PER_DELIVERY;
+            } catch (IOException | RuntimeException ex) {
+                // The subscriber went away.
+                cancel();
+                return false;
+            } finally {
+                stopSending();
+            }
+        }
+
+        private synchronized void startSending() {
+            sender = Thread.currentThread();
+            sendStarted = System.nanoTime();
+        }
+
+        private void stopSending() {
+            synchronized (this) {
+                sender = null;
+            }
+            // Don't hand an interrupt meant for this send on to the pool thread's next task.
+            Thread.interrupted();
+        }
+
+        private void cancelIfStalled(long now) {
+            synchronized (this) {
+                if (sender == null || now - sendStarted <= sendTimeoutNanos) {
+                    return;
+                }
+                cancel();
+                // Blocking writes may give up when interrupted. Closing the connection below covers the rest.
+                sender.interrupt();
+            }
+            try {
+                subscriber.onStalled();
+            } catch (RuntimeException ex) {
+                // Already cancelled, nothing more to do.
+            }
+        }
+    }
+}
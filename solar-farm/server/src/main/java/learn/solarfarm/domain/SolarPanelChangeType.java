@@ -0,0 +1,7 @@
+package learn.solarfarm.domain;
+
+public enum SolarPanelChangeType {
+    CREATED,
+    UPDATED,
+    DELETED
+}
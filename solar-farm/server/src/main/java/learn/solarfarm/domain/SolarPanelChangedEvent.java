@@ -0,0 +1,57 @@
+package learn.solarfarm.domain;
+
+import learn.solarfarm.models.SolarPanel;
+
+/**
+ * Published by the SolarPanelService after a solar panel is written.
+ */
+public class SolarPanelChangedEvent {
+    private final SolarPanelChangeType changeType;
+    private final int solarPanelId;
+    private final SolarPanel previous;
+    private final SolarPanel current;
+
+    public SolarPanelChangedEvent(SolarPanelChangeType changeType, int solarPanelId,
+                                  SolarPanel previous, SolarPanel current) {
+        this.changeType = changeType;
+        this.solarPanelId = solarPanelId;
+        this.previous = previous;
+        this.current = current;
+    }
+
+    public static SolarPanelChangedEvent created(SolarPanel current) {
+        return new SolarPanelChangedEvent(SolarPanelChangeType.CREATED, current.getId(), null, current);
+    }
+
+    public static SolarPanelChangedEvent updated(SolarPanel previous, SolarPanel current) {
+        return new SolarPanelChangedEvent(SolarPanelChangeType.UPDATED, current.getId(), previous, current);
+    }
+
+    public static SolarPanelChangedEvent deleted(int solarPanelId, SolarPanel previous) {
+        return new SolarPanelChangedEvent(SolarPanelChangeType.DELETED, solarPanelId, previous, null);
+    }
+
+    public SolarPanelChangeType getChangeType() {
+        return changeType;
+    }
+
+    public int getSolarPanelId() {
+        return solarPanelId;
+    }
+
+    /**
+     * The solar panel before the change.
+     * @return A SolarPanel or null if it was just created or wasn't known.
+     */
+    public SolarPanel getPrevious() {
+        return previous;
+    }
+
+    /**
+     * The solar panel after the change.
+     * @return A SolarPanel or null if it was deleted.
+     */
+    public SolarPanel getCurrent() {
+        return current;
+    }
+}
@@ -0,0 +1,183 @@
+package learn.solarfarm.domain;
+
+import learn.solarfarm.models.Material;
+import learn.solarfarm.models.SolarPanel;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads solar panels from CSV one line at a time, so a file of any size is never held in memory.
+ * The first line is a header naming the columns, in any order:
+ * `section,row,column,yearInstalled,material,tracking`.
+ * Quoted fields (with "" for a quote) are supported, but a field can't span lines.
+ */
+public class SolarPanelCsvReader {
+    static final String[] COLUMNS = {"section", "row", "column", "yearInstalled", "material", "tracking"};
+
+    private final BufferedReader reader;
+    private final int[] indexes = new int[COLUMNS.length];
+    private int lineNumber;
+
+    public SolarPanelCsvReader(Reader reader) throws IOException {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+
+        String header = nextLine();
+        if (header == null) {
+            throw new IllegalArgumentException("The CSV is empty.");
+        }
+
+        Map<String, Integer> byName = new HashMap<>();
+        List<String> names = split(header);
+        for (int i = 0; i < names.size(); i++) {
+            byName.put(names.get(i).trim().toLowerCase(), i);
+        }
+        for (int i = 0; i < COLUMNS.length; i++) {
+            Integer index = byName.get(COLUMNS[i].toLowerCase());
+            if (index == null) {
+                throw new IllegalArgumentException(String.format("The CSV header is missing `%s`.", COLUMNS[i]));
+            }
+            indexes[i] = index;
+        }
+    }
+
+    /**
+     * Read the next row, skipping blank lines.
+     * @return A Row or null at the end of the input.
+     */
+    public Row next() throws IOException {
+        String line;
+        do {
+            line = nextLine();
+            if (line == null) {
+                return null;
+            }
+        } while (line.isBlank());
+
+        Row row = new Row(lineNumber);
+        List<String> fields = split(line);
+        if (fields == null) {
+            row.errors.add("Unterminated quoted field.");
+            return row;
+        }
+
+        String[] values = new String[COLUMNS.length];
+        for (int i = 0; i < COLUMNS.length; i++) {
+            values[i] = indexes[i] < fields.size() ? fields.get(indexes[i]).trim() : "";
+        }
+
+        SolarPanel solarPanel = new SolarPanel();
+        solarPanel.setSection(values[0].isEmpty() ? null : values[0]);
+        solarPanel.setRow(parseInt(values[1], COLUMNS[1], row));
+        solarPanel.setColumn(parseInt(values[2], COLUMNS[2], row));
+        solarPanel.setYearInstalled(parseInt(values[3], COLUMNS[3], row));
+        solarPanel.setMaterial(parseMaterial(values[4], row));
+        solarPanel.setTracking(parseBoolean(values[5], row));
+        row.solarPanel = solarPanel;
+        return row;
+    }
+
+    private String nextLine() throws IOException {
+        String line = reader.readLine();
+        if (line != null) {
+            lineNumber++;
+        }
+        return line;
+    }
+
+    // Returns null if a quoted field isn't closed.
+    static List<String> split(String line) {
+        ArrayList<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+
+        if (quoted) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static int parseInt(String value, String column, Row row) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            row.errors.add(String.format("`%s` must be a number.", column));
+            return 0;
+        }
+    }
+
+    private static Material parseMaterial(String value, Row row) {
+        Material material = Material.parse(value);
+        if (material == null) {
+            row.errors.add(String.format("Unknown `material`: %s.", value));
+        }
+        return material;
+    }
+
+    private static boolean parseBoolean(String value, Row row) {
+        if (value.equalsIgnoreCase("true") || value.equals("1")) {
+            return true;
+        }
+        if (value.equalsIgnoreCase("false") || value.equals("0") || value.isEmpty()) {
+            return false;
+        }
+        row.errors.add("`tracking` must be true or false.");
+        return false;
+    }
+
+    public static class Row {
+        private final int lineNumber;
+        private final ArrayList<String> errors = new ArrayList<>();
+        private SolarPanel solarPanel;
+
+        Row(int lineNumber) {
+            this.lineNumber = lineNumber;
+        }
+
+        public int getLineNumber() {
+            return lineNumber;
+        }
+
+        /**
+         * Problems reading the line, before any validation.
+         * @return A List of error messages.
+         */
+        public List<String> getErrors() {
+            return new ArrayList<>(errors);
+        }
+
+        /**
+         * @return The SolarPanel, or null if the line couldn't be split into fields.
+         */
+        public SolarPanel getSolarPanel() {
+            return solarPanel;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package learn.solarfarm.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SolarPanelImportError {
+    private final int lineNumber;
+    private final List<String> messages;
+
+    public SolarPanelImportError(int lineNumber, List<String> messages) {
+        this.lineNumber = lineNumber;
+        this.messages = new ArrayList<>(messages);
+    }
+
+    /**
+     * The CSV line the errors are for (the header is line 1).
+     * @return A line number.
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    public List<String> getMessages() {
+        return new ArrayList<>(messages);
+    }
+}
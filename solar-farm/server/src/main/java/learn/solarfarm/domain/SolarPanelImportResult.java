@@ -0,0 +1,82 @@
+package learn.solarfarm.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SolarPanelImportResult {
+    private final ArrayList<String> messages = new ArrayList<>();
+    private final ArrayList<SolarPanelImportError> errors = new ArrayList<>();
+    private final int maxErrors;
+    private long rowsRead;
+    private long imported;
+    private long failed;
+    private int chunksCommitted;
+
+    public SolarPanelImportResult(int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * Errors that stopped the import as a whole (e.g. a bad header).
+     * @return A List of error messages.
+     */
+    public List<String> getErrorMessages() {
+        return new ArrayList<>(messages);
+    }
+
+    public void addErrorMessage(String message) {
+        messages.add(message);
+    }
+
+    /**
+     * Per-row errors, in file order. Only the first `maxErrors` are kept so memory stays
+     * bounded, but every failed row is counted in `failed`.
+     * @return A List of SolarPanelImportError.
+     */
+    public List<SolarPanelImportError> getRowErrors() {
+        return new ArrayList<>(errors);
+    }
+
+    public boolean isRowErrorsTruncated() {
+        return failed > errors.size();
+    }
+
+    void addRowError(int lineNumber, List<String> rowMessages) {
+        failed++;
+        if (errors.size() < maxErrors) {
+            errors.add(new SolarPanelImportError(lineNumber, rowMessages));
+        }
+    }
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    void addRowsRead(int count) {
+        rowsRead += count;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    void addImported(int count) {
+        imported += count;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public int getChunksCommitted() {
+        return chunksCommitted;
+    }
+
+    void addChunkCommitted() {
+        chunksCommitted++;
+    }
+
+    public boolean isSuccess() {
+        return messages.isEmpty() && failed == 0;
+    }
+}
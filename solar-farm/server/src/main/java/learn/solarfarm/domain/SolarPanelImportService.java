@@ -0,0 +1,220 @@
+package learn.solarfarm.domain;
+
+import learn.solarfarm.data.ReadReplicas;
+import learn.solarfarm.data.SolarPanelRepository;
+import learn.solarfarm.models.SolarPanel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static learn.solarfarm.domain.SolarPanelService.MAX_ROW_COLUMN;
+import static learn.solarfarm.domain.SolarPanelService.NATURAL_KEY_MESSAGE;
+
+/**
+ * Imports solar panels from a CSV file in chunks. Valid rows are written and invalid rows
+ * are reported, so one bad row doesn't sink a file of hundreds of thousands.
+ * Memory stays bounded by the chunk size, the error limit, and one position bitmap per section.
+ */
+@Service
+public class SolarPanelImportService {
+    private static final Logger logger = LoggerFactory.getLogger(SolarPanelImportService.class);
+
+    private final SolarPanelRepository repository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int commitSize;
+    private final int maxErrors;
+
+    public SolarPanelImportService(SolarPanelRepository repository, ApplicationEventPublisher eventPublisher,
+                                   @Value("${solarfarm.import.commit-size:1000}") int commitSize,
+                                   @Value("${solarfarm.import.max-errors:1000}") int maxErrors) {
+        this.repository = repository;
+        this.eventPublisher = eventPublisher;
+        this.commitSize = Math.max(1, Math.min(commitSize, SolarPanelService.MAX_BATCH_SIZE));
+        this.maxErrors = maxErrors;
+    }
+
+    public SolarPanelImportResult importCsv(Reader reader) throws IOException {
+        SolarPanelImportResult result = new SolarPanelImportResult(maxErrors);
+
+        SolarPanelCsvReader csv;
+        try {
+            csv = new SolarPanelCsvReader(reader);
+        } catch (IllegalArgumentException ex) {
+            result.addErrorMessage(ex.getMessage());
+            return result;
+        }
+
+        // Positions (row * MAX_ROW_COLUMN + column) already taken, by lowercase section.
+        Map<String, BitSet> takenBySection = new HashMap<>();
+        ArrayList<SolarPanelCsvReader.Row> chunk = new ArrayList<>(commitSize);
+
+        SolarPanelCsvReader.Row row;
+        while ((row = csv.next()) != null) {
+            chunk.add(row);
+            if (chunk.size() == commitSize) {
+                importChunk(chunk, takenBySection, result);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, takenBySection, result);
+        }
+
+        logger.info("CSV import finished: {} rows read, {} imported, {} failed.",
+                result.getRowsRead(), result.getImported(), result.getFailed());
+        return result;
+    }
+
+    private void importChunk(List<SolarPanelCsvReader.Row> chunk, Map<String, BitSet> takenBySection,
+                             SolarPanelImportResult result) {
+        result.addRowsRead(chunk.size());
+
+        // Field validation doesn't touch shared state, so it can run in parallel.
+        List<SolarPanelResult> results = chunk.parallelStream()
+                .map(SolarPanelImportService::validateRow)
+                .toList();
+
+        // The natural key check has to see rows in file order to report the right duplicate.
+        ArrayList<SolarPanelCsvReader.Row> valid = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            SolarPanelCsvReader.Row row = chunk.get(i);
+            SolarPanelResult rowResult = results.get(i);
+
+            if (rowResult.isSuccess()) {
+                SolarPanel solarPanel = row.getSolarPanel();
+                BitSet taken = takenBySection.computeIfAbsent(
+                        solarPanel.getSection().toLowerCase(), key -> findTakenPositions(solarPanel.getSection()));
+                int position = toPosition(solarPanel);
+                if (taken.get(position)) {
+                    rowResult.addErrorMessage(NATURAL_KEY_MESSAGE, ResultType.INVALID);
+                } else {
+                    taken.set(position);
+                    valid.add(row);
+                }
+            }
+
+            if (!rowResult.isSuccess()) {
+                result.addRowError(row.getLineNumber(), rowResult.getErrorMessages());
+            }
+        }
+
+        if (!valid.isEmpty()) {
+            create(valid, takenBySection, result);
+        }
+
+        logger.info("CSV import progress: {} rows read, {} imported, {} failed.",
+                result.getRowsRead(), result.getImported(), result.getFailed());
+    }
+
+    private void create(List<SolarPanelCsvReader.Row> rows, Map<String, BitSet> takenBySection,
+                        SolarPanelImportResult result) {
+        try {
+            createAll(rows, result);
+        } catch (DuplicateKeyException ex) {
+            // Another writer took some of the positions after we loaded them, and the chunk was rolled back.
+            createAfterConflict(rows, takenBySection, result);
+        }
+    }
+
+    private void createAfterConflict(List<SolarPanelCsvReader.Row> rows, Map<String, BitSet> takenBySection,
+                                     SolarPanelImportResult result) {
+        // Reload the chunk's sections and only report the rows whose position really is taken now.
+        HashMap<String, String> sections = new HashMap<>();
+        for (SolarPanelCsvReader.Row row : rows) {
+            String section = row.getSolarPanel().getSection();
+            sections.putIfAbsent(section.toLowerCase(), section);
+        }
+        for (Map.Entry<String, String> section : sections.entrySet()) {
+            takenBySection.put(section.getKey(), findTakenPositions(section.getValue()));
+        }
+        ArrayList<SolarPanelCsvReader.Row> remaining = new ArrayList<>(rows.size());
+        for (SolarPanelCsvReader.Row row : rows) {
+            BitSet taken = takenBySection.get(row.getSolarPanel().getSection().toLowerCase());
+            int position = toPosition(row.getSolarPanel());
+            if (taken.get(position)) {
+                result.addRowError(row.getLineNumber(), List.of(NATURAL_KEY_MESSAGE));
+            } else {
+                taken.set(position);
+                remaining.add(row);
+            }
+        }
+        if (remaining.isEmpty()) {
+            return;
+        }
+
+        try {
+            createAll(remaining, result);
+        } catch (DuplicateKeyException ex) {
+            // Still racing someone. One row at a time, so only the rows that collide fail.
+            int imported = 0;
+            for (SolarPanelCsvReader.Row row : remaining) {
+                SolarPanel solarPanel = resetId(row.getSolarPanel());
+                try {
+                    eventPublisher.publishEvent(SolarPanelChangedEvent.created(repository.create(solarPanel)));
+                    imported++;
+                } catch (DuplicateKeyException rowEx) {
+                    takenBySection.get(solarPanel.getSection().toLowerCase()).set(toPosition(solarPanel));
+                    result.addRowError(row.getLineNumber(), List.of(NATURAL_KEY_MESSAGE));
+                }
+            }
+            result.addImported(imported);
+            if (imported > 0) {
+                result.addChunkCommitted();
+            }
+        }
+    }
+
+    private void createAll(List<SolarPanelCsvReader.Row> rows, SolarPanelImportResult result) {
+        ArrayList<SolarPanel> solarPanels = new ArrayList<>(rows.size());
+        for (SolarPanelCsvReader.Row row : rows) {
+            // A rolled back attempt may have set some ids already.
+            solarPanels.add(resetId(row.getSolarPanel()));
+        }
+        List<SolarPanel> created = repository.createAll(solarPanels);
+        for (SolarPanel solarPanel : created) {
+            eventPublisher.publishEvent(SolarPanelChangedEvent.created(solarPanel));
+        }
+        result.addImported(created.size());
+        result.addChunkCommitted();
+    }
+
+    private static SolarPanel resetId(SolarPanel solarPanel) {
+        solarPanel.setId(0);
+        solarPanel.setVersion(0);
+        return solarPanel;
+    }
+
+    private static SolarPanelResult validateRow(SolarPanelCsvReader.Row row) {
+        if (row.getSolarPanel() == null || !row.getErrors().isEmpty()) {
+            SolarPanelResult result = new SolarPanelResult();
+            for (String message : row.getErrors()) {
+                result.addErrorMessage(message, ResultType.INVALID);
+            }
+            return result;
+        }
+        return SolarPanelService.validateFields(row.getSolarPanel());
+    }
+
+    private BitSet findTakenPositions(String section) {
+        BitSet positions = new BitSet();
+        for (SolarPanel existingSolarPanel : ReadReplicas.onPrimary(() -> repository.findBySection(section))) {
+            positions.set(toPosition(existingSolarPanel));
+        }
+        return positions;
+    }
+
+    private static int toPosition(SolarPanel solarPanel) {
+        return solarPanel.getRow() * MAX_ROW_COLUMN + solarPanel.getColumn();
+    }
+}
@@ -0,0 +1,28 @@
+package learn.solarfarm.domain;
+
+import learn.solarfarm.models.SolarPanel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SolarPanelPage {
+    private final List<SolarPanel> solarPanels;
+    private final String nextCursor;
+
+    public SolarPanelPage(List<SolarPanel> solarPanels, String nextCursor) {
+        this.solarPanels = new ArrayList<>(solarPanels);
+        this.nextCursor = nextCursor;
+    }
+
+    public List<SolarPanel> getSolarPanels() {
+        return new ArrayList<>(solarPanels);
+    }
+
+    /**
+     * The cursor to request the next page with.
+     * @return A String token or null if this is the last page.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
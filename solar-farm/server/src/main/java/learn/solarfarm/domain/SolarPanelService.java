@@ -1,20 +1,44 @@
 package learn.solarfarm.domain;
 
+import learn.solarfarm.data.ReadReplicas;
 import learn.solarfarm.data.SolarPanelRepository;
 import learn.solarfarm.models.SolarPanel;
+import learn.solarfarm.models.SolarPanelCursor;
+import learn.solarfarm.models.SolarPanelFilter;
+import learn.solarfarm.models.UpsertType;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 
 import java.time.Year;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
 public class SolarPanelService {
     public final static int MAX_ROW_COLUMN = 250;
+    public final static int MAX_PAGE_SIZE = 1000;
+    public final static int MAX_BATCH_SIZE = 10000;
+
+    public final static String NATURAL_KEY_MESSAGE = "SolarPanel `section`, `row`, and `column` must be unique.";
 
     private final SolarPanelRepository repository;
+    private final SolarPanelCache cache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final List<PreviousSolarPanelListener> previousListeners;
 
-    public SolarPanelService(SolarPanelRepository repository) {
+    public SolarPanelService(SolarPanelRepository repository, SolarPanelCache cache,
+                             ApplicationEventPublisher eventPublisher,
+                             List<PreviousSolarPanelListener> previousListeners) {
         this.repository = repository;
+        this.cache = cache;
+        this.eventPublisher = eventPublisher;
+        this.previousListeners = previousListeners;
     }
 
     public static int getMaxInstallationYear() {
@@ -25,12 +49,69 @@ public class SolarPanelService {
         return repository.findAll();
     }
 
+    public SolarPanelPage findPage(SolarPanelCursor after, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        // Ask for one extra panel to find out if there's another page
+        // without having to run a separate count query.
+        List<SolarPanel> solarPanels = repository.findPage(after, pageSize + 1);
+
+        if (solarPanels.size() <= pageSize) {
+            return new SolarPanelPage(solarPanels, null);
+        }
+
+        solarPanels = solarPanels.subList(0, pageSize);
+        SolarPanelCursor next = SolarPanelCursor.of(solarPanels.get(pageSize - 1));
+        return new SolarPanelPage(solarPanels, next.encode());
+    }
+
+    public void streamAll(Consumer<SolarPanel> consumer) {
+        repository.streamAll(consumer);
+    }
+
     public List<SolarPanel> findBySection(String section) {
-        return repository.findBySection(section);
+        return cache.findBySection(section, repository::findBySection);
+    }
+
+    public List<SolarPanel> findByRange(String section, int rowMin, int rowMax, int columnMin, int columnMax) {
+        if (section == null || section.isBlank()) {
+            return List.of();
+        }
+        // Every panel is inside the grid, so a range that reaches past it is cut down to it.
+        return repository.findByRange(section,
+                Math.max(rowMin, 1), Math.min(rowMax, MAX_ROW_COLUMN - 1),
+                Math.max(columnMin, 1), Math.min(columnMax, MAX_ROW_COLUMN - 1));
+    }
+
+    public List<SolarPanel> findByFilter(SolarPanelFilter filter, int limit) {
+        if (filter.getYearInstalledMin() != null && filter.getYearInstalledMax() != null
+                && filter.getYearInstalledMin() > filter.getYearInstalledMax()) {
+            return List.of();
+        }
+        return repository.findByFilter(filter, null, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
+    }
+
+    public SolarPanelPage findPageByFilter(SolarPanelFilter filter, SolarPanelCursor after, int limit) {
+        if (filter.getYearInstalledMin() != null && filter.getYearInstalledMax() != null
+                && filter.getYearInstalledMin() > filter.getYearInstalledMax()) {
+            return new SolarPanelPage(List.of(), null);
+        }
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        // One extra panel tells us if there's another page, just like findPage.
+        List<SolarPanel> solarPanels = repository.findByFilter(filter, after, pageSize + 1);
+
+        if (solarPanels.size() <= pageSize) {
+            return new SolarPanelPage(solarPanels, null);
+        }
+
+        solarPanels = solarPanels.subList(0, pageSize);
+        SolarPanelCursor next = SolarPanelCursor.of(solarPanels.get(pageSize - 1));
+        return new SolarPanelPage(solarPanels, next.encode());
     }
 
     public SolarPanel findById(int id) {
-        return repository.findById(id);
+        return cache.findById(id, repository::findById);
     }
 
     public SolarPanelResult create(SolarPanel solarPanel) {
@@ -41,13 +122,70 @@ public class SolarPanelService {
         }
 
         if (result.isSuccess()) {
-            solarPanel = repository.create(solarPanel);
-            result.setSolarPanel(solarPanel);
+            try {
+                solarPanel = repository.create(solarPanel);
+                result.setSolarPanel(solarPanel);
+                eventPublisher.publishEvent(SolarPanelChangedEvent.created(solarPanel));
+            } catch (DuplicateKeyException ex) {
+                result.addErrorMessage(NATURAL_KEY_MESSAGE, ResultType.INVALID);
+            }
         }
 
         return result;
     }
 
+    public SolarPanelBatchResult createAll(List<SolarPanel> solarPanels) {
+        SolarPanelBatchResult batchResult = new SolarPanelBatchResult();
+
+        if (!validateBatchSize(solarPanels, batchResult)) {
+            return batchResult;
+        }
+
+        // Check each item on its own first...
+        for (SolarPanel solarPanel : solarPanels) {
+            SolarPanelResult result = validateFields(solarPanel);
+            if (solarPanel != null && solarPanel.getId() > 0) {
+                result.addErrorMessage("SolarPanel `id` should not be set.", ResultType.INVALID);
+            }
+            batchResult.addResult(result);
+        }
+
+        // ...then check the natural key with one lookup per section instead of one per item,
+        // catching duplicates within the batch along the way.
+        List<SolarPanelResult> results = batchResult.getResults();
+        Map<String, Set<Integer>> takenBySection = new HashMap<>();
+        for (int i = 0; i < solarPanels.size(); i++) {
+            SolarPanel solarPanel = solarPanels.get(i);
+            SolarPanelResult result = results.get(i);
+            if (!result.isSuccess()) {
+                continue;
+            }
+
+            Set<Integer> taken = takenBySection.computeIfAbsent(
+                    solarPanel.getSection().toLowerCase(), key -> findTakenPositions(solarPanel.getSection()));
+
+            if (!taken.add(toPosition(solarPanel))) {
+                result.addErrorMessage(NATURAL_KEY_MESSAGE, ResultType.INVALID);
+            }
+        }
+
+        // All or nothing: only insert when every item is valid.
+        if (batchResult.isSuccess()) {
+            try {
+                List<SolarPanel> created = repository.createAll(solarPanels);
+                for (int i = 0; i < created.size(); i++) {
+                    results.get(i).setSolarPanel(created.get(i));
+                    eventPublisher.publishEvent(SolarPanelChangedEvent.created(created.get(i)));
+                }
+            } catch (DuplicateKeyException ex) {
+                // Another writer took one of the positions after the check above.
+                batchResult.addErrorMessage(NATURAL_KEY_MESSAGE);
+            }
+        }
+
+        return batchResult;
+    }
+
     public SolarPanelResult update(SolarPanel solarPanel) {
         SolarPanelResult result = validate(solarPanel);
 
@@ -55,26 +193,187 @@ public class SolarPanelService {
             result.addErrorMessage("SolarPanel `id` is required.", ResultType.INVALID);
         }
 
+        // Without it there's nothing to check for a concurrent change, so don't guess one.
+        if (!solarPanel.hasVersion()) {
+            result.addErrorMessage("SolarPanel `version` is required.", ResultType.INVALID);
+        }
+
         if (result.isSuccess()) {
-            if (repository.update(solarPanel)) {
-                result.setSolarPanel(solarPanel);
-            } else {
-                result.addErrorMessage("SolarPanel id %s was not found.", ResultType.NOT_FOUND, solarPanel.getId());
+            SolarPanel previous = findPrevious(solarPanel.getId());
+            try {
+                if (repository.update(solarPanel)) {
+                    result.setSolarPanel(solarPanel);
+                    eventPublisher.publishEvent(SolarPanelChangedEvent.updated(previous, solarPanel));
+                } else if (ReadReplicas.onPrimary(() -> repository.findById(solarPanel.getId())) == null) {
+                    // Skip the cache for this look, it may not have seen a delete yet.
+                    result.addErrorMessage("SolarPanel id %s was not found.", ResultType.NOT_FOUND, solarPanel.getId());
+                } else {
+                    result.addErrorMessage("SolarPanel id %s has changed since version %s was read.",
+                            ResultType.CONFLICT, solarPanel.getId(), solarPanel.getVersion());
+                }
+            } catch (DuplicateKeyException ex) {
+                result.addErrorMessage(NATURAL_KEY_MESSAGE, ResultType.INVALID);
             }
         }
         return result;
     }
 
+    /**
+     * Insert the solar panel, or update the one with the same section, row, and column,
+     * with a single statement. There's no separate natural key check: the natural key
+     * is what picks between the insert and the update.
+     * @param solarPanel The solar panel to upsert. Its id is ignored.
+     * @return A SolarPanelUpsertResult saying what the upsert did.
+     */
+    public SolarPanelUpsertResult upsert(SolarPanel solarPanel) {
+        SolarPanelUpsertResult result = validateFields(solarPanel, new SolarPanelUpsertResult());
+        if (!result.isSuccess()) {
+            return result;
+        }
+
+        // The statement doesn't hand back the old values. An update keeps the natural key, though,
+        // so whatever is at that position now is what it updates.
+        SolarPanel previous = findPreviousAt(solarPanel);
+        UpsertType upsertType = repository.upsert(solarPanel);
+        result.setUpsertType(upsertType);
+        result.setSolarPanel(solarPanel);
+
+        if (upsertType == UpsertType.INSERTED) {
+            eventPublisher.publishEvent(SolarPanelChangedEvent.created(solarPanel));
+        } else if (upsertType == UpsertType.UPDATED) {
+            // Still null if someone else inserted the panel between the read and the upsert.
+            eventPublisher.publishEvent(SolarPanelChangedEvent.updated(previous, solarPanel));
+        }
+        return result;
+    }
+
+    /**
+     * Upsert every solar panel in one transaction, all or nothing.
+     * @param solarPanels The solar panels to upsert.
+     * @return A SolarPanelBatchResult with a SolarPanelUpsertResult per item.
+     */
+    public SolarPanelBatchResult upsertAll(List<SolarPanel> solarPanels) {
+        SolarPanelBatchResult batchResult = new SolarPanelBatchResult();
+
+        if (!validateBatchSize(solarPanels, batchResult)) {
+            return batchResult;
+        }
+
+        ArrayList<SolarPanelUpsertResult> results = new ArrayList<>(solarPanels.size());
+        Map<String, Map<Integer, SolarPanel>> existingBySection = new HashMap<>();
+        Set<String> naturalKeys = new HashSet<>();
+        for (SolarPanel solarPanel : solarPanels) {
+            SolarPanelUpsertResult result = validateFields(solarPanel, new SolarPanelUpsertResult());
+            if (result.isSuccess()) {
+                String section = solarPanel.getSection().toLowerCase();
+                // Two items for the same position would make the outcome depend on their order.
+                if (!naturalKeys.add(toPosition(solarPanel) + ":" + section)) {
+                    result.addErrorMessage(NATURAL_KEY_MESSAGE, ResultType.INVALID);
+                }
+                // One read per section tells us which items are updates and what they looked like before.
+                existingBySection.computeIfAbsent(section, key -> findExistingPositions(solarPanel.getSection()));
+            }
+            results.add(result);
+            batchResult.addResult(result);
+        }
+
+        if (!batchResult.isSuccess()) {
+            return batchResult;
+        }
+
+        List<SolarPanel> upserted = repository.upsertAll(solarPanels);
+        for (int i = 0; i < upserted.size(); i++) {
+            SolarPanel current = upserted.get(i);
+            SolarPanel previous = existingBySection.get(current.getSection().toLowerCase()).get(toPosition(current));
+            SolarPanelUpsertResult result = results.get(i);
+            result.setSolarPanel(current);
+
+            // A writer that sneaks in between the read and the upsert turns an "insert" into an update,
+            // and the unique index keeps that from creating a duplicate.
+            if (previous == null) {
+                result.setUpsertType(UpsertType.INSERTED);
+                eventPublisher.publishEvent(SolarPanelChangedEvent.created(current));
+            } else if (previous.getYearInstalled() == current.getYearInstalled()
+                    && previous.getMaterial() == current.getMaterial()
+                    && previous.isTracking() == current.isTracking()) {
+                result.setUpsertType(UpsertType.UNCHANGED);
+            } else {
+                result.setUpsertType(UpsertType.UPDATED);
+                eventPublisher.publishEvent(SolarPanelChangedEvent.updated(previous, current));
+            }
+        }
+
+        return batchResult;
+    }
+
     public SolarPanelResult deleteById(int id) {
         SolarPanelResult result = new SolarPanelResult();
-        if (!repository.deleteById(id)) {
+        SolarPanel previous = findPrevious(id);
+        if (repository.deleteById(id)) {
+            eventPublisher.publishEvent(SolarPanelChangedEvent.deleted(id, previous));
+        } else {
             result.addErrorMessage("SolarPanel id %s was not found.", ResultType.NOT_FOUND, id);
         }
         return result;
     }
 
+    /**
+     * What a panel looks like before it's updated or deleted, for listeners that need to know (e.g. its old section).
+     * A cached copy saves the read. Otherwise it's only read if a listener needs it, and from the primary,
+     * since a replica may not have the latest version yet.
+     * @return The panel, or null if it wasn't found or nobody needs it.
+     */
+    private SolarPanel findPrevious(int id) {
+        SolarPanel cached = cache.findCachedById(id);
+        if (cached != null) {
+            return cached;
+        }
+        for (PreviousSolarPanelListener listener : previousListeners) {
+            if (listener.needsPrevious()) {
+                return ReadReplicas.onPrimary(() -> repository.findById(id));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Like findPrevious, but by natural key, for upserts.
+     * @return The panel at the same section, row, and column, or null if there's none or nobody needs it.
+     */
+    private SolarPanel findPreviousAt(SolarPanel solarPanel) {
+        for (PreviousSolarPanelListener listener : previousListeners) {
+            if (listener.needsPrevious()) {
+                return ReadReplicas.onPrimary(() -> repository.findByRange(solarPanel.getSection(),
+                                solarPanel.getRow(), solarPanel.getRow(), solarPanel.getColumn(), solarPanel.getColumn()))
+                        .stream().findFirst().orElse(null);
+            }
+        }
+        return null;
+    }
+
     private SolarPanelResult validate(SolarPanel solarPanel) {
-        SolarPanelResult result = new SolarPanelResult();
+        SolarPanelResult result = validateFields(solarPanel);
+
+        // If everything is successful so far, then check if the combined values
+        // of **Section**, **Row**, and **Column** are unique (i.e. the natural key).
+        // The unique index still has the final say if two writers race past this check.
+        if (result.isSuccess() && repository.existsByNaturalKey(solarPanel)) {
+            result.addErrorMessage(NATURAL_KEY_MESSAGE, ResultType.INVALID);
+        }
+
+        return result;
+    }
+
+    /**
+     * Validate a solar panel's individual fields (everything except the natural key).
+     * @param solarPanel The solar panel to validate.
+     * @return A SolarPanelResult with any error messages.
+     */
+    public static SolarPanelResult validateFields(SolarPanel solarPanel) {
+        return validateFields(solarPanel, new SolarPanelResult());
+    }
+
+    private static <T extends SolarPanelResult> T validateFields(SolarPanel solarPanel, T result) {
 
         if (solarPanel == null) {
             result.addErrorMessage("SolarPanel cannot be null.", ResultType.INVALID);
@@ -103,24 +402,39 @@ public class SolarPanelService {
             result.addErrorMessage("SolarPanel `material` is required.", ResultType.INVALID);
         }
 
-        // If everything is successful so far, then check if the combined values
-        // of **Section**, **Row**, and **Column** are unique (i.e. the natural key).
-        if (result.isSuccess()) {
-            List<SolarPanel> existingSolarPanels = repository.findBySection(solarPanel.getSection());
-
-            for (SolarPanel existingSolarPanel : existingSolarPanels) {
-                // If an existing panel was found for the provided **Section**, **Row**, and **Column** values
-                // add an error message if the id values don't match (i.e. they're not the same record).
-                if (existingSolarPanel.getId() != solarPanel.getId() &&
-                        existingSolarPanel.getSection().equalsIgnoreCase(solarPanel.getSection()) &&
-                        existingSolarPanel.getRow() == solarPanel.getRow() &&
-                        existingSolarPanel.getColumn() == solarPanel.getColumn()) {
-                    result.addErrorMessage("SolarPanel `section`, `row`, and `column` must be unique.",
-                            ResultType.INVALID);
-                }
-            }
+        return result;
+    }
+
+    private static boolean validateBatchSize(List<SolarPanel> solarPanels, SolarPanelBatchResult batchResult) {
+        if (solarPanels == null || solarPanels.isEmpty()) {
+            batchResult.addErrorMessage("At least one SolarPanel is required.");
+            return false;
         }
 
-        return result;
+        if (solarPanels.size() > MAX_BATCH_SIZE) {
+            batchResult.addErrorMessage("A batch cannot contain more than %s SolarPanels.", MAX_BATCH_SIZE);
+            return false;
+        }
+        return true;
+    }
+
+    private Map<Integer, SolarPanel> findExistingPositions(String section) {
+        HashMap<Integer, SolarPanel> positions = new HashMap<>();
+        for (SolarPanel existingSolarPanel : ReadReplicas.onPrimary(() -> repository.findBySection(section))) {
+            positions.put(toPosition(existingSolarPanel), existingSolarPanel);
+        }
+        return positions;
+    }
+
+    private Set<Integer> findTakenPositions(String section) {
+        HashSet<Integer> positions = new HashSet<>();
+        for (SolarPanel existingSolarPanel : ReadReplicas.onPrimary(() -> repository.findBySection(section))) {
+            positions.add(toPosition(existingSolarPanel));
+        }
+        return positions;
+    }
+
+    private static int toPosition(SolarPanel solarPanel) {
+        return solarPanel.getRow() * MAX_ROW_COLUMN + solarPanel.getColumn();
     }
 }
@@ -0,0 +1,19 @@
+package learn.solarfarm.domain;
+
+import learn.solarfarm.models.UpsertType;
+
+public class SolarPanelUpsertResult extends SolarPanelResult {
+    private UpsertType upsertType;
+
+    /**
+     * What the upsert did.
+     * @return An UpsertType or null if the solar panel was invalid.
+     */
+    public UpsertType getUpsertType() {
+        return upsertType;
+    }
+
+    public void setUpsertType(UpsertType upsertType) {
+        this.upsertType = upsertType;
+    }
+}
@@ -0,0 +1,75 @@
+package learn.solarfarm.domain;
+
+import learn.solarfarm.models.SolarPanel;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version counters for the whole table and for each section, bumped by every write
+ * through SolarPanelService. Controllers turn them into ETags so polling clients can
+ * get a 304 without a query.
+ * The tags are weak: the same version can go out as JSON, gzipped JSON, Smile, or CBOR,
+ * and Tomcat won't compress a response that has a strong ETag.
+ */
+@Component
+public class SolarPanelVersions implements PreviousSolarPanelListener {
+    // Counters start over on restart, so tags from a previous run must never match.
+    private final String instance = Long.toString(System.currentTimeMillis(), 36);
+
+    private final AtomicLong all = new AtomicLong();
+    // Bumped when a write's section is unknown, which changes every section's tag at once.
+    private final AtomicLong allSections = new AtomicLong();
+    private final ConcurrentHashMap<String, AtomicLong> bySection = new ConcurrentHashMap<>();
+    // Until a section tag goes out, nobody can be holding a stale one.
+    private volatile boolean sectionTagsUsed;
+
+    /**
+     * A weak ETag for every solar panel. Read it before running the query: if a write
+     * sneaks in between, the client just gets a fresh copy on its next poll.
+     * @return A quoted ETag.
+     */
+    public String getAllETag() {
+        return String.format("W/\"%s-%s\"", instance, all.get());
+    }
+
+    /**
+     * A weak ETag for one section. Sections compare without regard to case.
+     * @param section The section name.
+     * @return A quoted ETag.
+     */
+    public String getSectionETag(String section) {
+        sectionTagsUsed = true;
+        AtomicLong version = section == null ? null : bySection.get(section.toLowerCase());
+        return String.format("W/\"%s-%s.%s\"", instance, allSections.get(), version == null ? 0 : version.get());
+    }
+
+    // A panel that moves changes its old section's tag too.
+    @Override
+    public boolean needsPrevious() {
+        return sectionTagsUsed;
+    }
+
+    // After commit: bumped any earlier, a poll before the commit would get the new tag with the old
+    // panels, and then 304s until the next write. Writes outside a transaction publish straight away,
+    // hence the fallback.
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSolarPanelChanged(SolarPanelChangedEvent event) {
+        all.incrementAndGet();
+
+        if (event.getChangeType() != SolarPanelChangeType.CREATED && event.getPrevious() == null) {
+            allSections.incrementAndGet();
+        }
+        bump(event.getPrevious());
+        bump(event.getCurrent());
+    }
+
+    private void bump(SolarPanel solarPanel) {
+        if (solarPanel != null && solarPanel.getSection() != null) {
+            bySection.computeIfAbsent(solarPanel.getSection().toLowerCase(), key -> new AtomicLong())
+                    .incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package learn.solarfarm.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import learn.solarfarm.domain.SolarPanelBatchResult;
+import learn.solarfarm.domain.SolarPanelResult;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Records latency, rows returned, and exceptions for every repository method,
+ * and the ResultType of every service write.
+ * Endpoint latency comes from Spring Boot's `http.server.requests` timer.
+ * Percentiles are configured in application.properties.
+ */
+@Aspect
+@Component
+public class SolarFarmMetricsAspect {
+    public static final String REPOSITORY_TIMER = "solarfarm.repository";
+    public static final String REPOSITORY_ROWS = "solarfarm.repository.rows";
+    public static final String SERVICE_RESULTS = "solarfarm.service.results";
+
+    private final MeterRegistry registry;
+
+    public SolarFarmMetricsAspect(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("execution(public * learn.solarfarm.data.SolarPanelJdbcTemplateRepository.*(..))")
+    public Object timeRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        String method = joinPoint.getSignature().getName();
+        Object[] args = joinPoint.getArgs();
+
+        // Streaming methods hand rows to a Consumer, so count them on the way through.
+        AtomicLong streamedRows = null;
+        if (args.length == 1 && args[0] instanceof Consumer) {
+            @SuppressWarnings("unchecked")
+            Consumer<Object> consumer = (Consumer<Object>) args[0];
+            AtomicLong counter = new AtomicLong();
+            args = new Object[]{(Consumer<Object>) row -> {
+                counter.incrementAndGet();
+                consumer.accept(row);
+            }};
+            streamedRows = counter;
+        }
+
+        Timer.Sample sample = Timer.start(registry);
+        String exception = "none";
+        try {
+            Object result = joinPoint.proceed(args);
+
+            if (result instanceof Collection<?> rows) {
+                recordRows(method, rows.size());
+            } else if (streamedRows != null) {
+                recordRows(method, streamedRows.get());
+            } else if (method.startsWith("find")) {
+                recordRows(method, result == null ? 0 : 1);
+            }
+
+            return result;
+        } catch (Throwable ex) {
+            exception = ex.getClass().getSimpleName();
+            throw ex;
+        } finally {
+            sample.stop(registry.timer(REPOSITORY_TIMER, "method", method, "exception", exception));
+        }
+    }
+
+    @AfterReturning(
+            pointcut = "execution(public learn.solarfarm.domain.SolarPanelResult+ learn.solarfarm.domain.SolarPanelService.*(..))",
+            returning = "result")
+    public void countResult(JoinPoint joinPoint, SolarPanelResult result) {
+        countResult(joinPoint, result.getResultType().name());
+    }
+
+    @AfterReturning(
+            pointcut = "execution(public learn.solarfarm.domain.SolarPanelBatchResult learn.solarfarm.domain.SolarPanelService.*(..))",
+            returning = "result")
+    public void countBatchResult(JoinPoint joinPoint, SolarPanelBatchResult result) {
+        for (SolarPanelResult itemResult : result.getResults()) {
+            countResult(joinPoint, itemResult.getResultType().name());
+        }
+    }
+
+    private void countResult(JoinPoint joinPoint, String resultType) {
+        registry.counter(SERVICE_RESULTS,
+                "operation", joinPoint.getSignature().getName(),
+                "result", resultType).increment();
+    }
+
+    private void recordRows(String method, long rows) {
+        registry.summary(REPOSITORY_ROWS, "method", method).record(rows);
+    }
+}
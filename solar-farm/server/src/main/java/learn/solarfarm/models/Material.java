@@ -48,4 +48,21 @@ public enum Material {
         String message = String.format("No Material with name: %s.", name);
         throw new RuntimeException(message);
     }
+
+    /**
+     * Find a Material by what people type: the enum name (POLY_SI), the name (Multicrystalline Silicon),
+     * or the abbreviation (poly-Si), without regard to case.
+     * @param value The text to match.
+     * @return A Material enum value or null if nothing matches.
+     */
+    public static Material parse(String value) {
+        for (Material material : Material.values()) {
+            if (material.name().equalsIgnoreCase(value)
+                    || material.getName().equalsIgnoreCase(value)
+                    || material.getAbbreviation().equalsIgnoreCase(value)) {
+                return material;
+            }
+        }
+        return null;
+    }
 }
@@ -10,6 +10,8 @@ public class SolarPanel {
     private int yearInstalled;
     private Material material;
     private boolean isTracking;
+    // Null until it's set, so an update that doesn't say which version it read can be told apart from version 0.
+    private Integer version;
 
     public SolarPanel() {
     }
@@ -24,6 +26,11 @@ public class SolarPanel {
         this.isTracking = isTracking;
     }
 
+    public SolarPanel(SolarPanel other) {
+        this(other.id, other.section, other.row, other.column, other.yearInstalled, other.material, other.isTracking);
+        this.version = other.version;
+    }
+
     public int getId() {
         return id;
     }
@@ -80,6 +87,27 @@ public class SolarPanel {
         isTracking = tracking;
     }
 
+    /**
+     * Incremented by every update. Send back the version you read, and the update
+     * is rejected if someone else changed the panel in the meantime.
+     * @return The version, 0 if it was never set.
+     */
+    public int getVersion() {
+        return version == null ? 0 : version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
+    /**
+     * @return False when the version was never set, e.g. a request body that left it out.
+     */
+    public boolean hasVersion() {
+        return version != null;
+    }
+
+    // The version is concurrency bookkeeping, not part of the panel's value, so it's left out.
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,112 @@
+package learn.solarfarm.models;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * Represents a position in the (section, row, column, id) ordering of solar panels,
+ * or in the (year installed, id) ordering the filter can sort by.
+ * Used for keyset (a.k.a. "seek") pagination.
+ */
+public class SolarPanelCursor {
+    private final String section;
+    private final int row;
+    private final int column;
+    private final int id;
+    private final int yearInstalled;
+
+    public SolarPanelCursor(String section, int row, int column, int id) {
+        this(section, row, column, id, 0);
+    }
+
+    public SolarPanelCursor(String section, int row, int column, int id, int yearInstalled) {
+        this.section = section;
+        this.row = row;
+        this.column = column;
+        this.id = id;
+        this.yearInstalled = yearInstalled;
+    }
+
+    /**
+     * Create a cursor that points at the provided solar panel.
+     * @param solarPanel The last solar panel on a page.
+     * @return A SolarPanelCursor.
+     */
+    public static SolarPanelCursor of(SolarPanel solarPanel) {
+        return new SolarPanelCursor(solarPanel.getSection(), solarPanel.getRow(),
+                solarPanel.getColumn(), solarPanel.getId(), solarPanel.getYearInstalled());
+    }
+
+    /**
+     * Decode a cursor token.
+     * @param token A token previously created by `encode`.
+     * @return A SolarPanelCursor or null if the token is malformed.
+     */
+    public static SolarPanelCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            // The section goes last since it's the only value that can contain the separator.
+            String[] parts = value.split(":", 5);
+            if (parts.length != 5) {
+                return null;
+            }
+            return new SolarPanelCursor(parts[4],
+                    Integer.parseInt(parts[0]),
+                    Integer.parseInt(parts[1]),
+                    Integer.parseInt(parts[2]),
+                    Integer.parseInt(parts[3]));
+        } catch (IllegalArgumentException ex) {
+            // Covers both invalid Base64 and NumberFormatException.
+            return null;
+        }
+    }
+
+    /**
+     * Encode the cursor as an opaque, URL safe token.
+     * @return A String token.
+     */
+    public String encode() {
+        String value = String.format("%s:%s:%s:%s:%s", row, column, id, yearInstalled, section);
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public String getSection() {
+        return section;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getYearInstalled() {
+        return yearInstalled;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SolarPanelCursor that = (SolarPanelCursor) o;
+        return row == that.row && column == that.column && id == that.id && yearInstalled == that.yearInstalled
+                && Objects.equals(section, that.section);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(section, row, column, id, yearInstalled);
+    }
+}
@@ -0,0 +1,85 @@
+package learn.solarfarm.models;
+
+/**
+ * Search criteria for solar panels. Every criterion is optional (null means "any"),
+ * and the ones that are set must all match.
+ */
+public class SolarPanelFilter {
+    private String section;
+    private Material material;
+    private Integer yearInstalledMin;
+    private Integer yearInstalledMax;
+    private Boolean tracking;
+    private Sort sort = Sort.LOCATION;
+
+    /**
+     * The order results come back in. Both end with id, so the order is always the same.
+     */
+    public enum Sort {
+        // section, `row`, `column`, id
+        LOCATION,
+        // year_installed, id
+        YEAR_INSTALLED
+    }
+
+    public String getSection() {
+        return section;
+    }
+
+    public void setSection(String section) {
+        this.section = section;
+    }
+
+    public Material getMaterial() {
+        return material;
+    }
+
+    public void setMaterial(Material material) {
+        this.material = material;
+    }
+
+    public Integer getYearInstalledMin() {
+        return yearInstalledMin;
+    }
+
+    public void setYearInstalledMin(Integer yearInstalledMin) {
+        this.yearInstalledMin = yearInstalledMin;
+    }
+
+    public Integer getYearInstalledMax() {
+        return yearInstalledMax;
+    }
+
+    public void setYearInstalledMax(Integer yearInstalledMax) {
+        this.yearInstalledMax = yearInstalledMax;
+    }
+
+    public Boolean getTracking() {
+        return tracking;
+    }
+
+    public void setTracking(Boolean tracking) {
+        this.tracking = tracking;
+    }
+
+    public Sort getSort() {
+        return sort;
+    }
+
+    public void setSort(Sort sort) {
+        this.sort = sort == null ? Sort.LOCATION : sort;
+    }
+
+    /**
+     * Check a solar panel against the criteria, for repositories that filter in memory.
+     * @param solarPanel The solar panel to check.
+     * @return True if every criterion that's set matches.
+     */
+    public boolean matches(SolarPanel solarPanel) {
+        return (section == null || section.equalsIgnoreCase(solarPanel.getSection()))
+                && (material == null || material == solarPanel.getMaterial())
+                && (yearInstalledMin == null || solarPanel.getYearInstalled() >= yearInstalledMin)
+                && (yearInstalledMax == null || solarPanel.getYearInstalled() <= yearInstalledMax)
+                && (tracking == null || tracking == solarPanel.isTracking());
+    }
+}
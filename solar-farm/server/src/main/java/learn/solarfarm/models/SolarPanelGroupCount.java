@@ -0,0 +1,40 @@
+package learn.solarfarm.models;
+
+/**
+ * The number of solar panels that share a section, material, decade installed, and tracking value.
+ */
+public class SolarPanelGroupCount {
+    private final String section;
+    private final Material material;
+    private final int decadeInstalled;
+    private final boolean isTracking;
+    private final long count;
+
+    public SolarPanelGroupCount(String section, Material material, int decadeInstalled, boolean isTracking, long count) {
+        this.section = section;
+        this.material = material;
+        this.decadeInstalled = decadeInstalled;
+        this.isTracking = isTracking;
+        this.count = count;
+    }
+
+    public String getSection() {
+        return section;
+    }
+
+    public Material getMaterial() {
+        return material;
+    }
+
+    public int getDecadeInstalled() {
+        return decadeInstalled;
+    }
+
+    public boolean isTracking() {
+        return isTracking;
+    }
+
+    public long getCount() {
+        return count;
+    }
+}
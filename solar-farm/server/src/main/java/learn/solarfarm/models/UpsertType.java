@@ -0,0 +1,11 @@
+package learn.solarfarm.models;
+
+/**
+ * What an upsert by natural key (section, row, column) did.
+ */
+public enum UpsertType {
+    INSERTED,
+    UPDATED,
+    // An existing panel already had the same values.
+    UNCHANGED
+}
@@ -0,0 +1,41 @@
+package learn.solarfarm.reactive;
+
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+/**
+ * Runs the non-blocking (WebFlux + R2DBC) stack on its own Netty server.
+ * It reads `reactive.properties` instead of `application.properties`.
+ * Only the beans in this package are loaded, and only with the "reactive" profile,
+ * so the blocking App never picks them up.
+ */
+@SpringBootApplication(exclude = {
+        DataSourceAutoConfiguration.class,
+        DataSourceTransactionManagerAutoConfiguration.class,
+        JdbcTemplateAutoConfiguration.class
+})
+@Profile(ReactiveApp.PROFILE)
+public class ReactiveApp {
+    public static final String PROFILE = "reactive";
+
+    public static void main(String[] args) {
+        new SpringApplicationBuilder(ReactiveApp.class)
+                .web(WebApplicationType.REACTIVE)
+                .profiles(PROFILE)
+                .properties("spring.config.name=reactive")
+                .run(args);
+    }
+
+    @Bean
+    public DatabaseClient databaseClient(ConnectionFactory connectionFactory) {
+        return DatabaseClient.create(connectionFactory);
+    }
+}
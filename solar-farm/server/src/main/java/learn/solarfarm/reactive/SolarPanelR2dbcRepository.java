@@ -0,0 +1,181 @@
+package learn.solarfarm.reactive;
+
+import io.r2dbc.spi.Row;
+import learn.solarfarm.models.Material;
+import learn.solarfarm.models.SolarPanel;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Repository
+@Profile(ReactiveApp.PROFILE)
+public class SolarPanelR2dbcRepository implements SolarPanelReactiveRepository {
+    // Reads join the section table for the name (see SectionRegistry for the blocking stack).
+    private static final String SELECT = "select p.id, s.name as section, p.`row`, p.`column`, " +
+            "p.year_installed, p.material, p.is_tracking, p.version " +
+            "from solar_panel p " +
+            "inner join section s on s.section_id = p.section_id ";
+
+    private final DatabaseClient client;
+
+    public SolarPanelR2dbcRepository(DatabaseClient client) {
+        this.client = client;
+    }
+
+    @Override
+    public Flux<SolarPanel> findAll() {
+
+        final String sql = SELECT +
+                "order by s.name, p.`row`, p.`column`";
+
+        return client.sql(sql)
+                .map(this::mapRow)
+                .all();
+    }
+
+    @Override
+    public Flux<SolarPanel> findBySection(String section) {
+
+        final String sql = SELECT +
+                "where s.name = :section " +
+                "order by p.`row`, p.`column`";
+
+        return client.sql(sql)
+                .bind("section", section)
+                .map(this::mapRow)
+                .all();
+    }
+
+    @Override
+    public Mono<SolarPanel> findById(int id) {
+
+        final String sql = SELECT +
+                "where p.id = :id";
+
+        return client.sql(sql)
+                .bind("id", id)
+                .map(this::mapRow)
+                .one();
+    }
+
+    @Override
+    public Mono<Boolean> existsByNaturalKey(SolarPanel solarPanel) {
+
+        final String sql = "select count(*) " +
+                "from solar_panel p " +
+                "inner join section s on s.section_id = p.section_id " +
+                "where s.name = :section and p.`row` = :row and p.`column` = :column and p.id <> :id";
+
+        return client.sql(sql)
+                .bind("section", solarPanel.getSection())
+                .bind("row", solarPanel.getRow())
+                .bind("column", solarPanel.getColumn())
+                .bind("id", solarPanel.getId())
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .map(count -> count > 0);
+    }
+
+    @Override
+    public Mono<SolarPanel> create(SolarPanel solarPanel) {
+
+        final String sql = "insert into solar_panel (section_id, `row`, `column`, year_installed, material, is_tracking) " +
+                "values (:sectionId, :row, :column, :yearInstalled, :material, :tracking)";
+
+        return getOrCreateSectionId(solarPanel.getSection())
+                .flatMap(sectionId -> client.sql(sql)
+                        .filter(statement -> statement.returnGeneratedValues("id"))
+                        .bind("sectionId", sectionId)
+                        .bind("row", solarPanel.getRow())
+                        .bind("column", solarPanel.getColumn())
+                        .bind("yearInstalled", solarPanel.getYearInstalled())
+                        .bind("material", solarPanel.getMaterial().toString())
+                        .bind("tracking", solarPanel.isTracking())
+                        .map(row -> row.get(0, Integer.class))
+                        .one())
+                .map(id -> {
+                    solarPanel.setId(id);
+                    solarPanel.setVersion(0);
+                    return solarPanel;
+                });
+    }
+
+    @Override
+    public Mono<Boolean> update(SolarPanel solarPanel) {
+
+        final String sql = "update solar_panel set " +
+                "section_id = :sectionId, " +
+                "`row` = :row, " +
+                "`column` = :column, " +
+                "year_installed = :yearInstalled, " +
+                "material = :material, " +
+                "is_tracking = :tracking, " +
+                "version = version + 1 " +
+                "where id = :id and version = :version";
+
+        return getOrCreateSectionId(solarPanel.getSection())
+                .flatMap(sectionId -> client.sql(sql)
+                        .bind("sectionId", sectionId)
+                        .bind("row", solarPanel.getRow())
+                        .bind("column", solarPanel.getColumn())
+                        .bind("yearInstalled", solarPanel.getYearInstalled())
+                        .bind("material", solarPanel.getMaterial().toString())
+                        .bind("tracking", solarPanel.isTracking())
+                        .bind("id", solarPanel.getId())
+                        .bind("version", solarPanel.getVersion())
+                        .fetch()
+                        .rowsUpdated())
+                .map(rowsUpdated -> {
+                    if (rowsUpdated == 0) {
+                        return false;
+                    }
+                    solarPanel.setVersion(solarPanel.getVersion() + 1);
+                    return true;
+                });
+    }
+
+    @Override
+    public Mono<Boolean> deleteById(int id) {
+        return client.sql("delete from solar_panel where id = :id")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated()
+                .map(rowsDeleted -> rowsDeleted > 0);
+    }
+
+    private Mono<Integer> findSectionId(String name) {
+        return client.sql("select section_id from section where name = :name")
+                .bind("name", name)
+                .map(row -> row.get(0, Integer.class))
+                .one();
+    }
+
+    private Mono<Integer> getOrCreateSectionId(String name) {
+        return findSectionId(name).switchIfEmpty(Mono.defer(() ->
+                client.sql("insert into section (name) values (:name)")
+                        .filter(statement -> statement.returnGeneratedValues("section_id"))
+                        .bind("name", name)
+                        .map(row -> row.get(0, Integer.class))
+                        .one()
+                        // Someone else added it first.
+                        .onErrorResume(DataIntegrityViolationException.class, ex -> findSectionId(name))));
+    }
+
+    private SolarPanel mapRow(Row row) {
+        SolarPanel solarPanel = new SolarPanel();
+
+        solarPanel.setId(row.get("id", Integer.class));
+        solarPanel.setSection(row.get("section", String.class));
+        solarPanel.setRow(row.get("row", Integer.class));
+        solarPanel.setColumn(row.get("column", Integer.class));
+        solarPanel.setYearInstalled(row.get("year_installed", Integer.class));
+        solarPanel.setMaterial(Material.valueOf(row.get("material", String.class)));
+        solarPanel.setTracking(Boolean.TRUE.equals(row.get("is_tracking", Boolean.class)));
+        solarPanel.setVersion(row.get("version", Integer.class));
+
+        return solarPanel;
+    }
+}
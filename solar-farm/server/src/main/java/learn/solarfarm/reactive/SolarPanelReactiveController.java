@@ -0,0 +1,79 @@
+package learn.solarfarm.reactive;
+
+import learn.solarfarm.domain.ResultType;
+import learn.solarfarm.models.SolarPanel;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/api/reactive/solarpanel")
+@CrossOrigin
+@Profile(ReactiveApp.PROFILE)
+public class SolarPanelReactiveController {
+    private final SolarPanelReactiveService service;
+
+    public SolarPanelReactiveController(SolarPanelReactiveService service) {
+        this.service = service;
+    }
+
+    @GetMapping
+    public Flux<SolarPanel> findAll() {
+        return service.findAll();
+    }
+
+    @GetMapping("/section/{section}")
+    public Flux<SolarPanel> findBySection(@PathVariable String section) {
+        return service.findBySection(section);
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<SolarPanel>> findById(@PathVariable int id) {
+        return service.findById(id)
+                .map(solarPanel -> new ResponseEntity<>(solarPanel, HttpStatus.OK))
+                .defaultIfEmpty(new ResponseEntity<>(null, HttpStatus.NOT_FOUND));
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<?>> create(@RequestBody SolarPanel solarPanel) {
+        return service.create(solarPanel).map(result -> {
+            if (!result.isSuccess()) {
+                return new ResponseEntity<>(result.getErrorMessages(), HttpStatus.BAD_REQUEST); // 400
+            }
+            return new ResponseEntity<>(result.getSolarPanel(), HttpStatus.CREATED); // 201
+        });
+    }
+
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<?>> update(@PathVariable int id, @RequestBody SolarPanel solarPanel) {
+        if (id != solarPanel.getId()) {
+            return Mono.just(new ResponseEntity<>(HttpStatus.CONFLICT)); // 409
+        }
+
+        return service.update(solarPanel).map(result -> {
+            if (!result.isSuccess()) {
+                if (result.getResultType() == ResultType.NOT_FOUND) {
+                    return new ResponseEntity<>(HttpStatus.NOT_FOUND); // 404
+                } else if (result.getResultType() == ResultType.CONFLICT) {
+                    return new ResponseEntity<>(result.getErrorMessages(), HttpStatus.CONFLICT); // 409
+                } else {
+                    return new ResponseEntity<>(result.getErrorMessages(), HttpStatus.BAD_REQUEST); // 400
+                }
+            }
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT); // 204
+        });
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> delete(@PathVariable int id) {
+        return service.deleteById(id).map(result -> {
+            if (result.getResultType() == ResultType.NOT_FOUND) {
+                return new ResponseEntity<Void>(HttpStatus.NOT_FOUND); // 404
+            }
+            return new ResponseEntity<Void>(HttpStatus.NO_CONTENT); // 204
+        });
+    }
+}
@@ -0,0 +1,21 @@
+package learn.solarfarm.reactive;
+
+import learn.solarfarm.models.SolarPanel;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface SolarPanelReactiveRepository {
+    Flux<SolarPanel> findAll();
+
+    Flux<SolarPanel> findBySection(String section);
+
+    Mono<SolarPanel> findById(int id);
+
+    Mono<Boolean> existsByNaturalKey(SolarPanel solarPanel);
+
+    Mono<SolarPanel> create(SolarPanel solarPanel);
+
+    Mono<Boolean> update(SolarPanel solarPanel);
+
+    Mono<Boolean> deleteById(int id);
+}
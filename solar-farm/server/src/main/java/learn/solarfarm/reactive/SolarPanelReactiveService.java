@@ -0,0 +1,123 @@
+package learn.solarfarm.reactive;
+
+import learn.solarfarm.domain.ResultType;
+import learn.solarfarm.domain.SolarPanelResult;
+import learn.solarfarm.domain.SolarPanelService;
+import learn.solarfarm.models.SolarPanel;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * The non-blocking counterpart of SolarPanelService, with the same validation rules.
+ * It runs in its own process (see ReactiveApp), so its writes don't reach the blocking App's
+ * SolarPanelChangedEvent listeners.
+ */
+@Service
+@Profile(ReactiveApp.PROFILE)
+public class SolarPanelReactiveService {
+    private final SolarPanelReactiveRepository repository;
+
+    public SolarPanelReactiveService(SolarPanelReactiveRepository repository) {
+        this.repository = repository;
+    }
+
+    public Flux<SolarPanel> findAll() {
+        return repository.findAll();
+    }
+
+    public Flux<SolarPanel> findBySection(String section) {
+        return repository.findBySection(section);
+    }
+
+    public Mono<SolarPanel> findById(int id) {
+        return repository.findById(id);
+    }
+
+    public Mono<SolarPanelResult> create(SolarPanel solarPanel) {
+        SolarPanelResult result = SolarPanelService.validateFields(solarPanel);
+
+        if (solarPanel != null && solarPanel.getId() > 0) {
+            result.addErrorMessage("SolarPanel `id` should not be set.", ResultType.INVALID);
+        }
+
+        return checkNaturalKey(solarPanel, result)
+                .flatMap(checked -> {
+                    if (!checked.isSuccess()) {
+                        return Mono.just(checked);
+                    }
+                    return repository.create(solarPanel).map(created -> {
+                        checked.setSolarPanel(created);
+                        return checked;
+                    });
+                })
+                .onErrorResume(DataIntegrityViolationException.class, ex -> naturalKeyTaken(result));
+    }
+
+    public Mono<SolarPanelResult> update(SolarPanel solarPanel) {
+        SolarPanelResult result = SolarPanelService.validateFields(solarPanel);
+
+        if (solarPanel != null && solarPanel.getId() <= 0) {
+            result.addErrorMessage("SolarPanel `id` is required.", ResultType.INVALID);
+        }
+
+        if (solarPanel != null && !solarPanel.hasVersion()) {
+            result.addErrorMessage("SolarPanel `version` is required.", ResultType.INVALID);
+        }
+
+        return checkNaturalKey(solarPanel, result)
+                .flatMap(checked -> {
+                    if (!checked.isSuccess()) {
+                        return Mono.just(checked);
+                    }
+                    return repository.update(solarPanel).flatMap(updated -> {
+                        if (updated) {
+                            checked.setSolarPanel(solarPanel);
+                            return Mono.just(checked);
+                        }
+                        // Tell a missing panel apart from a stale version.
+                        return repository.findById(solarPanel.getId()).hasElement().map(exists -> {
+                            if (exists) {
+                                checked.addErrorMessage("SolarPanel id %s has changed since version %s was read.",
+                                        ResultType.CONFLICT, solarPanel.getId(), solarPanel.getVersion());
+                            } else {
+                                checked.addErrorMessage("SolarPanel id %s was not found.",
+                                        ResultType.NOT_FOUND, solarPanel.getId());
+                            }
+                            return checked;
+                        });
+                    });
+                })
+                .onErrorResume(DataIntegrityViolationException.class, ex -> naturalKeyTaken(result));
+    }
+
+    public Mono<SolarPanelResult> deleteById(int id) {
+        return repository.deleteById(id).map(deleted -> {
+            SolarPanelResult result = new SolarPanelResult();
+            if (!deleted) {
+                result.addErrorMessage("SolarPanel id %s was not found.", ResultType.NOT_FOUND, id);
+            }
+            return result;
+        });
+    }
+
+    // Only runs the query when everything else is valid, just like SolarPanelService.
+    private Mono<SolarPanelResult> checkNaturalKey(SolarPanel solarPanel, SolarPanelResult result) {
+        if (!result.isSuccess()) {
+            return Mono.just(result);
+        }
+        return repository.existsByNaturalKey(solarPanel).map(exists -> {
+            if (exists) {
+                result.addErrorMessage(SolarPanelService.NATURAL_KEY_MESSAGE, ResultType.INVALID);
+            }
+            return result;
+        });
+    }
+
+    private Mono<SolarPanelResult> naturalKeyTaken(SolarPanelResult result) {
+        result.addErrorMessage(SolarPanelService.NATURAL_KEY_MESSAGE, ResultType.INVALID);
+        return Mono.just(result);
+    }
+}
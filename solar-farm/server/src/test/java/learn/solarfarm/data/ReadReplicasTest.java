@@ -0,0 +1,142 @@
+package learn.solarfarm.data;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import learn.solarfarm.domain.SolarPanelCache;
+import learn.solarfarm.models.Material;
+import learn.solarfarm.models.SolarPanel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// A primary and two replicas, each its own in-process H2 database loaded from database/production.sql.
+// Panel 1's year_installed tells them apart: 2020 on the primary, 2001 and 2002 on the replicas.
+class ReadReplicasTest {
+
+    HikariDataSource primary;
+    HikariDataSource firstReplica;
+    HikariDataSource secondReplica;
+    DataSourceTransactionManager transactionManager;
+
+    @BeforeEach
+    void setup() throws IOException {
+        primary = embeddedDatabase();
+        firstReplica = embeddedDatabase();
+        secondReplica = embeddedDatabase();
+        new JdbcTemplate(firstReplica).update("update solar_panel set year_installed = 2001 where id = 1;");
+        new JdbcTemplate(secondReplica).update("update solar_panel set year_installed = 2002 where id = 1;");
+        transactionManager = new DataSourceTransactionManager(primary);
+    }
+
+    @AfterEach
+    void tearDown() {
+        primary.close();
+        firstReplica.close();
+        secondReplica.close();
+    }
+
+    @Test
+    void shouldReadFromReplicasInTurn() {
+        SolarPanelJdbcTemplateRepository repository = repository(ReadReplicas.Balance.ROUND_ROBIN);
+
+        assertEquals(2001, repository.findById(1).getYearInstalled());
+        assertEquals(2002, repository.findById(1).getYearInstalled());
+        assertEquals(2001, repository.findBySection("The Ridge").get(0).getYearInstalled());
+        assertEquals(2002, repository.findAll().get(3).getYearInstalled());
+    }
+
+    @Test
+    void shouldReadFromReplicaWithFewestConnections() throws Exception {
+        SolarPanelJdbcTemplateRepository repository = repository(ReadReplicas.Balance.LEAST_CONNECTIONS);
+
+        try (Connection busy = firstReplica.getConnection()) {
+            for (int i = 0; i < 4; i++) {
+                assertEquals(2002, repository.findById(1).getYearInstalled());
+            }
+        }
+    }
+
+    @Test
+    void shouldWriteAndCheckNaturalKeyOnPrimary() {
+        SolarPanelJdbcTemplateRepository repository = repository(ReadReplicas.Balance.ROUND_ROBIN);
+        SolarPanel solarPanel = new SolarPanel(0, "Flats", 5, 5, 2015, Material.CIGS, false);
+
+        repository.create(solarPanel);
+
+        assertTrue(repository.existsByNaturalKey(new SolarPanel(0, "Flats", 5, 5, 2015, Material.CIGS, false)));
+        // The replicas never got it.
+        assertNull(repository.findById(solarPanel.getId()));
+        assertEquals(solarPanel, ReadReplicas.onPrimary(() -> repository.findById(solarPanel.getId())));
+    }
+
+    @Test
+    void shouldReadFromPrimaryInsideTransaction() {
+        SolarPanelJdbcTemplateRepository repository = repository(ReadReplicas.Balance.ROUND_ROBIN);
+
+        SolarPanel solarPanel = new TransactionTemplate(transactionManager).execute(status -> repository.findById(1));
+
+        assertEquals(2020, solarPanel.getYearInstalled());
+    }
+
+    @Test
+    void shouldLoadCacheMissesFromPrimary() {
+        SolarPanelJdbcTemplateRepository repository = repository(ReadReplicas.Balance.ROUND_ROBIN);
+        SolarPanelCache cache = new SolarPanelCache(true, 100, Duration.ofMinutes(1));
+
+        // The replicas are behind the primary, so caching what they return would keep it for the whole TTL.
+        assertEquals(2020, cache.findById(1, repository::findById).getYearInstalled());
+        assertEquals(2020, cache.findBySection("The Ridge", repository::findBySection).get(0).getYearInstalled());
+        // Reads that skip the cache still use the replicas.
+        assertNotEquals(2020, repository.findById(1).getYearInstalled());
+    }
+
+    @Test
+    void shouldReadFromPrimaryWithoutReplicas() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(primary);
+        SolarPanelJdbcTemplateRepository repository = new SolarPanelJdbcTemplateRepository(jdbcTemplate,
+                new SectionRegistry(jdbcTemplate), 1000);
+
+        assertEquals(2020, repository.findById(1).getYearInstalled());
+        assertEquals(2020, repository.findById(1).getYearInstalled());
+    }
+
+    private SolarPanelJdbcTemplateRepository repository(ReadReplicas.Balance balance) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(primary);
+        // Closing the replicas is up to tearDown.
+        ReadReplicas replicas = new ReadReplicas(jdbcTemplate, List.of(firstReplica, secondReplica), balance);
+        return new SolarPanelJdbcTemplateRepository(jdbcTemplate,
+                new SectionRegistry(jdbcTemplate), replicas, 1000);
+    }
+
+    private static HikariDataSource embeddedDatabase() throws IOException {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:mem:replica_" + UUID.randomUUID()
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;IGNORECASE=TRUE;DB_CLOSE_DELAY=-1");
+        config.setUsername("sa");
+        config.setPassword("");
+        HikariDataSource dataSource = new HikariDataSource(config);
+
+        String script = StreamUtils.copyToString(
+                new ClassPathResource("database/production.sql").getInputStream(), StandardCharsets.UTF_8);
+        new ResourceDatabasePopulator(new ByteArrayResource(
+                EmbeddedDatabaseConfig.withoutMySqlOnlyStatements(script).getBytes(StandardCharsets.UTF_8)))
+                .execute(dataSource);
+        return dataSource;
+    }
+}
@@ -0,0 +1,100 @@
+package learn.solarfarm.data;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import learn.solarfarm.models.Material;
+import learn.solarfarm.models.SolarPanel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// One connection in the pool, so anything that needs a second one times out instead of passing.
+class SectionRegistryTest {
+
+    HikariDataSource dataSource;
+    JdbcTemplate jdbcTemplate;
+    TransactionTemplate transactionTemplate;
+    SectionRegistry sections;
+    SolarPanelJdbcTemplateRepository repository;
+
+    @BeforeEach
+    void setup() throws IOException {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:mem:sections_" + UUID.randomUUID()
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;IGNORECASE=TRUE;DB_CLOSE_DELAY=-1");
+        config.setUsername("sa");
+        config.setPassword("");
+        config.setMaximumPoolSize(1);
+        config.setConnectionTimeout(250);
+        dataSource = new HikariDataSource(config);
+
+        String script = StreamUtils.copyToString(
+                new ClassPathResource("database/production.sql").getInputStream(), StandardCharsets.UTF_8);
+        new ResourceDatabasePopulator(new ByteArrayResource(
+                EmbeddedDatabaseConfig.withoutMySqlOnlyStatements(script).getBytes(StandardCharsets.UTF_8)))
+                .execute(dataSource);
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        sections = new SectionRegistry(jdbcTemplate);
+        repository = new SolarPanelJdbcTemplateRepository(jdbcTemplate, sections, 1000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    void shouldAddSectionInsideTransaction() {
+        List<SolarPanel> created = transactionTemplate.execute(status -> repository.createAll(List.of(
+                new SolarPanel(0, "East Hill", 1, 1, 2000, Material.CIGS, true),
+                new SolarPanel(0, "East Hill", 1, 2, 2001, Material.A_SI, false))));
+
+        assertEquals(2, created.size());
+        assertEquals(2, repository.findBySection("east hill").size());
+    }
+
+    @Test
+    void shouldForgetSectionWhenTransactionRollsBack() {
+        transactionTemplate.executeWithoutResult(status -> {
+            sections.getOrCreateId("East Hill");
+            // The transaction that added it can use it right away.
+            assertNotNull(sections.findId("East Hill"));
+            status.setRollbackOnly();
+        });
+
+        assertNull(sections.findId("East Hill"));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "select count(*) from section where name = 'East Hill';", Integer.class));
+    }
+
+    @Test
+    void shouldFindSectionAddedElsewhereWhileMapping() {
+        assertEquals(5, repository.findAll().size());
+
+        // Another server adds a section and a panel in it.
+        jdbcTemplate.update("insert into section (name) values ('East Hill');");
+        jdbcTemplate.update("insert into solar_panel (section_id, `row`, `column`, year_installed, material, is_tracking) " +
+                "values ((select section_id from section where name = 'East Hill'), 1, 1, 2000, 'CIGS', true);");
+
+        List<SolarPanel> result = repository.findAll();
+
+        assertEquals(6, result.size());
+        assertEquals("East Hill", result.get(0).getSection());
+    }
+}
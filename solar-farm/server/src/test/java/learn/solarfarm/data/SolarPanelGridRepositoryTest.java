@@ -0,0 +1,147 @@
+package learn.solarfarm.data;
+
+import learn.solarfarm.models.Material;
+import learn.solarfarm.models.SolarPanel;
+import learn.solarfarm.models.SolarPanelCursor;
+import learn.solarfarm.models.UpsertType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SolarPanelGridRepositoryTest {
+
+    SolarPanelJdbcTemplateRepository delegate;
+    SolarPanelGridRepository repository;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setup() {
+        delegate = mock(SolarPanelJdbcTemplateRepository.class);
+        doAnswer(invocation -> {
+            Consumer<SolarPanel> consumer = invocation.getArgument(0);
+            consumer.accept(new SolarPanel(1, "The Ridge", 1, 1, 2020, Material.POLY_SI, true));
+            consumer.accept(new SolarPanel(2, "The Ridge", 1, 2, 2019, Material.MONO_SI, true));
+            consumer.accept(new SolarPanel(3, "Flats", 1, 1, 2017, Material.A_SI, true));
+            consumer.accept(new SolarPanel(4, "Flats", 2, 6, 2017, Material.CD_TE, true));
+            consumer.accept(new SolarPanel(5, "Flats", 3, 7, 2000, Material.CIGS, false));
+            return null;
+        }).when(delegate).streamAll(any(Consumer.class));
+
+        repository = new SolarPanelGridRepository(delegate);
+    }
+
+    @Test
+    void shouldFindAllInSectionRowColumnOrder() {
+        List<SolarPanel> result = repository.findAll();
+
+        assertEquals(5, result.size());
+        assertEquals(3, result.get(0).getId());
+        assertEquals(5, result.get(2).getId());
+        assertEquals(1, result.get(3).getId());
+    }
+
+    @Test
+    void shouldFindPage() {
+        List<SolarPanel> firstPage = repository.findPage(null, 2);
+        assertEquals(List.of(3, 4), firstPage.stream().map(SolarPanel::getId).toList());
+
+        List<SolarPanel> nextPage = repository.findPage(SolarPanelCursor.of(firstPage.get(1)), 2);
+        assertEquals(List.of(5, 1), nextPage.stream().map(SolarPanel::getId).toList());
+    }
+
+    @Test
+    void shouldFindBySectionWithoutRegardToCase() {
+        assertEquals(2, repository.findBySection("the ridge").size());
+        assertEquals(0, repository.findBySection("Nowhere").size());
+    }
+
+    @Test
+    void shouldFindByRangeInRowColumnOrder() {
+        List<SolarPanel> result = repository.findByRange("flats", 1, 3, 1, 7);
+        assertEquals(List.of(3, 4, 5), result.stream().map(SolarPanel::getId).toList());
+
+        assertEquals(List.of(4), repository.findByRange("Flats", 2, 3, 1, 6).stream().map(SolarPanel::getId).toList());
+        assertEquals(0, repository.findByRange("Flats", 3, 2, 1, 7).size());
+        assertEquals(0, repository.findByRange("Nowhere", 1, 249, 1, 249).size());
+    }
+
+    @Test
+    void shouldFindById() {
+        assertEquals(new SolarPanel(4, "Flats", 2, 6, 2017, Material.CD_TE, true), repository.findById(4));
+        assertNull(repository.findById(99));
+    }
+
+    @Test
+    void shouldFindExistingNaturalKey() {
+        assertTrue(repository.existsByNaturalKey(new SolarPanel(0, "Flats", 2, 6, 2020, Material.CIGS, true)));
+        assertFalse(repository.existsByNaturalKey(new SolarPanel(4, "Flats", 2, 6, 2020, Material.CIGS, true)));
+        assertFalse(repository.existsByNaturalKey(new SolarPanel(0, "Flats", 2, 7, 2020, Material.CIGS, true)));
+        verify(delegate, never()).existsByNaturalKey(any());
+    }
+
+    @Test
+    void shouldWriteThroughCreate() {
+        SolarPanel solarPanel = new SolarPanel(0, "East Hill", 1, 2, 2000, Material.CIGS, true);
+        when(delegate.create(solarPanel)).thenAnswer(invocation -> {
+            solarPanel.setId(6);
+            return solarPanel;
+        });
+
+        repository.create(solarPanel);
+
+        assertEquals(solarPanel, repository.findById(6));
+        assertEquals(1, repository.findBySection("East Hill").size());
+    }
+
+    @Test
+    void shouldWriteThroughUpdateToAnotherSection() {
+        SolarPanel solarPanel = new SolarPanel(2, "East Ridge", 100, 200, 2015, Material.POLY_SI, false);
+        when(delegate.update(solarPanel)).thenReturn(true);
+
+        assertTrue(repository.update(solarPanel));
+
+        assertEquals(solarPanel, repository.findById(2));
+        assertEquals(1, repository.findBySection("The Ridge").size());
+    }
+
+    @Test
+    void shouldNotChangeGridWhenDatabaseUpdateFails() {
+        SolarPanel solarPanel = new SolarPanel(2, "East Ridge", 100, 200, 2015, Material.POLY_SI, false);
+
+        assertFalse(repository.update(solarPanel));
+        assertEquals("The Ridge", repository.findById(2).getSection());
+    }
+
+    @Test
+    void shouldWriteThroughUpsert() {
+        SolarPanel solarPanel = new SolarPanel(0, "Flats", 3, 7, 2010, Material.MONO_SI, true);
+        when(delegate.upsert(solarPanel)).thenAnswer(invocation -> {
+            solarPanel.setId(5);
+            solarPanel.setVersion(1);
+            return UpsertType.UPDATED;
+        });
+
+        assertEquals(UpsertType.UPDATED, repository.upsert(solarPanel));
+
+        assertEquals(solarPanel, repository.findById(5));
+        assertEquals(1, repository.findById(5).getVersion());
+        assertEquals(3, repository.findBySection("Flats").size());
+        // Nothing is read back, so a lagging replica can't put an old panel in the grid.
+        verify(delegate, never()).findById(anyInt());
+    }
+
+    @Test
+    void shouldWriteThroughDelete() {
+        when(delegate.deleteById(5)).thenReturn(true);
+
+        assertTrue(repository.deleteById(5));
+
+        assertNull(repository.findById(5));
+        assertEquals(2, repository.findBySection("Flats").size());
+    }
+}
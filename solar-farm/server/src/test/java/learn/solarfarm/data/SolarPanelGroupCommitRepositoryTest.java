@@ -0,0 +1,172 @@
+package learn.solarfarm.data;
+
+import learn.solarfarm.models.Material;
+import learn.solarfarm.models.SolarPanel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SolarPanelGroupCommitRepositoryTest {
+
+    SolarPanelJdbcTemplateRepository delegate;
+    SolarPanelGroupCommitRepository repository;
+    // One thread per caller, they all wait on the same batch.
+    ExecutorService callers = Executors.newFixedThreadPool(3);
+
+    @BeforeEach
+    void setup() {
+        delegate = mock(SolarPanelJdbcTemplateRepository.class);
+        // A long wait, so the batch is only written once it's full.
+        repository = new SolarPanelGroupCommitRepository(delegate, mock(PlatformTransactionManager.class),
+                3, Duration.ofSeconds(30), 100, Duration.ofSeconds(30));
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.destroy();
+        callers.shutdownNow();
+    }
+
+    @Test
+    void shouldCreateConcurrentPanelsInOneBatch() {
+        doAnswer(invocation -> {
+            List<SolarPanel> solarPanels = invocation.getArgument(0);
+            for (int i = 0; i < solarPanels.size(); i++) {
+                solarPanels.get(i).setId(10 + i);
+            }
+            return solarPanels;
+        }).when(delegate).createAll(anyList());
+
+        List<CompletableFuture<SolarPanel>> results = new ArrayList<>();
+        for (int column = 1; column <= 3; column++) {
+            SolarPanel solarPanel = new SolarPanel(0, "Flats", 1, column, 2020, Material.POLY_SI, true);
+            results.add(CompletableFuture.supplyAsync(() -> repository.create(solarPanel), callers));
+        }
+
+        List<Integer> ids = results.stream().map(result -> result.join().getId()).sorted().toList();
+        assertEquals(List.of(10, 11, 12), ids);
+        verify(delegate, times(1)).createAll(anyList());
+        verify(delegate, never()).create(any());
+    }
+
+    @Test
+    void shouldOnlyFailTheCallerWhosePanelFailed() {
+        SolarPanel duplicate = new SolarPanel(0, "Flats", 1, 1, 2020, Material.POLY_SI, true);
+        doThrow(new DuplicateKeyException("duplicate")).when(delegate).createAll(anyList());
+        doThrow(new DuplicateKeyException("duplicate")).when(delegate).create(duplicate);
+        doAnswer(invocation -> {
+            SolarPanel solarPanel = invocation.getArgument(0);
+            solarPanel.setId(20 + solarPanel.getColumn());
+            return solarPanel;
+        }).when(delegate).create(argThat(solarPanel -> solarPanel != duplicate));
+
+        CompletableFuture<SolarPanel> failed = CompletableFuture.supplyAsync(() -> repository.create(duplicate), callers);
+        CompletableFuture<SolarPanel> second = CompletableFuture.supplyAsync(() ->
+                repository.create(new SolarPanel(0, "Flats", 1, 2, 2020, Material.POLY_SI, true)), callers);
+        CompletableFuture<SolarPanel> third = CompletableFuture.supplyAsync(() ->
+                repository.create(new SolarPanel(0, "Flats", 1, 3, 2020, Material.POLY_SI, true)), callers);
+
+        CompletionException ex = assertThrows(CompletionException.class, failed::join);
+        assertInstanceOf(DuplicateKeyException.class, ex.getCause());
+        assertEquals(22, second.join().getId());
+        assertEquals(23, third.join().getId());
+    }
+
+    @Test
+    void shouldGiveUpWithoutWritingAfterTimeout() {
+        repository.destroy();
+        repository = new SolarPanelGroupCommitRepository(delegate, mock(PlatformTransactionManager.class),
+                3, Duration.ofSeconds(30), 100, Duration.ofMillis(100));
+
+        // The batch never fills, so it's still waiting when the caller gives up.
+        QueryTimeoutException ex = assertThrows(QueryTimeoutException.class, () ->
+                repository.create(new SolarPanel(0, "Flats", 1, 1, 2020, Material.POLY_SI, true)));
+
+        assertTrue(ex.getMessage().contains("wasn't created"));
+        verify(delegate, never()).createAll(anyList());
+    }
+
+    @Test
+    void shouldWaitForAnInsertThatHasStartedAfterTimeout() {
+        repository.destroy();
+        repository = new SolarPanelGroupCommitRepository(delegate, mock(PlatformTransactionManager.class),
+                1, Duration.ZERO, 100, Duration.ofMillis(100));
+        // The insert outlasts the caller's timeout, but it commits, so the caller has to hear about it.
+        doAnswer(invocation -> {
+            Thread.sleep(300);
+            List<SolarPanel> solarPanels = invocation.getArgument(0);
+            solarPanels.get(0).setId(30);
+            return solarPanels;
+        }).when(delegate).createAll(anyList());
+
+        SolarPanel created = repository.create(new SolarPanel(0, "Flats", 1, 1, 2020, Material.POLY_SI, true));
+
+        assertEquals(30, created.getId());
+    }
+
+    @Test
+    void shouldRejectWhenQueueIsFull() throws InterruptedException {
+        repository.destroy();
+        repository = new SolarPanelGroupCommitRepository(delegate, mock(PlatformTransactionManager.class),
+                1, Duration.ZERO, 1, Duration.ofSeconds(30));
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            return invocation.getArgument(0);
+        }).when(delegate).createAll(anyList());
+
+        CompletableFuture<SolarPanel> first = CompletableFuture.supplyAsync(() ->
+                repository.create(new SolarPanel(0, "Flats", 1, 1, 2020, Material.POLY_SI, true)), callers);
+        assertTrue(writing.await(1, TimeUnit.SECONDS));
+        // The writer is busy, so one of these waits in the queue and the other doesn't fit.
+        CompletableFuture<SolarPanel> second = CompletableFuture.supplyAsync(() ->
+                repository.create(new SolarPanel(0, "Flats", 1, 2, 2020, Material.POLY_SI, true)), callers);
+        CompletableFuture<SolarPanel> third = CompletableFuture.supplyAsync(() ->
+                repository.create(new SolarPanel(0, "Flats", 1, 3, 2020, Material.POLY_SI, true)), callers);
+
+        CompletionException ex = assertThrows(CompletionException.class,
+                () -> CompletableFuture.anyOf(second, third).join());
+        assertInstanceOf(TaskRejectedException.class, ex.getCause());
+        release.countDown();
+        assertNotNull(first.join());
+        long created = List.of(second, third).stream()
+                .filter(result -> result.handle((solarPanel, error) -> error == null).join())
+                .count();
+        assertEquals(1, created);
+    }
+
+    @Test
+    void shouldKeepWritingAfterUnexpectedError() {
+        repository.destroy();
+        repository = new SolarPanelGroupCommitRepository(delegate, mock(PlatformTransactionManager.class),
+                1, Duration.ZERO, 100, Duration.ofSeconds(30));
+        doThrow(new AssertionError("bug"))
+                .doAnswer(invocation -> invocation.getArgument(0))
+                .when(delegate).createAll(anyList());
+
+        assertThrows(CompletionException.class, () ->
+                repository.create(new SolarPanel(0, "Flats", 1, 1, 2020, Material.POLY_SI, true)));
+        SolarPanel created = repository.create(new SolarPanel(0, "Flats", 1, 2, 2020, Material.POLY_SI, true));
+
+        assertEquals(2, created.getColumn());
+    }
+}
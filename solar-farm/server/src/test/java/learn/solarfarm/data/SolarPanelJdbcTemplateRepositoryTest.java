@@ -2,44 +2,33 @@ package learn.solarfarm.data;
 
 import learn.solarfarm.models.Material;
 import learn.solarfarm.models.SolarPanel;
-import org.junit.jupiter.api.BeforeAll;
-import org.junit.jupiter.api.BeforeEach;
+import learn.solarfarm.models.SolarPanelCursor;
+import learn.solarfarm.models.SolarPanelFilter;
+import learn.solarfarm.models.SolarPanelGroupCount;
+import learn.solarfarm.models.UpsertType;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.context.ApplicationContext;
-import org.springframework.context.annotation.AnnotationConfigApplicationContext;
-import org.springframework.dao.DataAccessException;
-import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+// Every test starts from the seed data in database/production.sql and rolls back its changes.
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@Transactional
 class SolarPanelJdbcTemplateRepositoryTest {
 
     @Autowired
     private SolarPanelJdbcTemplateRepository repository;
 
-    @Autowired
-    private JdbcTemplate jdbcTemplate;
-
-    static boolean hasSetup = false;
-
-    @BeforeEach
-    void setup() {
-        if (!hasSetup) {
-            hasSetup = true;
-            jdbcTemplate.update("call set_known_good_state();");
-        }
-    }
-
     @Test
     void shouldFindAll() {
         List<SolarPanel> result = repository.findAll();
         assertNotNull(result);
-        assertTrue(result.size() >= 4);
+        assertEquals(5, result.size());
 
         SolarPanel solarPanel = new SolarPanel();
         solarPanel.setId(1);
@@ -53,11 +42,91 @@ class SolarPanelJdbcTemplateRepositoryTest {
         assertTrue(result.contains(solarPanel));
     }
 
+    @Test
+    void shouldFindPage() {
+        List<SolarPanel> firstPage = repository.findPage(null, 2);
+        assertEquals(2, firstPage.size());
+
+        List<SolarPanel> nextPage = repository.findPage(SolarPanelCursor.of(firstPage.get(1)), 2);
+        assertFalse(nextPage.isEmpty());
+        assertFalse(nextPage.contains(firstPage.get(0)));
+        assertFalse(nextPage.contains(firstPage.get(1)));
+    }
+
+    @Test
+    void shouldFindPageAcrossSections() {
+        // Flats sorts before The Ridge, even though The Ridge has the lower section_id.
+        List<SolarPanel> firstPage = repository.findPage(null, 4);
+        assertEquals(List.of(3, 4, 5, 1), firstPage.stream().map(SolarPanel::getId).toList());
+
+        List<SolarPanel> nextPage = repository.findPage(SolarPanelCursor.of(firstPage.get(2)), 4);
+        assertEquals(List.of(1, 2), nextPage.stream().map(SolarPanel::getId).toList());
+    }
+
+    @Test
+    void shouldStreamAll() {
+        List<SolarPanel> result = new ArrayList<>();
+        repository.streamAll(result::add);
+        assertEquals(repository.findAll(), result);
+    }
+
     @Test
     void shouldFindBySection() {
         List<SolarPanel> result = repository.findBySection("The Ridge");
         assertNotNull(result);
-        assertTrue(result.size() == 1 || result.size() == 2);
+        assertEquals(2, result.size());
+        // Every panel in a section shares one String for its name.
+        assertSame(result.get(0).getSection(), result.get(1).getSection());
+        assertEquals(0, repository.findBySection("Nowhere").size());
+    }
+
+    @Test
+    void shouldFindByRangeInRowColumnOrder() {
+        List<SolarPanel> result = repository.findByRange("flats", 1, 2, 1, 6);
+
+        assertEquals(List.of(3, 4), result.stream().map(SolarPanel::getId).toList());
+        assertEquals(0, repository.findByRange("Flats", 1, 3, 2, 5).size());
+    }
+
+    @Test
+    void shouldFindByFilter() {
+        SolarPanelFilter filter = new SolarPanelFilter();
+        filter.setMaterial(Material.CD_TE);
+        filter.setYearInstalledMax(2017);
+        filter.setTracking(true);
+        assertEquals(List.of(4), ids(repository.findByFilter(filter, null, 10)));
+
+        filter = new SolarPanelFilter();
+        filter.setSection("flats");
+        filter.setYearInstalledMin(2010);
+        assertEquals(List.of(3, 4), ids(repository.findByFilter(filter, null, 10)));
+    }
+
+    @Test
+    void shouldFindByFilterSortedAndLimited() {
+        SolarPanelFilter filter = new SolarPanelFilter();
+        filter.setSort(SolarPanelFilter.Sort.YEAR_INSTALLED);
+
+        assertEquals(List.of(5, 3), ids(repository.findByFilter(filter, null, 2)));
+    }
+
+    @Test
+    void shouldFindNextFilterPage() {
+        SolarPanelFilter filter = new SolarPanelFilter();
+        filter.setSort(SolarPanelFilter.Sort.YEAR_INSTALLED);
+        List<SolarPanel> firstPage = repository.findByFilter(filter, null, 2);
+        assertEquals(List.of(5, 3), ids(firstPage));
+        assertEquals(List.of(4, 2), ids(repository.findByFilter(filter, SolarPanelCursor.of(firstPage.get(1)), 2)));
+
+        // Location order across sections seeks by section name.
+        filter = new SolarPanelFilter();
+        firstPage = repository.findByFilter(filter, null, 3);
+        assertEquals(List.of(3, 4, 5), ids(firstPage));
+        assertEquals(List.of(1, 2), ids(repository.findByFilter(filter, SolarPanelCursor.of(firstPage.get(2)), 3)));
+
+        // Within one section it seeks by row, column, and id.
+        filter.setSection("Flats");
+        assertEquals(List.of(4, 5), ids(repository.findByFilter(filter, SolarPanelCursor.of(firstPage.get(0)), 3)));
     }
 
     @Test
@@ -66,6 +135,28 @@ class SolarPanelJdbcTemplateRepositoryTest {
         assertNotNull(result);
     }
 
+    @Test
+    void shouldFindExistingNaturalKey() {
+        SolarPanel solarPanel = new SolarPanel(0, "The Ridge", 1, 1, 2020, Material.POLY_SI, true);
+        assertTrue(repository.existsByNaturalKey(solarPanel));
+
+        // The panel itself doesn't count.
+        solarPanel.setId(1);
+        assertFalse(repository.existsByNaturalKey(solarPanel));
+
+        solarPanel.setRow(249);
+        assertFalse(repository.existsByNaturalKey(solarPanel));
+    }
+
+    @Test
+    void shouldCountByGroup() {
+        List<SolarPanelGroupCount> result = repository.countByGroup();
+
+        assertEquals(5, result.stream().mapToLong(SolarPanelGroupCount::getCount).sum());
+        assertTrue(result.stream().anyMatch(group -> group.getSection().equals("The Ridge") &&
+                group.getMaterial() == Material.POLY_SI && group.getDecadeInstalled() == 2020 && group.isTracking()));
+    }
+
     @Test
     void shouldCreate() {
         SolarPanel solarPanel = new SolarPanel();
@@ -78,10 +169,25 @@ class SolarPanelJdbcTemplateRepositoryTest {
 
         SolarPanel result = repository.create(solarPanel);
 
+        // Auto increment values aren't rolled back, so the id depends on which tests ran first.
         assertNotNull(result);
-        assertEquals(6, result.getId());
+        assertTrue(result.getId() > 5);
 
-        assertEquals(result, repository.findById(6));
+        assertEquals(result, repository.findById(result.getId()));
+    }
+
+    @Test
+    void shouldCreateAll() {
+        List<SolarPanel> solarPanels = List.of(
+                new SolarPanel(0, "East Hill", 1, 1, 2000, Material.CIGS, true),
+                new SolarPanel(0, "East Hill", 1, 2, 2001, Material.A_SI, false));
+
+        List<SolarPanel> result = repository.createAll(solarPanels);
+
+        assertEquals(2, result.size());
+        assertEquals(result.get(0), repository.findById(result.get(0).getId()));
+        assertEquals(result.get(1), repository.findById(result.get(1).getId()));
+        assertEquals(2, repository.findBySection("east hill").size());
     }
 
     @Test
@@ -99,8 +205,57 @@ class SolarPanelJdbcTemplateRepositoryTest {
         assertEquals(solarPanel, repository.findById(2));
     }
 
+    @Test
+    void shouldUpdateWithoutChanges() {
+        SolarPanel solarPanel = repository.findById(1);
+        int version = solarPanel.getVersion();
+
+        assertTrue(repository.update(solarPanel));
+        assertEquals(version + 1, repository.findById(1).getVersion());
+    }
+
+    @Test
+    void shouldNotUpdateStaleVersion() {
+        SolarPanel solarPanel = repository.findById(1);
+        solarPanel.setVersion(solarPanel.getVersion() - 1);
+
+        assertFalse(repository.update(solarPanel));
+    }
+
+    @Test
+    void shouldUpsertExistingNaturalKey() {
+        SolarPanel solarPanel = new SolarPanel(0, "Flats", 1, 1, 2018, Material.MONO_SI, false);
+
+        assertEquals(UpsertType.UPDATED, repository.upsert(solarPanel));
+        assertEquals(3, solarPanel.getId());
+        assertEquals(1, solarPanel.getVersion());
+        assertEquals(solarPanel, repository.findById(3));
+
+        // MySQL reports UNCHANGED (and returns no generated key), H2 can't tell, but neither bumps the version.
+        SolarPanel unchanged = new SolarPanel(0, "Flats", 1, 1, 2018, Material.MONO_SI, false);
+        assertNotEquals(UpsertType.INSERTED, repository.upsert(unchanged));
+        assertEquals(3, unchanged.getId());
+        assertEquals(1, unchanged.getVersion());
+        assertEquals(1, repository.findById(3).getVersion());
+    }
+
+    @Test
+    void shouldUpsertAll() {
+        SolarPanel solarPanel = new SolarPanel(0, "flats", 2, 6, 2016, Material.CD_TE, false);
+
+        List<SolarPanel> result = repository.upsertAll(List.of(solarPanel));
+
+        assertEquals(4, result.get(0).getId());
+        assertEquals(2016, repository.findById(4).getYearInstalled());
+    }
+
     @Test
     void shouldDelete() {
         assertTrue(repository.deleteById(5));
+        assertFalse(repository.deleteById(5));
+    }
+
+    private static List<Integer> ids(List<SolarPanel> solarPanels) {
+        return solarPanels.stream().map(SolarPanel::getId).toList();
     }
-}
\ No newline at end of file
+}
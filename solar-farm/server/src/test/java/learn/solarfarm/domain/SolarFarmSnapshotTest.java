@@ -0,0 +1,89 @@
+package learn.solarfarm.domain;
+
+import learn.solarfarm.models.Material;
+import learn.solarfarm.models.SolarPanel;
+import learn.solarfarm.models.SolarPanelFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SolarFarmSnapshotTest {
+
+    SolarFarmSnapshot snapshot;
+
+    @BeforeEach
+    void setup() {
+        List<SolarPanel> solarPanels = List.of(
+                new SolarPanel(1, "The Ridge", 1, 1, 2020, Material.POLY_SI, true),
+                new SolarPanel(2, "The Ridge", 1, 2, 2019, Material.MONO_SI, true),
+                new SolarPanel(3, "Flats", 1, 1, 2017, Material.A_SI, true),
+                new SolarPanel(4, "Flats", 2, 6, 2017, Material.CD_TE, true),
+                new SolarPanel(5, "Flats", 3, 7, 2000, Material.CIGS, false));
+        snapshot = SolarFarmSnapshot.build(solarPanels::forEach);
+    }
+
+    @Test
+    void shouldPackEveryField() {
+        long panel = SolarFarmSnapshot.pack(new SolarPanel(7, "Flats", 249, 248, -12, Material.CD_TE, true));
+
+        assertEquals(249, SolarFarmSnapshot.getRow(panel));
+        assertEquals(248, SolarFarmSnapshot.getColumn(panel));
+        assertEquals(-12, SolarFarmSnapshot.getYearInstalled(panel));
+        assertEquals(Material.CD_TE, SolarFarmSnapshot.getMaterial(panel));
+        assertTrue(SolarFarmSnapshot.isTracking(panel));
+    }
+
+    @Test
+    void shouldCountAndFindIdsInLocationOrder() {
+        SolarPanelFilter filter = new SolarPanelFilter();
+        assertEquals(5, snapshot.count(filter));
+        assertArrayEquals(new int[]{3, 4, 5, 1, 2}, snapshot.findIds(filter, 10));
+        assertArrayEquals(new int[]{3, 4}, snapshot.findIds(filter, 2));
+
+        filter.setTracking(true);
+        filter.setYearInstalledMin(2017);
+        filter.setYearInstalledMax(2019);
+        assertArrayEquals(new int[]{3, 4, 2}, snapshot.findIds(filter, 10));
+
+        filter.setSection("flats");
+        filter.setMaterial(Material.CD_TE);
+        assertEquals(1, snapshot.count(filter));
+
+        filter.setSection("Nowhere");
+        assertEquals(0, snapshot.count(filter));
+    }
+
+    @Test
+    void shouldVisitPackedPanels() {
+        List<String> visited = new ArrayList<>();
+        SolarPanelFilter filter = new SolarPanelFilter();
+        filter.setSection("The Ridge");
+
+        snapshot.forEach(filter, (id, section, panel) -> visited.add(String.format("%s %s %s-%s",
+                id, section, SolarFarmSnapshot.getRow(panel), SolarFarmSnapshot.getColumn(panel))));
+
+        assertEquals(List.of("1 The Ridge 1-1", "2 The Ridge 1-2"), visited);
+    }
+
+    @Test
+    void shouldApplyChangesToACopy() {
+        SolarFarmSnapshot changed = snapshot.withChanges(List.of(
+                SolarPanelChangedEvent.created(new SolarPanel(6, "East Hill", 1, 1, 1999, Material.A_SI, true)),
+                SolarPanelChangedEvent.updated(null, new SolarPanel(3, "The Ridge", 2, 1, 2017, Material.A_SI, true)),
+                SolarPanelChangedEvent.deleted(5, null)));
+
+        assertEquals(5, changed.size());
+        assertEquals(List.of("East Hill", "Flats", "The Ridge"), changed.getSections());
+        assertArrayEquals(new int[]{6, 4, 1, 2, 3}, changed.findIds(new SolarPanelFilter(), 10));
+        assertFalse(changed.contains(5));
+
+        // The original is unchanged.
+        assertEquals(List.of("Flats", "The Ridge"), snapshot.getSections());
+        assertArrayEquals(new int[]{3, 4, 5, 1, 2}, snapshot.findIds(new SolarPanelFilter(), 10));
+        assertTrue(snapshot.contains(5));
+    }
+}
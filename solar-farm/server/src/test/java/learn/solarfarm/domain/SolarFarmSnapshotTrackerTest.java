@@ -0,0 +1,66 @@
+package learn.solarfarm.domain;
+
+import learn.solarfarm.data.SolarPanelRepository;
+import learn.solarfarm.models.Material;
+import learn.solarfarm.models.SolarPanel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class SolarFarmSnapshotTrackerTest {
+
+    SolarPanelRepository repository;
+    SolarFarmSnapshotTracker tracker;
+
+    @BeforeEach
+    void setup() {
+        repository = mock(SolarPanelRepository.class);
+        tracker = new SolarFarmSnapshotTracker(repository);
+    }
+
+    @Test
+    void shouldReplayChangesMadeDuringBuild() {
+        doAnswer(invocation -> {
+            Consumer<SolarPanel> consumer = invocation.getArgument(0);
+            consumer.accept(new SolarPanel(1, "The Ridge", 1, 1, 2020, Material.POLY_SI, true));
+            // Committed after the stream passed it, so the build never sees it.
+            tracker.onSolarPanelChanged(SolarPanelChangedEvent.created(
+                    new SolarPanel(2, "Flats", 1, 1, 2000, Material.CIGS, false)));
+            return null;
+        }).when(repository).streamAll(any());
+
+        SolarFarmSnapshot snapshot = tracker.getSnapshot();
+
+        assertEquals(2, snapshot.size());
+        assertTrue(snapshot.contains(2));
+    }
+
+    @Test
+    void shouldKeepReadingOldSnapshotDuringRebuild() {
+        doAnswer(invocation -> {
+            Consumer<SolarPanel> consumer = invocation.getArgument(0);
+            consumer.accept(new SolarPanel(1, "The Ridge", 1, 1, 2020, Material.POLY_SI, true));
+            return null;
+        }).doAnswer(invocation -> {
+            // Another thread reads while the rebuild streams.
+            SolarFarmSnapshot[] during = new SolarFarmSnapshot[1];
+            Thread reader = new Thread(() -> during[0] = tracker.getSnapshot());
+            reader.start();
+            reader.join(1000);
+            assertNotNull(during[0]);
+            assertEquals(1, during[0].size());
+            return null;
+        }).when(repository).streamAll(any());
+        tracker.getSnapshot();
+
+        tracker.rebuild();
+
+        assertEquals(0, tracker.getSnapshot().size());
+        verify(repository, times(2)).streamAll(any());
+    }
+}
@@ -0,0 +1,86 @@
+package learn.solarfarm.domain;
+
+import learn.solarfarm.data.SolarPanelRepository;
+import learn.solarfarm.models.Material;
+import learn.solarfarm.models.SolarPanel;
+import learn.solarfarm.models.SolarPanelGroupCount;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SolarFarmStatisticsTrackerTest {
+
+    SolarPanelRepository repository;
+    SolarFarmStatisticsTracker tracker;
+
+    @BeforeEach
+    void setup() {
+        repository = mock(SolarPanelRepository.class);
+        when(repository.countByGroup()).thenReturn(List.of(
+                new SolarPanelGroupCount("The Ridge", Material.POLY_SI, 2020, true, 2),
+                new SolarPanelGroupCount("Flats", Material.CIGS, 2000, false, 1)));
+        tracker = new SolarFarmStatisticsTracker(repository);
+        tracker.rebuild();
+    }
+
+    @Test
+    void shouldRebuildFromGroupCounts() {
+        SolarFarmStatistics statistics = tracker.getStatistics();
+
+        assertEquals(3, statistics.getTotal());
+        assertEquals(2, statistics.getTracking());
+        assertEquals(1, statistics.getFixed());
+        assertEquals(2L, statistics.getBySection().get("the ridge"));
+        assertEquals(1L, statistics.getByMaterial().get(Material.CIGS));
+        assertEquals(2L, statistics.getByDecadeInstalled().get(2020));
+    }
+
+    @Test
+    void shouldAdjustCountsWithoutQuerying() {
+        SolarPanel previous = new SolarPanel(3, "Flats", 1, 1, 2005, Material.CIGS, false);
+        SolarPanel current = new SolarPanel(3, "The Ridge", 1, 1, 2011, Material.CD_TE, true);
+
+        tracker.onSolarPanelChanged(SolarPanelChangedEvent.created(
+                new SolarPanel(4, "East Hill", 1, 1, 1999, Material.A_SI, true)));
+        tracker.onSolarPanelChanged(SolarPanelChangedEvent.updated(previous, current));
+        SolarFarmStatistics statistics = tracker.getStatistics();
+
+        assertEquals(4, statistics.getTotal());
+        assertEquals(4, statistics.getTracking());
+        assertNull(statistics.getBySection().get("Flats"));
+        assertEquals(3L, statistics.getBySection().get("The Ridge"));
+        assertEquals(1L, statistics.getByDecadeInstalled().get(1990));
+        assertEquals(1L, statistics.getByDecadeInstalled().get(2010));
+        verify(repository, times(1)).countByGroup();
+    }
+
+    @Test
+    void shouldRebuildWhenPreviousIsUnknown() {
+        tracker.onSolarPanelChanged(SolarPanelChangedEvent.deleted(1, null));
+
+        tracker.getStatistics();
+
+        verify(repository, times(2)).countByGroup();
+    }
+
+    @Test
+    void shouldQueryAgainWhenChangedDuringRebuild() {
+        when(repository.countByGroup())
+                .thenAnswer(invocation -> {
+                    // Committed while the first query ran, so it may be missing from these counts.
+                    tracker.onSolarPanelChanged(SolarPanelChangedEvent.created(
+                            new SolarPanel(4, "East Hill", 1, 1, 1999, Material.A_SI, true)));
+                    return List.of();
+                })
+                .thenReturn(List.of(new SolarPanelGroupCount("East Hill", Material.A_SI, 1990, true, 1)));
+
+        tracker.rebuild();
+
+        assertEquals(1, tracker.getStatistics().getTotal());
+        verify(repository, times(3)).countByGroup();
+    }
+}
@@ -0,0 +1,75 @@
+package learn.solarfarm.domain;
+
+import learn.solarfarm.models.Material;
+import learn.solarfarm.models.SolarPanel;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SolarPanelCacheTest {
+
+    final SolarPanelCache cache = new SolarPanelCache(true, 100, Duration.ofMinutes(1));
+
+    @Test
+    void shouldOnlyLoadByIdOnce() {
+        AtomicInteger loads = new AtomicInteger();
+        SolarPanel solarPanel = new SolarPanel(1, "Section One", 1, 1, 2020, Material.POLY_SI, true);
+
+        cache.findById(1, id -> { loads.incrementAndGet(); return solarPanel; });
+        SolarPanel result = cache.findById(1, id -> { loads.incrementAndGet(); return solarPanel; });
+
+        assertEquals(solarPanel, result);
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getStatistics().get(0).getHitCount());
+    }
+
+    @Test
+    void shouldHandOutCopies() {
+        SolarPanel solarPanel = new SolarPanel(1, "Section One", 1, 1, 2020, Material.POLY_SI, true);
+        cache.findById(1, id -> solarPanel);
+        cache.findBySection("Section One", section -> List.of(solarPanel));
+
+        // Changing what was loaded, or what came back, doesn't change what's cached.
+        solarPanel.setYearInstalled(1999);
+        cache.findById(1, id -> null).setYearInstalled(1998);
+        cache.findBySection("Section One", section -> List.of()).get(0).setYearInstalled(1997);
+
+        assertEquals(2020, cache.findById(1, id -> null).getYearInstalled());
+        assertEquals(2020, cache.findCachedById(1).getYearInstalled());
+        assertEquals(2020, cache.findBySection("Section One", section -> List.of()).get(0).getYearInstalled());
+    }
+
+    @Test
+    void shouldInvalidatePreviousAndCurrentSectionsOnUpdate() {
+        SolarPanel previous = new SolarPanel(1, "Section One", 1, 1, 2020, Material.POLY_SI, true);
+        SolarPanel current = new SolarPanel(1, "Section Two", 1, 1, 2020, Material.POLY_SI, true);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.findBySection("Section One", section -> { loads.incrementAndGet(); return List.of(previous); });
+        cache.findBySection("Section Two", section -> { loads.incrementAndGet(); return List.of(); });
+        cache.findById(1, id -> previous);
+
+        cache.onSolarPanelChanged(SolarPanelChangedEvent.updated(previous, current));
+
+        cache.findBySection("section one", section -> { loads.incrementAndGet(); return List.of(); });
+        cache.findBySection("Section Two", section -> { loads.incrementAndGet(); return List.of(current); });
+        assertEquals(current, cache.findById(1, id -> current));
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void shouldNotCacheWhenDisabled() {
+        SolarPanelCache disabled = new SolarPanelCache(false, 100, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+
+        disabled.findById(1, id -> { loads.incrementAndGet(); return null; });
+        disabled.findById(1, id -> { loads.incrementAndGet(); return null; });
+
+        assertEquals(2, loads.get());
+        assertTrue(disabled.getStatistics().isEmpty());
+    }
+}
@@ -0,0 +1,140 @@
+package learn.solarfarm.domain;
+
+import learn.solarfarm.models.Material;
+import learn.solarfarm.models.SolarPanel;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SolarPanelChangeFeedTest {
+
+    // Deliveries run on the publishing thread, so the tests don't have to wait for them.
+    SolarPanelChangeFeed feed = new SolarPanelChangeFeed(3, Runnable::run, Duration.ofSeconds(10));
+
+    @Test
+    void shouldNumberAndDeliverChanges() {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        feed.subscribe(feed.getLastSequence(), subscriber);
+
+        publish(1);
+        feed.onSolarPanelChanged(SolarPanelChangedEvent.deleted(1, null));
+
+        assertEquals(List.of(1L, 2L), subscriber.sequences);
+        assertEquals(List.of(SolarPanelChangeType.CREATED, SolarPanelChangeType.DELETED), subscriber.changeTypes);
+        assertEquals(2, feed.getLastSequence());
+    }
+
+    @Test
+    void shouldReplayFromSequence() {
+        publish(1);
+        publish(2);
+        publish(3);
+
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        feed.subscribe(1, subscriber);
+        publish(4);
+
+        assertEquals(List.of(2L, 3L, 4L), subscriber.sequences);
+    }
+
+    @Test
+    void shouldReportChangesMissingFromBuffer() {
+        for (int id = 1; id <= 4; id++) {
+            publish(id);
+        }
+
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        feed.subscribe(0, subscriber);
+        publish(5);
+
+        assertEquals(4L, subscriber.missed);
+        assertTrue(subscriber.sequences.isEmpty());
+    }
+
+    @Test
+    void shouldStopDeliveringWhenSubscriberFails() {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        subscriber.failing = true;
+        feed.subscribe(0, subscriber);
+
+        publish(1);
+        publish(2);
+
+        assertEquals(1, subscriber.calls);
+    }
+
+    @Test
+    void shouldCutOffStalledSubscriber() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        SolarPanelChangeFeed feed = new SolarPanelChangeFeed(3, executor, Duration.ZERO);
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        RecordingSubscriber subscriber = new RecordingSubscriber() {
+            @Override
+            public void onChanges(List<SolarPanelChange> changes) {
+                sending.countDown();
+                try {
+                    // A client that stopped reading.
+                    Thread.sleep(10_000);
+                } catch (InterruptedException ex) {
+                    interrupted.countDown();
+                }
+            }
+        };
+        feed.subscribe(0, subscriber);
+
+        feed.onSolarPanelChanged(SolarPanelChangedEvent.deleted(1, null));
+        assertTrue(sending.await(1, TimeUnit.SECONDS));
+        feed.cancelStalled();
+
+        assertTrue(subscriber.stalled);
+        assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+        feed.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+    }
+
+    private void publish(int id) {
+        feed.onSolarPanelChanged(SolarPanelChangedEvent.created(
+                new SolarPanel(id, "The Ridge", 1, id, 2020, Material.POLY_SI, true)));
+    }
+
+    static class RecordingSubscriber implements SolarPanelChangeFeed.Subscriber {
+        final List<Long> sequences = new ArrayList<>();
+        final List<SolarPanelChangeType> changeTypes = new ArrayList<>();
+        Long missed;
+        boolean failing;
+        volatile boolean stalled;
+        int calls;
+
+        @Override
+        public void onChanges(List<SolarPanelChange> changes) throws IOException {
+            calls++;
+            if (failing) {
+                throw new IOException("Broken pipe");
+            }
+            for (SolarPanelChange change : changes) {
+                sequences.add(change.getSequence());
+                changeTypes.add(change.getChangeType());
+            }
+        }
+
+        @Override
+        public void onMissed(long lastSequence) {
+            missed = lastSequence;
+        }
+
+        @Override
+        public void onStalled() {
+            stalled = true;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package learn.solarfarm.domain;
+
+import learn.solarfarm.data.SolarPanelRepository;
+import learn.solarfarm.models.Material;
+import learn.solarfarm.models.SolarPanel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SolarPanelImportServiceTest {
+
+    SolarPanelRepository repository;
+    SolarPanelImportService service;
+
+    @BeforeEach
+    void setup() {
+        repository = mock(SolarPanelRepository.class);
+        when(repository.findBySection(anyString())).thenReturn(List.of());
+        when(repository.findBySection("The Ridge")).thenReturn(List.of(
+                new SolarPanel(1, "The Ridge", 1, 1, 2020, Material.POLY_SI, true)));
+        when(repository.createAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        service = new SolarPanelImportService(repository, mock(ApplicationEventPublisher.class), 2, 10);
+    }
+
+    @Test
+    void shouldImportValidRowsInChunksAndReportTheRest() throws IOException {
+        String csv = """
+                material,section,row,column,yearInstalled,tracking
+                POLY_SI,The Ridge,1,1,2020,true
+                Monocrystalline Silicon,The Ridge,1,2,2019,true
+                CdTe,"Flats, East",2,6,2017,false
+                CIGS,Flats,3,7,2000,false
+                CIGS,flats,3,7,2001,false
+                CIGS,Flats,abc,7,2000,false
+                """;
+
+        SolarPanelImportResult result = service.importCsv(new StringReader(csv));
+
+        assertEquals(6, result.getRowsRead());
+        assertEquals(3, result.getImported());
+        assertEquals(3, result.getFailed());
+        assertEquals(2, result.getChunksCommitted());
+        assertEquals(List.of(2, 6, 7), result.getRowErrors().stream()
+                .map(SolarPanelImportError::getLineNumber).toList());
+        assertEquals(SolarPanelService.NATURAL_KEY_MESSAGE, result.getRowErrors().get(0).getMessages().get(0));
+        verify(repository, times(2)).createAll(anyList());
+        // One lookup per section, not one per row.
+        verify(repository, times(1)).findBySection("Flats");
+    }
+
+    @Test
+    void shouldOnlyReportRowsTakenByAnotherWriter() throws IOException {
+        // Someone else creates Flats 3-7 between our lookup and our insert.
+        when(repository.findBySection("Flats")).thenReturn(List.of())
+                .thenReturn(List.of(new SolarPanel(9, "Flats", 3, 7, 2000, Material.CIGS, false)));
+        when(repository.createAll(anyList()))
+                .thenThrow(new DuplicateKeyException("duplicate"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        String csv = """
+                material,section,row,column,yearInstalled,tracking
+                CIGS,Flats,3,7,2000,false
+                CIGS,Flats,4,4,2001,false
+                """;
+
+        SolarPanelImportResult result = service.importCsv(new StringReader(csv));
+
+        assertEquals(1, result.getImported());
+        assertEquals(1, result.getFailed());
+        assertEquals(2, result.getRowErrors().get(0).getLineNumber());
+        verify(repository, times(2)).createAll(anyList());
+    }
+
+    @Test
+    void shouldFallBackToOneRowAtATimeWhenStillConflicting() throws IOException {
+        when(repository.createAll(anyList())).thenThrow(new DuplicateKeyException("duplicate"));
+        when(repository.create(any())).thenAnswer(invocation -> {
+            SolarPanel solarPanel = invocation.getArgument(0);
+            if (solarPanel.getRow() == 3) {
+                throw new DuplicateKeyException("duplicate");
+            }
+            return solarPanel;
+        });
+        String csv = """
+                material,section,row,column,yearInstalled,tracking
+                CIGS,Flats,3,7,2000,false
+                CIGS,Flats,4,4,2001,false
+                """;
+
+        SolarPanelImportResult result = service.importCsv(new StringReader(csv));
+
+        assertEquals(1, result.getImported());
+        assertEquals(1, result.getFailed());
+        assertEquals(2, result.getRowErrors().get(0).getLineNumber());
+        verify(repository, times(2)).create(any());
+    }
+
+    @Test
+    void shouldRejectMissingHeaderColumn() throws IOException {
+        SolarPanelImportResult result = service.importCsv(new StringReader("section,row,column\nThe Ridge,1,1\n"));
+
+        assertFalse(result.isSuccess());
+        assertEquals(1, result.getErrorMessages().size());
+        verify(repository, never()).createAll(anyList());
+    }
+
+    @Test
+    void shouldSplitQuotedFields() {
+        assertEquals(List.of("a", "b, \"c\"", ""), SolarPanelCsvReader.split("a,\"b, \"\"c\"\"\","));
+        assertNull(SolarPanelCsvReader.split("a,\"b"));
+    }
+}
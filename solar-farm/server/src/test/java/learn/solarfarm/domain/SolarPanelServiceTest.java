@@ -3,10 +3,16 @@ package learn.solarfarm.domain;
 import learn.solarfarm.data.SolarPanelRepository;
 import learn.solarfarm.models.Material;
 import learn.solarfarm.models.SolarPanel;
+import learn.solarfarm.models.SolarPanelCursor;
+import learn.solarfarm.models.SolarPanelFilter;
+import learn.solarfarm.models.UpsertType;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
 
 import java.time.Year;
 import java.util.List;
@@ -16,11 +22,18 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@RecordApplicationEvents
 class SolarPanelServiceTest {
 
     @Autowired
     SolarPanelService service;
 
+    @Autowired
+    SolarFarmStatisticsTracker statisticsTracker;
+
+    @Autowired
+    ApplicationEvents events;
+
     // What is a mock?
 
     // Takes our interface and creates a class at runtime that implements our interface
@@ -41,6 +54,77 @@ class SolarPanelServiceTest {
         assertEquals(2, solarPanels.size());
     }
 
+    @Test
+    void shouldClampRangeToGrid() {
+        service.findByRange("Section One", -5, 1000, 10, 60);
+        verify(repository).findByRange("Section One", 1, 249, 10, 60);
+
+        assertEquals(0, service.findByRange(" ", 1, 10, 1, 10).size());
+        verify(repository, never()).findByRange(eq(" "), anyInt(), anyInt(), anyInt(), anyInt());
+    }
+
+    @Test
+    void shouldNotFilterEmptyYearRange() {
+        SolarPanelFilter filter = new SolarPanelFilter();
+        filter.setYearInstalledMin(2010);
+        filter.setYearInstalledMax(2000);
+
+        assertEquals(0, service.findByFilter(filter, 10).size());
+        verify(repository, never()).findByFilter(any(), any(), anyInt());
+    }
+
+    @Test
+    void shouldLimitFilterToMaxPageSize() {
+        SolarPanelFilter filter = new SolarPanelFilter();
+        service.findByFilter(filter, 1_000_000);
+        verify(repository).findByFilter(filter, null, SolarPanelService.MAX_PAGE_SIZE);
+    }
+
+    @Test
+    void shouldFindLastPageWithoutNextCursor() {
+        when(repository.findPage(null, 3)).thenReturn(List.of(
+                new SolarPanel(1, "Section One", 1, 1, 2020, Material.POLY_SI, true),
+                new SolarPanel(2, "Section One", 1, 2, 2020, Material.POLY_SI, true)
+        ));
+
+        SolarPanelPage page = service.findPage(null, 2);
+
+        assertEquals(2, page.getSolarPanels().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void shouldFindPageWithNextCursor() {
+        when(repository.findPage(null, 3)).thenReturn(List.of(
+                new SolarPanel(1, "Section One", 1, 1, 2020, Material.POLY_SI, true),
+                new SolarPanel(2, "Section One", 1, 2, 2020, Material.POLY_SI, true),
+                new SolarPanel(3, "Section One", 1, 3, 2020, Material.POLY_SI, true)
+        ));
+
+        SolarPanelPage page = service.findPage(null, 2);
+
+        assertEquals(2, page.getSolarPanels().size());
+        assertEquals(new SolarPanelCursor("Section One", 1, 2, 2, 2020),
+                SolarPanelCursor.decode(page.getNextCursor()));
+    }
+
+    @Test
+    void shouldFindFilterPageWithNextCursor() {
+        SolarPanelFilter filter = new SolarPanelFilter();
+        filter.setSort(SolarPanelFilter.Sort.YEAR_INSTALLED);
+        SolarPanelCursor after = new SolarPanelCursor("Section One", 1, 1, 1, 2000);
+        when(repository.findByFilter(filter, after, 3)).thenReturn(List.of(
+                new SolarPanel(2, "Section One", 1, 2, 2010, Material.POLY_SI, true),
+                new SolarPanel(3, "Section One", 1, 3, 2020, Material.POLY_SI, true),
+                new SolarPanel(4, "Section One", 1, 4, 2021, Material.POLY_SI, true)
+        ));
+
+        SolarPanelPage page = service.findPageByFilter(filter, after, 2);
+
+        assertEquals(2, page.getSolarPanels().size());
+        assertEquals(2020, SolarPanelCursor.decode(page.getNextCursor()).getYearInstalled());
+    }
+
     @Test
     void shouldFindSolarPanelWithAnIdOf1() {
         when(repository.findById(3)).thenReturn(new SolarPanel());
@@ -216,15 +300,26 @@ class SolarPanelServiceTest {
         solarPanel.setYearInstalled(2000);
         solarPanel.setMaterial(Material.POLY_SI);
 
-        when(repository.findBySection("Section One")).thenReturn(List.of(
-                new SolarPanel(1, "Section One", 1, 1, 1999, Material.CIGS, true)
-        ));
+        when(repository.existsByNaturalKey(solarPanel)).thenReturn(true);
 
         SolarPanelResult result = service.create(solarPanel);
 
         assertFalse(result.isSuccess());
         assertEquals(1, result.getErrorMessages().size());
         assertTrue(result.getErrorMessages().get(0).contains("must be unique"));
+        verify(repository, never()).findBySection(any());
+    }
+
+    @Test
+    void shouldNotCreateWhenUniqueIndexRejectsNaturalKey() {
+        SolarPanel solarPanel = new SolarPanel(0, "Section One", 1, 1, 2000, Material.POLY_SI, true);
+
+        when(repository.create(solarPanel)).thenThrow(new DuplicateKeyException("Duplicate entry"));
+
+        SolarPanelResult result = service.create(solarPanel);
+
+        assertEquals(ResultType.INVALID, result.getResultType());
+        assertTrue(result.getErrorMessages().get(0).contains("must be unique"));
     }
 
     @Test
@@ -256,6 +351,65 @@ class SolarPanelServiceTest {
         assertNotNull(result.getSolarPanel());
     }
 
+    @Test
+    void shouldNotCreateAllEmpty() {
+        SolarPanelBatchResult result = service.createAll(List.of());
+
+        assertFalse(result.isSuccess());
+        assertEquals(1, result.getErrorMessages().size());
+    }
+
+    @Test
+    void shouldNotCreateAllWithDuplicatesInBatch() {
+        List<SolarPanel> solarPanels = List.of(
+                new SolarPanel(0, "Section One", 1, 1, 2020, Material.POLY_SI, true),
+                new SolarPanel(0, "section one", 1, 1, 2020, Material.POLY_SI, true));
+
+        SolarPanelBatchResult result = service.createAll(solarPanels);
+
+        assertFalse(result.isSuccess());
+        assertTrue(result.getResults().get(0).isSuccess());
+        assertTrue(result.getResults().get(1).getErrorMessages().get(0).contains("must be unique"));
+        verify(repository, never()).createAll(any());
+    }
+
+    @Test
+    void shouldNotCreateAllWithExistingNaturalKey() {
+        when(repository.findBySection("Section One")).thenReturn(List.of(
+                new SolarPanel(1, "Section One", 1, 1, 1999, Material.CIGS, true)
+        ));
+
+        List<SolarPanel> solarPanels = List.of(
+                new SolarPanel(0, "Section One", 1, 2, 2020, Material.POLY_SI, true),
+                new SolarPanel(0, "Section One", 1, 1, 2020, Material.POLY_SI, true));
+
+        SolarPanelBatchResult result = service.createAll(solarPanels);
+
+        assertFalse(result.isSuccess());
+        assertTrue(result.getResults().get(0).isSuccess());
+        assertFalse(result.getResults().get(1).isSuccess());
+    }
+
+    @Test
+    void shouldCreateAllWithOneLookupPerSection() {
+        List<SolarPanel> solarPanels = List.of(
+                new SolarPanel(0, "Section One", 1, 1, 2020, Material.POLY_SI, true),
+                new SolarPanel(0, "Section One", 1, 2, 2020, Material.POLY_SI, true),
+                new SolarPanel(0, "Section Two", 1, 1, 2020, Material.POLY_SI, true));
+
+        when(repository.createAll(solarPanels)).thenReturn(List.of(
+                new SolarPanel(10, "Section One", 1, 1, 2020, Material.POLY_SI, true),
+                new SolarPanel(11, "Section One", 1, 2, 2020, Material.POLY_SI, true),
+                new SolarPanel(12, "Section Two", 1, 1, 2020, Material.POLY_SI, true)));
+
+        SolarPanelBatchResult result = service.createAll(solarPanels);
+
+        assertTrue(result.isSuccess());
+        assertEquals(List.of(10, 11, 12), result.getIds());
+        verify(repository, times(1)).findBySection("Section One");
+        verify(repository, times(1)).findBySection("Section Two");
+    }
+
     @Test
     void shouldNotUpdateNonPositiveId() {
         SolarPanel solarPanel = new SolarPanel();
@@ -264,6 +418,7 @@ class SolarPanelServiceTest {
         solarPanel.setColumn(3);
         solarPanel.setYearInstalled(2000);
         solarPanel.setMaterial(Material.POLY_SI);
+        solarPanel.setVersion(0);
 
         SolarPanelResult result = service.update(solarPanel);
 
@@ -275,6 +430,7 @@ class SolarPanelServiceTest {
     @Test
     void shouldNotUpdateEmptySection() {
         SolarPanel solarPanel = new SolarPanel(1, "", 1, 1, 2020, Material.POLY_SI, true);
+        solarPanel.setVersion(0);
 
         SolarPanelResult result = service.update(solarPanel);
 
@@ -292,6 +448,7 @@ class SolarPanelServiceTest {
         solarPanel.setColumn(3);
         solarPanel.setYearInstalled(2000);
         solarPanel.setMaterial(Material.POLY_SI);
+        solarPanel.setVersion(0);
 
         SolarPanelResult result = service.update(solarPanel);
 
@@ -300,9 +457,22 @@ class SolarPanelServiceTest {
         assertTrue(result.getErrorMessages().get(0).contains("was not found"));
     }
 
+    @Test
+    void shouldNotUpdateWithoutVersion() {
+        SolarPanel solarPanel = new SolarPanel(1, "Section One", 1, 1, 2020, Material.A_SI, true);
+
+        SolarPanelResult result = service.update(solarPanel);
+
+        assertEquals(ResultType.INVALID, result.getResultType());
+        assertEquals(1, result.getErrorMessages().size());
+        assertTrue(result.getErrorMessages().get(0).contains("`version` is required"));
+        verify(repository, never()).update(any());
+    }
+
     @Test
     void shouldUpdate() {
         SolarPanel solarPanel = new SolarPanel(1, "Section One", 1, 1, 2020, Material.A_SI, true);
+        solarPanel.setVersion(0);
 
         when(repository.update(solarPanel)).thenReturn(true);
 
@@ -311,6 +481,83 @@ class SolarPanelServiceTest {
         assertTrue(result.isSuccess());
     }
 
+    @Test
+    void shouldUpsertWithoutNaturalKeyCheck() {
+        SolarPanel solarPanel = new SolarPanel(0, "Section One", 1, 1, 2020, Material.A_SI, true);
+        when(repository.upsert(solarPanel)).thenReturn(UpsertType.UPDATED);
+
+        SolarPanelUpsertResult result = service.upsert(solarPanel);
+
+        assertTrue(result.isSuccess());
+        assertEquals(UpsertType.UPDATED, result.getUpsertType());
+        verify(repository, never()).existsByNaturalKey(any());
+    }
+
+    @Test
+    void shouldPublishPreviousPanelForUpsertUpdate() {
+        // Up-to-date statistics need the previous panel to adjust their counts.
+        statisticsTracker.rebuild();
+        SolarPanel previous = new SolarPanel(1, "Section One", 1, 1, 2010, Material.POLY_SI, false);
+        when(repository.findByRange("Section One", 1, 1, 1, 1)).thenReturn(List.of(previous));
+        SolarPanel solarPanel = new SolarPanel(0, "Section One", 1, 1, 2020, Material.A_SI, true);
+        when(repository.upsert(solarPanel)).thenReturn(UpsertType.UPDATED);
+
+        service.upsert(solarPanel);
+
+        SolarPanelChangedEvent event = events.stream(SolarPanelChangedEvent.class).findFirst().orElseThrow();
+        assertEquals(SolarPanelChangeType.UPDATED, event.getChangeType());
+        assertEquals(previous, event.getPrevious());
+    }
+
+    @Test
+    void shouldReportUpsertTypeForEachBatchItem() {
+        when(repository.findBySection("Section One")).thenReturn(List.of(
+                new SolarPanel(1, "Section One", 1, 1, 2020, Material.POLY_SI, true),
+                new SolarPanel(2, "Section One", 1, 2, 2020, Material.POLY_SI, true)));
+        List<SolarPanel> solarPanels = List.of(
+                new SolarPanel(0, "Section One", 1, 1, 2020, Material.POLY_SI, true),
+                new SolarPanel(0, "Section One", 1, 2, 2021, Material.POLY_SI, true),
+                new SolarPanel(0, "Section One", 1, 3, 2021, Material.POLY_SI, true));
+        when(repository.upsertAll(solarPanels)).thenAnswer(invocation -> {
+            for (int i = 0; i < solarPanels.size(); i++) {
+                solarPanels.get(i).setId(i + 1);
+            }
+            return solarPanels;
+        });
+
+        SolarPanelBatchResult result = service.upsertAll(solarPanels);
+
+        assertTrue(result.isSuccess());
+        assertEquals(List.of(UpsertType.UNCHANGED, UpsertType.UPDATED, UpsertType.INSERTED), result.getResults().stream()
+                .map(itemResult -> ((SolarPanelUpsertResult) itemResult).getUpsertType())
+                .toList());
+        verify(repository, times(1)).findBySection("Section One");
+    }
+
+    @Test
+    void shouldNotUpsertBatchWithRepeatedNaturalKey() {
+        List<SolarPanel> solarPanels = List.of(
+                new SolarPanel(0, "Section One", 1, 1, 2020, Material.POLY_SI, true),
+                new SolarPanel(0, "section one", 1, 1, 2021, Material.POLY_SI, true));
+
+        SolarPanelBatchResult result = service.upsertAll(solarPanels);
+
+        assertFalse(result.isSuccess());
+        verify(repository, never()).upsertAll(any());
+    }
+
+    @Test
+    void shouldNotUpdateStaleVersion() {
+        SolarPanel solarPanel = new SolarPanel(1, "Section One", 1, 1, 2020, Material.A_SI, true);
+        solarPanel.setVersion(0);
+        when(repository.findById(1)).thenReturn(new SolarPanel(1, "Section One", 1, 1, 2020, Material.POLY_SI, true));
+        when(repository.update(solarPanel)).thenReturn(false);
+
+        SolarPanelResult result = service.update(solarPanel);
+
+        assertEquals(ResultType.CONFLICT, result.getResultType());
+    }
+
     @Test
     void shouldNotDeleteNonExistentSolarPanel() {
         SolarPanelResult result = service.deleteById(1024);
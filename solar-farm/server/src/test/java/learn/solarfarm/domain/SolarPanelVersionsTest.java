@@ -0,0 +1,48 @@
+package learn.solarfarm.domain;
+
+import learn.solarfarm.models.Material;
+import learn.solarfarm.models.SolarPanel;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SolarPanelVersionsTest {
+
+    final SolarPanelVersions versions = new SolarPanelVersions();
+
+    @Test
+    void shouldOnlyChangeTagsForWrittenSections() {
+        String all = versions.getAllETag();
+        String ridge = versions.getSectionETag("The Ridge");
+        String flats = versions.getSectionETag("Flats");
+
+        versions.onSolarPanelChanged(SolarPanelChangedEvent.created(
+                new SolarPanel(1, "The Ridge", 1, 1, 2020, Material.POLY_SI, true)));
+
+        assertNotEquals(all, versions.getAllETag());
+        assertNotEquals(ridge, versions.getSectionETag("the ridge"));
+        assertEquals(flats, versions.getSectionETag("Flats"));
+    }
+
+    @Test
+    void shouldChangeBothSectionsWhenPanelMoves() {
+        SolarPanel previous = new SolarPanel(1, "The Ridge", 1, 1, 2020, Material.POLY_SI, true);
+        SolarPanel current = new SolarPanel(1, "Flats", 1, 1, 2020, Material.POLY_SI, true);
+        String ridge = versions.getSectionETag("The Ridge");
+        String flats = versions.getSectionETag("Flats");
+
+        versions.onSolarPanelChanged(SolarPanelChangedEvent.updated(previous, current));
+
+        assertNotEquals(ridge, versions.getSectionETag("The Ridge"));
+        assertNotEquals(flats, versions.getSectionETag("Flats"));
+    }
+
+    @Test
+    void shouldChangeEverySectionWhenSectionIsUnknown() {
+        String flats = versions.getSectionETag("Flats");
+
+        versions.onSolarPanelChanged(SolarPanelChangedEvent.deleted(1, null));
+
+        assertNotEquals(flats, versions.getSectionETag("Flats"));
+    }
+}
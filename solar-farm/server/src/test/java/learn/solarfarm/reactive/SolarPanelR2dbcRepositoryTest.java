@@ -0,0 +1,218 @@
+package learn.solarfarm.reactive;
+
+import io.r2dbc.h2.H2ConnectionConfiguration;
+import io.r2dbc.h2.H2ConnectionFactory;
+import io.r2dbc.h2.H2ConnectionOption;
+import learn.solarfarm.domain.ResultType;
+import learn.solarfarm.models.Material;
+import learn.solarfarm.models.SolarPanel;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.test.StepVerifier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs against an in-memory H2 database in MySQL mode, so no MySQL server is needed.
+class SolarPanelR2dbcRepositoryTest {
+
+    static DatabaseClient client;
+
+    SolarPanelR2dbcRepository repository = new SolarPanelR2dbcRepository(client);
+    SolarPanelReactiveService service = new SolarPanelReactiveService(repository);
+
+    @BeforeAll
+    static void createSchema() {
+        H2ConnectionFactory connectionFactory = new H2ConnectionFactory(H2ConnectionConfiguration.builder()
+                .inMemory("solar_farm_reactive")
+                .username("sa")
+                .property(H2ConnectionOption.DB_CLOSE_DELAY, "-1")
+                .property(H2ConnectionOption.MODE, "MySQL")
+                .build());
+        client = DatabaseClient.create(connectionFactory);
+
+        client.sql("create table section (" +
+                "section_id int primary key auto_increment, " +
+                "name varchar_ignorecase(100) not null unique)").then().block();
+        client.sql("create table solar_panel (" +
+                "id int primary key auto_increment, " +
+                "section_id int not null references section(section_id), " +
+                "`row` int not null, " +
+                "`column` int not null, " +
+                "year_installed int not null, " +
+                "material varchar(10) not null, " +
+                "is_tracking bit not null, " +
+                "version int not null default 0)").then().block();
+        client.sql("create unique index uq_solar_panel_section_row_column " +
+                "on solar_panel (section_id, `row`, `column`)").then().block();
+    }
+
+    @BeforeEach
+    void setKnownGoodState() {
+        client.sql("delete from solar_panel").then().block();
+        client.sql("delete from section").then().block();
+        client.sql("insert into section (name) values ('The Ridge'), ('Flats')").then().block();
+        client.sql("insert into solar_panel (section_id, `row`, `column`, year_installed, material, is_tracking) values " +
+                "((select section_id from section where name = 'The Ridge'), 1, 1, 2020, 'POLY_SI', true), " +
+                "((select section_id from section where name = 'The Ridge'), 1, 2, 2019, 'MONO_SI', true), " +
+                "((select section_id from section where name = 'Flats'), 1, 1, 2017, 'A_SI', true), " +
+                "((select section_id from section where name = 'Flats'), 2, 6, 2017, 'CD_TE', true), " +
+                "((select section_id from section where name = 'Flats'), 3, 7, 2000, 'CIGS', false)").then().block();
+    }
+
+    @Test
+    void shouldFindAllInOrder() {
+        StepVerifier.create(repository.findAll().map(SolarPanel::getSection))
+                .expectNext("Flats", "Flats", "Flats", "The Ridge", "The Ridge")
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldFindBySection() {
+        StepVerifier.create(repository.findBySection("The Ridge"))
+                .expectNextCount(2)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldFindById() {
+        SolarPanel first = repository.findAll().blockFirst();
+        assertNotNull(first);
+
+        StepVerifier.create(repository.findById(first.getId()))
+                .expectNext(first)
+                .verifyComplete();
+        StepVerifier.create(repository.findById(999_999))
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldCreate() {
+        SolarPanel solarPanel = new SolarPanel(0, "East Hill", 1, 2, 2000, Material.CIGS, true);
+
+        SolarPanel result = repository.create(solarPanel).block();
+
+        assertNotNull(result);
+        assertTrue(result.getId() > 0);
+        assertEquals(result, repository.findById(result.getId()).block());
+    }
+
+    @Test
+    void shouldUpdateAndDelete() {
+        SolarPanel solarPanel = repository.findBySection("Flats").blockFirst();
+        assertNotNull(solarPanel);
+        solarPanel.setYearInstalled(2001);
+
+        assertEquals(Boolean.TRUE, repository.update(solarPanel).block());
+        assertEquals(2001, repository.findById(solarPanel.getId()).block().getYearInstalled());
+        assertEquals(1, solarPanel.getVersion());
+
+        // Updating from the old version again is rejected.
+        solarPanel.setVersion(0);
+        assertEquals(Boolean.FALSE, repository.update(solarPanel).block());
+
+        assertEquals(Boolean.TRUE, repository.deleteById(solarPanel.getId()).block());
+        assertEquals(Boolean.FALSE, repository.deleteById(solarPanel.getId()).block());
+    }
+
+    @Test
+    void shouldNotCreateNonUniqueNaturalKey() {
+        SolarPanel solarPanel = new SolarPanel(0, "Flats", 2, 6, 2000, Material.CIGS, true);
+
+        StepVerifier.create(service.create(solarPanel))
+                .assertNext(result -> {
+                    assertEquals(ResultType.INVALID, result.getResultType());
+                    assertTrue(result.getErrorMessages().get(0).contains("must be unique"));
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldNotCreateInvalidFieldsWithoutQuerying() {
+        SolarPanel solarPanel = new SolarPanel(0, "", 1, 1, 2000, Material.CIGS, true);
+
+        StepVerifier.create(service.create(solarPanel))
+                .assertNext(result -> assertTrue(result.getErrorMessages().get(0).contains("`section`")))
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldNotCreateWithId() {
+        SolarPanel solarPanel = new SolarPanel(5, "East Hill", 1, 1, 2000, Material.CIGS, true);
+
+        StepVerifier.create(service.create(solarPanel))
+                .assertNext(result -> {
+                    assertEquals(ResultType.INVALID, result.getResultType());
+                    assertTrue(result.getErrorMessages().get(0).contains("`id` should not be set"));
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldNotUpdateToNonUniqueNaturalKey() {
+        SolarPanel solarPanel = repository.findBySection("Flats").blockFirst();
+        assertNotNull(solarPanel);
+        solarPanel.setRow(2);
+        solarPanel.setColumn(6);
+
+        StepVerifier.create(service.update(solarPanel))
+                .assertNext(result -> {
+                    assertEquals(ResultType.INVALID, result.getResultType());
+                    assertTrue(result.getErrorMessages().get(0).contains("must be unique"));
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldNotUpdateWithoutId() {
+        SolarPanel solarPanel = new SolarPanel(0, "Flats", 9, 9, 2000, Material.CIGS, true);
+
+        StepVerifier.create(service.update(solarPanel))
+                .assertNext(result -> {
+                    assertEquals(ResultType.INVALID, result.getResultType());
+                    assertTrue(result.getErrorMessages().get(0).contains("`id` is required"));
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldNotUpdateWithoutVersion() {
+        SolarPanel solarPanel = repository.findBySection("Flats").blockFirst();
+        assertNotNull(solarPanel);
+        solarPanel.setVersion(null);
+
+        StepVerifier.create(service.update(solarPanel))
+                .assertNext(result -> {
+                    assertEquals(ResultType.INVALID, result.getResultType());
+                    assertTrue(result.getErrorMessages().get(0).contains("`version` is required"));
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldNotUpdateStaleVersion() {
+        SolarPanel solarPanel = repository.findBySection("Flats").blockFirst();
+        assertNotNull(solarPanel);
+        client.sql("update solar_panel set version = version + 1 where id = :id")
+                .bind("id", solarPanel.getId()).then().block();
+        solarPanel.setYearInstalled(2001);
+
+        StepVerifier.create(service.update(solarPanel))
+                .assertNext(result -> assertEquals(ResultType.CONFLICT, result.getResultType()))
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldNotUpdateOrDeleteMissing() {
+        SolarPanel solarPanel = new SolarPanel(999_999, "Flats", 9, 9, 2000, Material.CIGS, true);
+        solarPanel.setVersion(0);
+
+        StepVerifier.create(service.update(solarPanel))
+                .assertNext(result -> assertEquals(ResultType.NOT_FOUND, result.getResultType()))
+                .verifyComplete();
+        StepVerifier.create(service.deleteById(999_999))
+                .assertNext(result -> assertEquals(ResultType.NOT_FOUND, result.getResultType()))
+                .verifyComplete();
+    }
+}